@@ -0,0 +1,114 @@
+package de.nikos410.discordbot.benchmark;
+
+import de.nikos410.discordbot.fake.FakeClient;
+import de.nikos410.discordbot.framework.CommandDispatcher;
+import de.nikos410.discordbot.framework.CommandModule;
+import de.nikos410.discordbot.framework.CommandRouter;
+import de.nikos410.discordbot.framework.CommandWrapper;
+import de.nikos410.discordbot.framework.ModuleIndex;
+import de.nikos410.discordbot.framework.PermissionLevel;
+import de.nikos410.discordbot.framework.RateLimiter;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import sx.blah.discord.handle.obj.IChannel;
+import sx.blah.discord.handle.obj.IGuild;
+import sx.blah.discord.handle.obj.IMessage;
+import sx.blah.discord.handle.obj.IUser;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the {@link CommandDispatcher}, the part of handling a message that runs on the event thread for every
+ * message: finding the command and checking the rate limit, before the command is handed to the executor. The
+ * commands are the real commands from the module index, the messages are written in a guild of the offline client.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DispatchBenchmark {
+    private static final long OWNER_ID = 1L;
+
+    @Param({"prefixReject", "unknownCommand", "knownCommand", "mixed"})
+    public String messageMix;
+
+    private CommandRouter router;
+    private CommandDispatcher dispatcher;
+    private IMessage[] messages;
+    private int next;
+
+    // The last command that was handed over
+    private long queueID;
+    private CommandWrapper command;
+
+    @Setup
+    public void setup() throws Exception {
+        router = new CommandRouter(Messages.PREFIX, loadCommands());
+
+        final List<String> contents;
+        switch (messageMix) {
+            case "prefixReject": contents = Arrays.asList(Messages.CHAT); break;
+            case "unknownCommand": contents = Arrays.asList(Messages.UNKNOWN_COMMANDS); break;
+            case "knownCommand": contents = Arrays.asList(Messages.KNOWN_COMMANDS); break;
+            default: contents = Messages.mixed();
+        }
+
+        dispatcher = new CommandDispatcher(OWNER_ID, (queueID, command, message) -> {
+            this.queueID = queueID;
+            this.command = command;
+            return true;
+        }, (command, rejection) -> this.command = null);
+
+        // Messages are written by many different users in a few channels
+        final FakeClient fakeClient = new FakeClient("Bot");
+        final IGuild guild = fakeClient.createSyntheticGuild("Benchmark", 500, 0);
+        final List<IUser> users = new ArrayList<>(guild.getUsers());
+        final List<IChannel> channels = guild.getChannels();
+        messages = new IMessage[contents.size()];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = fakeClient.receiveMessage(channels.get(i % 4), users.get(i % users.size()), contents.get(i));
+        }
+    }
+
+    @Benchmark
+    public void handleMessage(final Blackhole blackhole) {
+        final IMessage message = messages[next];
+        next = (next + 1) % messages.length;
+
+        command = null;
+        dispatcher.dispatch(router, message);
+        blackhole.consume(queueID);
+        blackhole.consume(command);
+    }
+
+    /**
+     * Create the commands of all modules in the index, without loading the modules.
+     */
+    private static List<CommandWrapper> loadCommands() throws Exception {
+        final ModuleIndex index = ModuleIndex.load();
+        final List<CommandWrapper> commands = new ArrayList<>();
+
+        for (String className : index.getModuleClassNames()) {
+            final Class<? extends CommandModule> moduleClass = Class.forName(className, false,
+                    DispatchBenchmark.class.getClassLoader()).asSubclass(CommandModule.class);
+
+            final JSONArray commandsJSON = index.getCommands(moduleClass);
+            for (int i = 0; i < commandsJSON.length(); i++) {
+                final JSONObject commandJSON = commandsJSON.getJSONObject(i);
+                final int cooldown = commandJSON.getInt("cooldown");
+                final RateLimiter rateLimiter = cooldown > 0 ?
+                        new RateLimiter(commandJSON.getInt("rateLimit"), cooldown, TimeUnit.SECONDS) : null;
+
+                commands.add(new CommandWrapper(commandJSON.getString("command"), commandJSON.getString("help"),
+                        Collections.emptyMap(), null, null, null, commandJSON.getBoolean("pmAllowed"),
+                        PermissionLevel.valueOf(commandJSON.getString("permissionLevel")),
+                        commandJSON.getJSONArray("parameters").length(), commandJSON.getBoolean("passContext"),
+                        commandJSON.getBoolean("ignoreParameterCount"), rateLimiter, null));
+            }
+        }
+
+        return commands;
+    }
+}
@@ -0,0 +1,79 @@
+package de.nikos410.discordbot.benchmark;
+
+import de.nikos410.discordbot.fake.FakeClient;
+import de.nikos410.discordbot.service.impl.DiscordMessageServiceImpl;
+import de.nikos410.discordbot.service.impl.MessageSplitter;
+import org.openjdk.jmh.annotations.*;
+import sx.blah.discord.handle.obj.IChannel;
+import sx.blah.discord.handle.obj.IMessage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks sanitizing outgoing messages and splitting them into messages of at most 2000 characters. The channel
+ * belongs to the offline client, so nothing is sent to Discord. Sending includes the hand-off to the sender threads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MessageServiceBenchmark {
+    @Param({"100", "1900", "10000"})
+    public int length;
+
+    // Without Discord's global rate limit, which would limit sending to 50 messages per second
+    private final DiscordMessageServiceImpl messageService = new DiscordMessageServiceImpl(Integer.MAX_VALUE);
+    private IChannel channel;
+
+    private String plainText;
+    private String textWithMentions;
+    private List<String> lines;
+
+    @Setup
+    public void setup() {
+        channel = new FakeClient("Bot").createGuild("Benchmark").createChannel("bot");
+
+        plainText = Messages.longText(length).replace("@", "");
+
+        // Mentions spread over the text
+        final StringBuilder builder = new StringBuilder(Messages.longText(length));
+        for (int i = 0; i < builder.length(); i += 250) {
+            builder.insert(i, i % 750 == 0 ? "<@&1234567890> " : i % 500 == 0 ? "@everyone " : "@here ");
+        }
+        textWithMentions = builder.toString();
+
+        lines = new ArrayList<>(Arrays.asList(plainText.split("\n")));
+    }
+
+    @Benchmark
+    public String sanitizePlain() {
+        return DiscordMessageServiceImpl.sanitizeMessage(plainText);
+    }
+
+    @Benchmark
+    public String sanitizeMentions() {
+        return DiscordMessageServiceImpl.sanitizeMessage(textWithMentions);
+    }
+
+    @Benchmark
+    public String sanitizeRoleMentions() {
+        return DiscordMessageServiceImpl.sanitizeMessage(textWithMentions, true);
+    }
+
+    @Benchmark
+    public List<MessageSplitter.Chunk> split() {
+        return MessageSplitter.split(plainText, 2000);
+    }
+
+    @Benchmark
+    public List<IMessage> sendMessage() {
+        return messageService.sendMessage(channel, plainText).join();
+    }
+
+    @Benchmark
+    public List<IMessage> sendLines() {
+        return messageService.sendMessage(channel, lines).join();
+    }
+}
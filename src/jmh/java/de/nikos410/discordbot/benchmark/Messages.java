@@ -0,0 +1,81 @@
+package de.nikos410.discordbot.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Realistic message contents for the benchmarks. Most messages on a server are chat messages without a command.
+ */
+final class Messages {
+    static final String PREFIX = "%";
+
+    static final String[] CHAT = {
+            "Hallo zusammen!",
+            "Weiß jemand, wann der Patch rauskommt?",
+            "lol",
+            "Ich habe gerade 15% Rabatt bekommen",
+            "https://www.reddit.com/r/de/comments/abc123/irgendein_thread/",
+            "Kann mir jemand bei meiner Steuererklärung helfen? Ich verstehe Anlage N nicht so ganz, " +
+                    "vor allem die Werbungskosten und die Pendlerpauschale.",
+            "@everyone schaut euch das an",
+            ":thinking:"
+    };
+
+    static final String[] UNKNOWN_COMMANDS = {
+            "%hilfe",
+            "%pingg",
+            "%% lol",
+            "%quotes 123456789012345678"
+    };
+
+    static final String[] KNOWN_COMMANDS = {
+            "%help",
+            "%ping",
+            "%quote 123456789012345678",
+            "%roll 3d6 2",
+            "%mute <@123456789012345678> 10m Spam im Kanal",
+            "%lastfm Nikos410 overall",
+            "%HELP quote"
+    };
+
+    private Messages() {
+    }
+
+    /**
+     * Create a mix of 1000 message contents. 80% are chat messages, 5% unknown commands and 15% known commands.
+     *
+     * @return The message contents in random order.
+     */
+    static List<String> mixed() {
+        final Random random = new Random(410);
+        final List<String> contents = new ArrayList<>();
+        for (int i = 0; i < 800; i++) {
+            contents.add(CHAT[random.nextInt(CHAT.length)]);
+        }
+        for (int i = 0; i < 50; i++) {
+            contents.add(UNKNOWN_COMMANDS[random.nextInt(UNKNOWN_COMMANDS.length)]);
+        }
+        for (int i = 0; i < 150; i++) {
+            contents.add(KNOWN_COMMANDS[random.nextInt(KNOWN_COMMANDS.length)]);
+        }
+        Collections.shuffle(contents, random);
+        return contents;
+    }
+
+    /**
+     * Create a long text with line breaks, like the output of a command that lists many entries.
+     *
+     * @param length The approximate length of the text.
+     * @return The text.
+     */
+    static String longText(final int length) {
+        final Random random = new Random(410);
+        final StringBuilder builder = new StringBuilder(length + 100);
+        while (builder.length() < length) {
+            builder.append(CHAT[random.nextInt(CHAT.length)]).append(random.nextInt(8) == 0 ? '\n' : ' ');
+        }
+        return builder.toString();
+    }
+}
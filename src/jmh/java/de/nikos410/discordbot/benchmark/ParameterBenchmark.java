@@ -0,0 +1,40 @@
+package de.nikos410.discordbot.benchmark;
+
+import de.nikos410.discordbot.framework.ParameterTokenizer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks parsing the parameters of a command, as done by DiscordBot.processCommand.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ParameterBenchmark {
+    private static final String[] CONTENTS = {
+            "%quote 123456789012345678",
+            "%roll 3d6 2",
+            "%mute <@123456789012345678> 10m Spam im Kanal, bitte lies die Regeln",
+            "%mute\n<@123456789012345678>   1h   \"Beleidigung anderer Nutzer\"",
+            "%setWelcome Willkommen auf dem Server!\nBitte lies dir zuerst die Regeln in #regeln durch."
+    };
+    private static final String[] COMMAND_NAMES = {"quote", "roll", "mute", "mute", "setWelcome"};
+    private static final int[] PARAMETER_COUNTS = {1, 2, 3, 3, 1};
+
+    @Param({"false", "true"})
+    public boolean passContext;
+
+    private int next;
+
+    @Benchmark
+    public String[] tokenize() {
+        final int current = next;
+        next = (next + 1) % CONTENTS.length;
+
+        final String[] parameters = new String[PARAMETER_COUNTS[current]];
+        ParameterTokenizer.tokenize(CONTENTS[current], Messages.PREFIX.length() + COMMAND_NAMES[current].length(),
+                parameters, passContext);
+        return parameters;
+    }
+}
@@ -0,0 +1,68 @@
+package de.nikos410.discordbot.benchmark;
+
+import de.nikos410.discordbot.util.io.IOUtil;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks serializing a data file shaped like gameStats.json (guild -> game name -> IDs of the users who played
+ * it), as done when a module saves its data. Run with {@code -prof gc} to compare the allocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SerializationBenchmark {
+    @Param({"1000"})
+    public int gamesPerGuild;
+
+    // The average number of users per game, the actual number varies from game to game
+    @Param({"50"})
+    public int usersPerGame;
+
+    private JSONObject json;
+    private final OutputStream sink = new OutputStream() {
+        @Override
+        public void write(final int b) {
+            // Discard
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            // Discard
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        json = new JSONObject();
+        for (int guild = 0; guild < 4; guild++) {
+            final JSONObject guildJSON = new JSONObject();
+            for (int game = 0; game < gamesPerGuild; game++) {
+                final JSONArray userIDs = new JSONArray();
+                final int userCount = 1 + (game * 37) % (2 * usersPerGame);
+                for (int user = 0; user < userCount; user++) {
+                    userIDs.put(165857945471418368L + (game * 7919L + user * 104729L) % 100000L);
+                }
+                guildJSON.put("spiel " + game, userIDs);
+            }
+            json.put(Long.toString(123456789012345678L + guild), guildJSON);
+        }
+    }
+
+    @Benchmark
+    public void indentedString() throws IOException {
+        // The previous way: the whole document as a String and as a byte array
+        sink.write(json.toString(4).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public void streaming() throws IOException {
+        IOUtil.writeJSON(sink, json);
+    }
+}
@@ -0,0 +1,347 @@
+package de.nikos410.discordbot.fake;
+
+import sx.blah.discord.api.internal.json.objects.EmbedObject;
+import sx.blah.discord.handle.obj.*;
+import sx.blah.discord.util.cache.LongMap;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory implementation of text channels ({@link IChannel}), voice channels ({@link IVoiceChannel}) and private
+ * channels ({@link IPrivateChannel}). Like Discord4J, every channel only keeps the most recent messages.
+ */
+final class FakeChannel extends FakeEntity {
+    enum Type {
+        TEXT,
+        VOICE,
+        PRIVATE
+    }
+
+    private static final int MESSAGE_CACHE_LIMIT = 256;
+
+    private final Type type;
+    private final FakeGuild guild;
+    private final IUser recipient;
+    private final IChannel channel;
+
+    private volatile String name;
+    private volatile String topic;
+    private volatile int position;
+    private volatile boolean deleted;
+    private volatile boolean typing;
+
+    // Most recent messages, oldest first
+    private final Map<Long, FakeMessage> messages = new LinkedHashMap<Long, FakeMessage>() {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Long, FakeMessage> eldest) {
+            return size() > MESSAGE_CACHE_LIMIT;
+        }
+    };
+
+    private final LongMap<PermissionOverride> userOverrides = LongMap.newMap();
+    private final LongMap<PermissionOverride> roleOverrides = LongMap.newMap();
+    private final Set<IUser> connectedUsers = ConcurrentHashMap.newKeySet();
+
+    FakeChannel(final FakeClient fakeClient, final long id, final Type type, final FakeGuild guild, final IUser recipient,
+                final String name, final int position) {
+        super(fakeClient, id);
+        this.type = type;
+        this.guild = guild;
+        this.recipient = recipient;
+        this.name = name;
+        this.position = position;
+
+        switch (type) {
+            case VOICE: this.channel = FakeProxy.create(IVoiceChannel.class, this); break;
+            case PRIVATE: this.channel = FakeProxy.create(IPrivateChannel.class, this); break;
+            default: this.channel = FakeProxy.create(IChannel.class, this);
+        }
+    }
+
+    IChannel asChannel() {
+        return channel;
+    }
+
+    Type getType() {
+        return type;
+    }
+
+    void addMessage(final FakeMessage message) {
+        synchronized (messages) {
+            messages.put(message.getLongID(), message);
+        }
+    }
+
+    void removeMessage(final FakeMessage message) {
+        synchronized (messages) {
+            messages.remove(message.getLongID());
+        }
+    }
+
+    void connect(final IUser user) {
+        connectedUsers.add(user);
+    }
+
+    void disconnect(final IUser user) {
+        connectedUsers.remove(user);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public IMessage getMessageByID(final long messageID) {
+        synchronized (messages) {
+            final FakeMessage message = messages.get(messageID);
+            return message == null ? null : message.asMessage();
+        }
+    }
+
+    public IMessage fetchMessage(final long messageID) {
+        return getMessageByID(messageID);
+    }
+
+    public int getInternalCacheCount() {
+        synchronized (messages) {
+            return messages.size();
+        }
+    }
+
+    public int getMaxInternalCacheCount() {
+        return MESSAGE_CACHE_LIMIT;
+    }
+
+    public IGuild getGuild() {
+        return guild == null ? null : guild.asGuild();
+    }
+
+    public IUser getRecipient() {
+        return recipient;
+    }
+
+    public boolean isPrivate() {
+        return type == Type.PRIVATE;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public String mention() {
+        return "<#" + id + '>';
+    }
+
+    public IMessage sendMessage(final String content) {
+        return send(content, null, 0);
+    }
+
+    public IMessage sendMessage(final EmbedObject embed) {
+        return send("", embed, 0);
+    }
+
+    public IMessage sendMessage(final String content, final boolean tts) {
+        return send(content, null, 0);
+    }
+
+    public IMessage sendMessage(final String content, final EmbedObject embed) {
+        return send(content, embed, 0);
+    }
+
+    public IMessage sendMessage(final String content, final EmbedObject embed, final boolean tts) {
+        return send(content, embed, 0);
+    }
+
+    public IMessage sendFile(final File file) throws FileNotFoundException {
+        return sendFiles("", file);
+    }
+
+    public IMessage sendFiles(final File... files) throws FileNotFoundException {
+        return sendFiles("", files);
+    }
+
+    public IMessage sendFile(final String content, final File file) throws FileNotFoundException {
+        return sendFiles(content, file);
+    }
+
+    public IMessage sendFiles(final String content, final File... files) throws FileNotFoundException {
+        checkFiles(files);
+        return send(content, null, files.length);
+    }
+
+    public IMessage sendFile(final EmbedObject embed, final File file) throws FileNotFoundException {
+        return sendFiles(embed, file);
+    }
+
+    public IMessage sendFiles(final EmbedObject embed, final File... files) throws FileNotFoundException {
+        checkFiles(files);
+        return send("", embed, files.length);
+    }
+
+    public IMessage sendFile(final String content, final InputStream file, final String fileName) {
+        upload(file);
+        return send(content, null, 1);
+    }
+
+    public IMessage sendFile(final EmbedObject embed, final InputStream file, final String fileName) {
+        upload(file);
+        return send("", embed, 1);
+    }
+
+    /**
+     * Read and close the stream like the multipart upload of the real client does.
+     */
+    private static void upload(final InputStream file) {
+        try (InputStream in = file) {
+            final byte[] buffer = new byte[8192];
+            while (in.read(buffer) >= 0) {
+                // Discard
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void checkFiles(final File... files) throws FileNotFoundException {
+        for (File file : files) {
+            if (!file.exists()) {
+                throw new FileNotFoundException(file.getPath());
+            }
+        }
+    }
+
+    private IMessage send(final String content, final EmbedObject embed, final int attachmentCount) {
+        if (content != null && content.length() > 2000) {
+            throw new IllegalArgumentException("Message content is longer than 2000 characters: " + content.length());
+        }
+        return fakeClient.sendMessage(this, content == null ? "" : content, embed, attachmentCount).asMessage();
+    }
+
+    public void setTypingStatus(final boolean typing) {
+        this.typing = typing;
+    }
+
+    public void toggleTypingStatus() {
+        typing = !typing;
+    }
+
+    public boolean getTypingStatus() {
+        return typing;
+    }
+
+    public void changeName(final String name) {
+        this.name = name;
+    }
+
+    public void changeTopic(final String topic) {
+        this.topic = topic;
+    }
+
+    public void changePosition(final int position) {
+        this.position = position;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void delete() {
+        deleted = true;
+        if (guild != null) {
+            guild.removeChannel(this);
+        }
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public LongMap<PermissionOverride> getUserOverrides() {
+        synchronized (userOverrides) {
+            return LongMap.copyMap(userOverrides);
+        }
+    }
+
+    public LongMap<PermissionOverride> getRoleOverrides() {
+        synchronized (roleOverrides) {
+            return LongMap.copyMap(roleOverrides);
+        }
+    }
+
+    public EnumSet<Permissions> getModifiedPermissions(final IUser user) {
+        final EnumSet<Permissions> permissions = user.getPermissionsForGuild(getGuild());
+        if (permissions.contains(Permissions.ADMINISTRATOR)) {
+            return permissions;
+        }
+
+        for (IRole role : user.getRolesForGuild(getGuild())) {
+            applyOverride(permissions, roleOverrides, role.getLongID());
+        }
+        applyOverride(permissions, userOverrides, user.getLongID());
+        return permissions;
+    }
+
+    public EnumSet<Permissions> getModifiedPermissions(final IRole role) {
+        final EnumSet<Permissions> permissions = role.getPermissions();
+        applyOverride(permissions, roleOverrides, role.getLongID());
+        return permissions;
+    }
+
+    private static void applyOverride(final EnumSet<Permissions> permissions, final LongMap<PermissionOverride> overrides,
+                                      final long overrideID) {
+        final PermissionOverride override;
+        synchronized (overrides) {
+            override = overrides.get(overrideID);
+        }
+        if (override != null) {
+            permissions.removeAll(override.deny());
+            permissions.addAll(override.allow());
+        }
+    }
+
+    public void removePermissionsOverride(final IUser user) {
+        synchronized (userOverrides) {
+            userOverrides.remove(user.getLongID());
+        }
+    }
+
+    public void removePermissionsOverride(final IRole role) {
+        synchronized (roleOverrides) {
+            roleOverrides.remove(role.getLongID());
+        }
+    }
+
+    public void overrideRolePermissions(final IRole role, final EnumSet<Permissions> toAdd, final EnumSet<Permissions> toRemove) {
+        synchronized (roleOverrides) {
+            roleOverrides.put(role.getLongID(), new PermissionOverride(toAdd, toRemove, role.getLongID()));
+        }
+    }
+
+    public void overrideUserPermissions(final IUser user, final EnumSet<Permissions> toAdd, final EnumSet<Permissions> toRemove) {
+        synchronized (userOverrides) {
+            userOverrides.put(user.getLongID(), new PermissionOverride(toAdd, toRemove, user.getLongID()));
+        }
+    }
+
+    public List<IUser> getUsersHere() {
+        if (type == Type.PRIVATE) {
+            return Arrays.asList(recipient, fakeClient.getOurUser());
+        }
+        return guild.getUsers();
+    }
+
+    public List<IUser> getConnectedUsers() {
+        return new ArrayList<>(connectedUsers);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,578 @@
+package de.nikos410.discordbot.fake;
+
+import sx.blah.discord.api.IDiscordClient;
+import sx.blah.discord.api.IShard;
+import sx.blah.discord.api.events.Event;
+import sx.blah.discord.api.internal.json.objects.EmbedObject;
+import sx.blah.discord.handle.impl.events.ReadyEvent;
+import sx.blah.discord.handle.impl.events.guild.channel.message.MessageReceivedEvent;
+import sx.blah.discord.handle.impl.events.guild.channel.message.MessageUpdateEvent;
+import sx.blah.discord.handle.impl.events.guild.member.UserJoinEvent;
+import sx.blah.discord.handle.impl.events.guild.voice.user.UserVoiceChannelJoinEvent;
+import sx.blah.discord.handle.impl.events.guild.voice.user.UserVoiceChannelLeaveEvent;
+import sx.blah.discord.handle.impl.events.guild.voice.user.UserVoiceChannelMoveEvent;
+import sx.blah.discord.handle.impl.events.user.PresenceUpdateEvent;
+import sx.blah.discord.handle.impl.obj.Presence;
+import sx.blah.discord.handle.obj.*;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * An in-memory Discord client that never connects to Discord. Guilds, users, channels, roles and messages only
+ * exist in memory, events are dispatched through a real Discord4J event dispatcher, so the bot and its modules can be
+ * run offline, e.g. for load tests.
+ *
+ * Use {@link #getClient()} to get the {@link IDiscordClient} for the bot. The other public methods simulate things
+ * happening on Discord, like users writing messages or joining a guild, and dispatch the corresponding events.
+ */
+public class FakeClient {
+    private static final String[] GAMES = {"League of Legends", "Minecraft", "Counter-Strike: Global Offensive",
+            "Fortnite", "World of Warcraft", "Rocket League", "Overwatch", "Dota 2", "Factorio", "Stardew Valley",
+            "Rainbow Six Siege", "Hearthstone"};
+    private static final String[] TEXT_CHANNELS = {"allgemein", "bot", "memes", "gaming", "modlog", "userlog", "regeln"};
+    private static final int VOICE_CHANNEL_COUNT = 3;
+
+    private final IDiscordClient client;
+    private final FakeEventDispatcher dispatcher;
+    private final FakeUser ourUser;
+
+    private final AtomicLong lastID = new AtomicLong();
+    private final Map<Long, FakeGuild> guilds = new ConcurrentHashMap<>();
+    private final Map<Long, FakeUser> users = new ConcurrentHashMap<>();
+    private final Map<Long, FakeChannel> channels = new ConcurrentHashMap<>();
+    private final Map<Long, FakeRole> roles = new ConcurrentHashMap<>();
+    // User ID -> private channel with that user
+    private final Map<Long, FakeChannel> privateChannels = new ConcurrentHashMap<>();
+
+    private final AtomicLong sentMessageCount = new AtomicLong();
+    private final List<Consumer<IMessage>> outboundListeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean ready;
+
+    /**
+     * Create a new client without any guilds.
+     *
+     * @param botName The name of the bot's user.
+     */
+    public FakeClient(final String botName) {
+        this.client = FakeProxy.create(IDiscordClient.class, this);
+        this.dispatcher = new FakeEventDispatcher(client, Runtime.getRuntime().availableProcessors() * 4, 128);
+
+        this.ourUser = new FakeUser(this, nextID(), botName, "0001", true);
+        users.put(ourUser.getLongID(), ourUser);
+        ourUser.setPresence(new Presence(null, null, StatusType.ONLINE, null));
+    }
+
+    /**
+     * @return The client to pass to the bot.
+     */
+    public IDiscordClient getClient() {
+        return client;
+    }
+
+    /**
+     * Create a new unique ID. IDs are snowflakes, so their creation time is the current time.
+     */
+    long nextID() {
+        final long now = (System.currentTimeMillis() - FakeEntity.DISCORD_EPOCH) << 22;
+        return lastID.updateAndGet(last -> Math.max(last + 1, now));
+    }
+
+    /**
+     * Dispatch an event to all listeners of the client.
+     *
+     * @param event The event.
+     */
+    public void dispatch(final Event event) {
+        dispatcher.dispatch(event);
+    }
+
+    /**
+     * Register a listener that is called when all listeners of the bot have handled an event.
+     *
+     * @param listener The listener, gets the event and the time from dispatching it until the last listener finished.
+     */
+    public void addEventListener(final FakeEventDispatcher.EventListener listener) {
+        dispatcher.addEventListener(listener);
+    }
+
+    /**
+     * Register a listener that is called for every message the bot sends.
+     *
+     * @param listener The listener.
+     */
+    public void addOutboundListener(final Consumer<IMessage> listener) {
+        outboundListeners.add(listener);
+    }
+
+    /**
+     * @return The number of messages the bot sent.
+     */
+    public long getSentMessageCount() {
+        return sentMessageCount.get();
+    }
+
+    // ========== Creating guilds, users, channels and roles ==========
+
+    /**
+     * Create an empty guild. The bot is a member of the guild.
+     *
+     * @param name The name of the guild.
+     * @return The guild.
+     */
+    public IGuild createGuild(final String name) {
+        final FakeGuild guild = new FakeGuild(this, nextID(), name);
+        guilds.put(guild.getLongID(), guild);
+        guild.addMember(ourUser, Instant.now());
+        guild.setOwner(ourUser.getLongID());
+        return guild.asGuild();
+    }
+
+    /**
+     * Create a guild with generated members, roles and channels. The guild has the roles "Admin", "Moderator",
+     * "Muted" and "Bot" and some roles for user groups, about 40% of the members are online and some of them are
+     * playing a game. The same seed always generates the same guild, apart from the IDs.
+     *
+     * @param name The name of the guild.
+     * @param memberCount The number of members, not counting the bot.
+     * @param seed The seed for the random generator.
+     * @return The guild.
+     */
+    public IGuild createSyntheticGuild(final String name, final int memberCount, final long seed) {
+        final Random random = new Random(seed);
+        final FakeGuild guild = guilds.get(createGuild(name).getLongID());
+
+        for (int i = 0; i < TEXT_CHANNELS.length; i++) {
+            createChannel(guild, FakeChannel.Type.TEXT, TEXT_CHANNELS[i]);
+        }
+        for (int i = 1; i <= VOICE_CHANNEL_COUNT; i++) {
+            createChannel(guild, FakeChannel.Type.VOICE, "Sprachkanal " + i);
+        }
+
+        final FakeRole adminRole = createRole(guild, "Admin", 5, EnumSet.of(Permissions.ADMINISTRATOR));
+        final FakeRole modRole = createRole(guild, "Moderator", 4, EnumSet.of(Permissions.KICK, Permissions.BAN,
+                Permissions.MANAGE_MESSAGES, Permissions.MANAGE_ROLES, Permissions.VOICE_MUTE_MEMBERS));
+        createRole(guild, "Muted", 1, EnumSet.noneOf(Permissions.class));
+        final FakeRole botRole = createRole(guild, "Bot", 6, EnumSet.of(Permissions.ADMINISTRATOR));
+        ourUser.grantRole(botRole);
+
+        final List<FakeRole> groupRoles = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            groupRoles.add(createRole(guild, "Gruppe " + i, 2, EnumSet.noneOf(Permissions.class)));
+        }
+
+        for (int i = 0; i < memberCount; i++) {
+            final FakeUser member = newUser(String.format("Nutzer%05d", i), random.nextInt(10000), false);
+            guild.addMember(member, Instant.now());
+
+            if (i == 0) {
+                guild.setOwner(member.getLongID());
+                member.grantRole(adminRole);
+            }
+            else if (i % 1000 == 1) {
+                member.grantRole(adminRole);
+            }
+            else if (i % 250 == 2) {
+                member.grantRole(modRole);
+            }
+            if (random.nextInt(10) == 0) {
+                member.grantRole(groupRoles.get(random.nextInt(groupRoles.size())));
+            }
+
+            member.setPresence(randomPresence(random));
+        }
+
+        return guild.asGuild();
+    }
+
+    private static IPresence randomPresence(final Random random) {
+        final int status = random.nextInt(100);
+        if (status >= 40) {
+            return new Presence(null, null, StatusType.OFFLINE, null);
+        }
+
+        final StatusType statusType = status < 30 ? StatusType.ONLINE : status < 35 ? StatusType.IDLE : StatusType.DND;
+        if (random.nextInt(10) < 3) {
+            // Popular games are played more often
+            final double r = random.nextDouble();
+            final String game = GAMES[(int) (r * r * GAMES.length)];
+            return new Presence(game, null, statusType, ActivityType.PLAYING);
+        }
+        return new Presence(null, null, statusType, null);
+    }
+
+    /**
+     * Create a user that is not a member of any guild.
+     *
+     * @param name The name of the user.
+     * @param bot True if the user is a bot.
+     * @return The user.
+     */
+    public IUser createUser(final String name, final boolean bot) {
+        return newUser(name, users.size() % 10000, bot).asUser();
+    }
+
+    private FakeUser newUser(final String name, final int discriminator, final boolean bot) {
+        final FakeUser user = new FakeUser(this, nextID(), name, String.format("%04d", discriminator), bot);
+        users.put(user.getLongID(), user);
+        return user;
+    }
+
+    FakeChannel createChannel(final FakeGuild guild, final FakeChannel.Type type, final String name) {
+        final FakeChannel channel = new FakeChannel(this, nextID(), type, guild, null, name, guild.getFakeChannels().size());
+        guild.addChannel(channel);
+        return channel;
+    }
+
+    FakeRole createRole(final FakeGuild guild, final String name, final int position, final EnumSet<Permissions> permissions) {
+        final FakeRole role = new FakeRole(this, nextID(), guild, name, position, permissions);
+        guild.addRole(role);
+        return role;
+    }
+
+    /**
+     * Add a user to a guild without dispatching an event, e.g. to set up a guild before the bot is started.
+     *
+     * @param guild The guild.
+     * @param user The user.
+     */
+    public void addMember(final IGuild guild, final IUser user) {
+        guilds.get(guild.getLongID()).addMember(users.get(user.getLongID()), Instant.now());
+    }
+
+    /**
+     * Give a role to a user without dispatching an event, e.g. to set up a guild before the bot is started.
+     *
+     * @param user The user.
+     * @param role The role.
+     */
+    public void grantRole(final IUser user, final IRole role) {
+        users.get(user.getLongID()).grantRole(roles.get(role.getLongID()));
+    }
+
+    void registerChannel(final FakeChannel channel) {
+        channels.put(channel.getLongID(), channel);
+    }
+
+    void registerRole(final FakeRole role) {
+        roles.put(role.getLongID(), role);
+    }
+
+    FakeRole getFakeRole(final long roleID) {
+        return roles.get(roleID);
+    }
+
+    void removeGuild(final FakeGuild guild) {
+        guilds.remove(guild.getLongID());
+    }
+
+    // ========== Simulating activity ==========
+
+    /**
+     * Mark the client as ready and dispatch a {@link ReadyEvent}.
+     */
+    public void login() {
+        ready = true;
+        dispatch(new ReadyEvent());
+    }
+
+    public void logout() {
+        ready = false;
+    }
+
+    /**
+     * Let a user write a message.
+     *
+     * @param channel The channel the message is written in.
+     * @param author The author of the message.
+     * @param content The content of the message.
+     * @return The message.
+     */
+    public IMessage receiveMessage(final IChannel channel, final IUser author, final String content) {
+        final FakeChannel fakeChannel = channels.get(channel.getLongID());
+        final FakeMessage message = new FakeMessage(this, nextID(), fakeChannel, author, content, null, 0);
+        fakeChannel.addMessage(message);
+
+        dispatch(new MessageReceivedEvent(message.asMessage()));
+        return message.asMessage();
+    }
+
+    /**
+     * Let the author of a message edit it.
+     *
+     * @param message The message to edit.
+     * @param newContent The new content of the message.
+     */
+    public void editMessage(final IMessage message, final String newContent) {
+        final FakeMessage fakeMessage = findMessage(message);
+        final IMessage oldMessage = fakeMessage.editContent(newContent);
+        dispatch(new MessageUpdateEvent(oldMessage, fakeMessage.asMessage()));
+    }
+
+    private FakeMessage findMessage(final IMessage message) {
+        final FakeChannel channel = channels.get(message.getChannel().getLongID());
+        if (channel == null || channel.getMessageByID(message.getLongID()) == null) {
+            throw new IllegalArgumentException("Message " + message.getLongID() + " is no longer cached.");
+        }
+        return (FakeMessage) FakeProxy.targetOf(channel.getMessageByID(message.getLongID()));
+    }
+
+    /**
+     * Change the presence of a user, e.g. when the user starts playing a game.
+     *
+     * @param user The user.
+     * @param newPresence The new presence.
+     */
+    public void updatePresence(final IUser user, final IPresence newPresence) {
+        final FakeUser fakeUser = users.get(user.getLongID());
+        final IPresence oldPresence = fakeUser.getPresence();
+        fakeUser.setPresence(newPresence);
+        dispatch(new PresenceUpdateEvent(user, oldPresence, newPresence));
+    }
+
+    /**
+     * Let a user join a guild.
+     *
+     * @param guild The guild.
+     * @param user The user.
+     */
+    public void joinGuild(final IGuild guild, final IUser user) {
+        final Instant now = Instant.now();
+        guilds.get(guild.getLongID()).addMember(users.get(user.getLongID()), now);
+        dispatch(new UserJoinEvent(guild, user, now));
+    }
+
+    /**
+     * Let a user connect to a voice channel.
+     *
+     * @param user The user.
+     * @param channel The voice channel.
+     */
+    public void joinVoiceChannel(final IUser user, final IVoiceChannel channel) {
+        channels.get(channel.getLongID()).connect(user);
+        dispatch(new UserVoiceChannelJoinEvent(channel, user));
+    }
+
+    /**
+     * Let a user switch to another voice channel.
+     *
+     * @param user The user.
+     * @param oldChannel The voice channel the user is connected to.
+     * @param newChannel The voice channel the user moves to.
+     */
+    public void moveVoiceChannel(final IUser user, final IVoiceChannel oldChannel, final IVoiceChannel newChannel) {
+        channels.get(oldChannel.getLongID()).disconnect(user);
+        channels.get(newChannel.getLongID()).connect(user);
+        dispatch(new UserVoiceChannelMoveEvent(user, oldChannel, newChannel));
+    }
+
+    /**
+     * Let a user disconnect from a voice channel.
+     *
+     * @param user The user.
+     * @param channel The voice channel.
+     */
+    public void leaveVoiceChannel(final IUser user, final IVoiceChannel channel) {
+        channels.get(channel.getLongID()).disconnect(user);
+        dispatch(new UserVoiceChannelLeaveEvent(channel, user));
+    }
+
+    /**
+     * Store a message that was sent by the bot.
+     */
+    FakeMessage sendMessage(final FakeChannel channel, final String content, final EmbedObject embed, final int attachmentCount) {
+        final FakeMessage message = new FakeMessage(this, nextID(), channel, ourUser.asUser(), content, embed, attachmentCount);
+        channel.addMessage(message);
+
+        sentMessageCount.incrementAndGet();
+        for (Consumer<IMessage> listener : outboundListeners) {
+            listener.accept(message.asMessage());
+        }
+        return message;
+    }
+
+    // ========== IDiscordClient ==========
+
+    public FakeEventDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    public List<IShard> getShards() {
+        return Collections.emptyList();
+    }
+
+    public int getShardCount() {
+        return 1;
+    }
+
+    public String getToken() {
+        return "offline";
+    }
+
+    public void changeUsername(final String name) {
+        ourUser.setName(name);
+    }
+
+    public void changePresence(final StatusType status, final ActivityType activity, final String text) {
+        ourUser.setPresence(new Presence(text, null, status, activity));
+    }
+
+    public void changePresence(final StatusType status) {
+        ourUser.setPresence(new Presence(null, null, status, null));
+    }
+
+    public void changeStreamingPresence(final StatusType status, final String text, final String streamUrl) {
+        ourUser.setPresence(new Presence(text, streamUrl, status, ActivityType.STREAMING));
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean isLoggedIn() {
+        return ready;
+    }
+
+    public void checkReady(final String action) {
+    }
+
+    public void checkLoggedIn(final String action) {
+    }
+
+    public IUser getOurUser() {
+        return ourUser.asUser();
+    }
+
+    public List<IChannel> getChannels(final boolean includePrivate) {
+        final List<IChannel> found = new ArrayList<>();
+        for (FakeChannel channel : channels.values()) {
+            if (channel.getType() == FakeChannel.Type.TEXT || includePrivate && channel.getType() == FakeChannel.Type.PRIVATE) {
+                found.add(channel.asChannel());
+            }
+        }
+        return found;
+    }
+
+    public List<IChannel> getChannels() {
+        return getChannels(false);
+    }
+
+    public IChannel getChannelByID(final long channelID) {
+        final FakeChannel channel = channels.get(channelID);
+        return channel == null || channel.getType() == FakeChannel.Type.VOICE ? null : channel.asChannel();
+    }
+
+    public List<IVoiceChannel> getVoiceChannels() {
+        final List<IVoiceChannel> found = new ArrayList<>();
+        for (FakeGuild guild : guilds.values()) {
+            found.addAll(guild.getVoiceChannels());
+        }
+        return found;
+    }
+
+    public IVoiceChannel getVoiceChannelByID(final long channelID) {
+        final FakeChannel channel = channels.get(channelID);
+        return channel == null || channel.getType() != FakeChannel.Type.VOICE ? null : (IVoiceChannel) channel.asChannel();
+    }
+
+    public List<IGuild> getGuilds() {
+        final List<IGuild> found = new ArrayList<>();
+        for (FakeGuild guild : guilds.values()) {
+            found.add(guild.asGuild());
+        }
+        return found;
+    }
+
+    public IGuild getGuildByID(final long guildID) {
+        final FakeGuild guild = guilds.get(guildID);
+        return guild == null ? null : guild.asGuild();
+    }
+
+    public List<IUser> getUsers() {
+        final List<IUser> found = new ArrayList<>(users.size());
+        for (FakeUser user : users.values()) {
+            found.add(user.asUser());
+        }
+        return found;
+    }
+
+    public IUser getUserByID(final long userID) {
+        final FakeUser user = users.get(userID);
+        return user == null ? null : user.asUser();
+    }
+
+    public IUser fetchUser(final long userID) {
+        return getUserByID(userID);
+    }
+
+    public List<IUser> getUsersByName(final String name) {
+        return getUsersByName(name, false);
+    }
+
+    public List<IUser> getUsersByName(final String name, final boolean ignoreCase) {
+        final List<IUser> found = new ArrayList<>();
+        for (FakeUser user : users.values()) {
+            if (ignoreCase ? user.getName().equalsIgnoreCase(name) : user.getName().equals(name)) {
+                found.add(user.asUser());
+            }
+        }
+        return found;
+    }
+
+    public List<IRole> getRoles() {
+        final List<IRole> found = new ArrayList<>();
+        for (FakeRole role : roles.values()) {
+            found.add(role.asRole());
+        }
+        return found;
+    }
+
+    public IRole getRoleByID(final long roleID) {
+        final FakeRole role = roles.get(roleID);
+        return role == null ? null : role.asRole();
+    }
+
+    public IMessage getMessageByID(final long messageID) {
+        for (FakeChannel channel : channels.values()) {
+            final IMessage message = channel.getMessageByID(messageID);
+            if (message != null) {
+                return message;
+            }
+        }
+        return null;
+    }
+
+    public IPrivateChannel getOrCreatePMChannel(final IUser user) {
+        return (IPrivateChannel) privateChannels.computeIfAbsent(user.getLongID(), userID -> {
+            final FakeChannel channel = new FakeChannel(this, nextID(), FakeChannel.Type.PRIVATE, null, user, user.getName(), 0);
+            registerChannel(channel);
+            return channel;
+        }).asChannel();
+    }
+
+    public String getApplicationClientID() {
+        return ourUser.getStringID();
+    }
+
+    public String getApplicationName() {
+        return ourUser.getName();
+    }
+
+    public String getApplicationDescription() {
+        return "Offline client";
+    }
+
+    public IUser getApplicationOwner() {
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "FakeClient[" + ourUser.getName() + ']';
+    }
+}
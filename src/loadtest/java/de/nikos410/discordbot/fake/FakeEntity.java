@@ -0,0 +1,47 @@
+package de.nikos410.discordbot.fake;
+
+import sx.blah.discord.api.IDiscordClient;
+import sx.blah.discord.api.IShard;
+
+import java.time.Instant;
+
+/**
+ * State shared by all fake Discord objects.
+ */
+abstract class FakeEntity {
+    // 2015-01-01T00:00:00Z, the start of Discord's snowflake IDs
+    static final long DISCORD_EPOCH = 1420070400000L;
+
+    final FakeClient fakeClient;
+    final long id;
+
+    FakeEntity(final FakeClient fakeClient, final long id) {
+        this.fakeClient = fakeClient;
+        this.id = id;
+    }
+
+    public long getLongID() {
+        return id;
+    }
+
+    public String getStringID() {
+        return Long.toString(id);
+    }
+
+    public IDiscordClient getClient() {
+        return fakeClient.getClient();
+    }
+
+    public IShard getShard() {
+        return null;
+    }
+
+    public Instant getCreationDate() {
+        return Instant.ofEpochMilli((id >>> 22) + DISCORD_EPOCH);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id);
+    }
+}
@@ -0,0 +1,117 @@
+package de.nikos410.discordbot.fake;
+
+import sx.blah.discord.api.IDiscordClient;
+import sx.blah.discord.api.events.Event;
+import sx.blah.discord.api.events.EventDispatcher;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Event dispatcher that knows when all listeners have handled an event. Listeners are run on an executor owned by
+ * the dispatcher. While an event is dispatched, every handler that is submitted for it is counted, and once the
+ * last handler has finished the {@link EventListener}s are notified with the time it took.
+ */
+public final class FakeEventDispatcher extends EventDispatcher {
+    /**
+     * Gets notified when all listeners have handled an event.
+     */
+    @FunctionalInterface
+    public interface EventListener {
+        /**
+         * @param event The event.
+         * @param latencyNanos The time from dispatching the event until the last listener finished.
+         */
+        void eventHandled(Event event, long latencyNanos);
+    }
+
+    // The event that is currently dispatched by this thread
+    private final ThreadLocal<PendingEvent> dispatching = new ThreadLocal<>();
+    private final List<EventListener> eventListeners = new CopyOnWriteArrayList<>();
+    private final ThreadPoolExecutor handlerExecutor;
+
+    FakeEventDispatcher(final IDiscordClient client, final int threadCount, final int queueCapacity) {
+        super(client, new ThreadPoolExecutor.CallerRunsPolicy(), 1, threadCount, queueCapacity, 60, TimeUnit.SECONDS);
+
+        // Like Discord4J, the thread that dispatches events handles them itself if the queue is full
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.handlerExecutor = new ThreadPoolExecutor(threadCount, threadCount, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    final Thread thread = new Thread(runnable, "Fake-Event-Handler-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    void addEventListener(final EventListener listener) {
+        eventListeners.add(listener);
+    }
+
+    /**
+     * @return true if no handler is running or waiting to run.
+     */
+    public boolean isIdle() {
+        return handlerExecutor.getActiveCount() == 0 && handlerExecutor.getQueue().isEmpty();
+    }
+
+    @Override
+    public void registerListener(final Object listener) {
+        super.registerListener(this::execute, listener);
+    }
+
+    @Override
+    public void dispatch(final Event event) {
+        final PendingEvent outer = dispatching.get();
+        final PendingEvent pending = new PendingEvent(event);
+        dispatching.set(pending);
+        try {
+            super.dispatch(event);
+        }
+        finally {
+            dispatching.set(outer);
+            pending.finish();
+        }
+    }
+
+    /**
+     * Run a handler. Called by the dispatcher while an event is dispatched.
+     */
+    private void execute(final Runnable handler) {
+        final PendingEvent pending = dispatching.get();
+        if (pending == null) {
+            handlerExecutor.execute(handler);
+            return;
+        }
+
+        pending.handlers.incrementAndGet();
+        handlerExecutor.execute(() -> {
+            try {
+                handler.run();
+            }
+            finally {
+                pending.finish();
+            }
+        });
+    }
+
+    private final class PendingEvent {
+        private final Event event;
+        private final long dispatchTime = System.nanoTime();
+        // One for every running handler and one until dispatching is finished
+        private final AtomicInteger handlers = new AtomicInteger(1);
+
+        private PendingEvent(final Event event) {
+            this.event = event;
+        }
+
+        private void finish() {
+            if (handlers.decrementAndGet() == 0) {
+                final long latency = System.nanoTime() - dispatchTime;
+                for (EventListener listener : eventListeners) {
+                    listener.eventHandled(event, latency);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package de.nikos410.discordbot.fake;
+
+import sx.blah.discord.handle.impl.events.guild.member.UserBanEvent;
+import sx.blah.discord.handle.impl.events.guild.member.UserLeaveEvent;
+import sx.blah.discord.handle.obj.*;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory implementation of {@link IGuild}. The ID of a guild is also the ID of its everyone role.
+ */
+final class FakeGuild extends FakeEntity {
+    private final IGuild guild;
+    private final FakeRole everyoneRole;
+
+    private volatile String name;
+    private volatile long ownerID;
+    private volatile boolean deleted;
+
+    // Member ID -> member
+    private final Map<Long, FakeUser> members = new ConcurrentHashMap<>();
+    // Member ID -> time the member joined
+    private final Map<Long, Instant> joinTimes = new ConcurrentHashMap<>();
+    private final Set<Long> bannedUserIDs = ConcurrentHashMap.newKeySet();
+    private final Map<Long, FakeRole> roles = new ConcurrentHashMap<>();
+    private final Map<Long, FakeChannel> channels = new ConcurrentHashMap<>();
+
+    FakeGuild(final FakeClient fakeClient, final long id, final String name) {
+        super(fakeClient, id);
+        this.name = name;
+        this.guild = FakeProxy.create(IGuild.class, this);
+
+        final EnumSet<Permissions> everyonePermissions = EnumSet.of(Permissions.READ_MESSAGES, Permissions.SEND_MESSAGES,
+                Permissions.READ_MESSAGE_HISTORY, Permissions.ADD_REACTIONS, Permissions.EMBED_LINKS,
+                Permissions.ATTACH_FILES, Permissions.VOICE_CONNECT, Permissions.VOICE_SPEAK);
+        this.everyoneRole = new FakeRole(fakeClient, id, this, "@everyone", 0, everyonePermissions);
+        addRole(everyoneRole);
+    }
+
+    IGuild asGuild() {
+        return guild;
+    }
+
+    void addRole(final FakeRole role) {
+        roles.put(role.getLongID(), role);
+        fakeClient.registerRole(role);
+    }
+
+    void removeRole(final FakeRole role) {
+        roles.remove(role.getLongID());
+        for (FakeUser member : members.values()) {
+            member.removeDeletedRole(role);
+        }
+    }
+
+    void addChannel(final FakeChannel channel) {
+        channels.put(channel.getLongID(), channel);
+        fakeClient.registerChannel(channel);
+    }
+
+    void removeChannel(final FakeChannel channel) {
+        channels.remove(channel.getLongID());
+    }
+
+    void addMember(final FakeUser user, final Instant joinTime) {
+        members.put(user.getLongID(), user);
+        joinTimes.put(user.getLongID(), joinTime);
+        user.joinGuild(this);
+    }
+
+    void removeMember(final FakeUser user) {
+        members.remove(user.getLongID());
+        joinTimes.remove(user.getLongID());
+        user.leaveGuild(this);
+    }
+
+    void setOwner(final long ownerID) {
+        this.ownerID = ownerID;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void changeName(final String name) {
+        this.name = name;
+    }
+
+    public long getOwnerLongID() {
+        return ownerID;
+    }
+
+    public IUser getOwner() {
+        return fakeClient.getUserByID(ownerID);
+    }
+
+    public List<IChannel> getChannels() {
+        final List<IChannel> textChannels = new ArrayList<>();
+        for (FakeChannel channel : sortedChannels()) {
+            if (channel.getType() == FakeChannel.Type.TEXT) {
+                textChannels.add(channel.asChannel());
+            }
+        }
+        return textChannels;
+    }
+
+    public List<IVoiceChannel> getVoiceChannels() {
+        final List<IVoiceChannel> voiceChannels = new ArrayList<>();
+        for (FakeChannel channel : sortedChannels()) {
+            if (channel.getType() == FakeChannel.Type.VOICE) {
+                voiceChannels.add((IVoiceChannel) channel.asChannel());
+            }
+        }
+        return voiceChannels;
+    }
+
+    private List<FakeChannel> sortedChannels() {
+        final List<FakeChannel> sorted = new ArrayList<>(channels.values());
+        sorted.sort(Comparator.comparingInt(FakeChannel::getPosition));
+        return sorted;
+    }
+
+    public IChannel getChannelByID(final long channelID) {
+        final FakeChannel channel = channels.get(channelID);
+        return channel == null || channel.getType() != FakeChannel.Type.TEXT ? null : channel.asChannel();
+    }
+
+    public IVoiceChannel getVoiceChannelByID(final long channelID) {
+        final FakeChannel channel = channels.get(channelID);
+        return channel == null || channel.getType() != FakeChannel.Type.VOICE ? null : (IVoiceChannel) channel.asChannel();
+    }
+
+    public List<IChannel> getChannelsByName(final String channelName) {
+        final List<IChannel> found = new ArrayList<>();
+        for (IChannel channel : getChannels()) {
+            if (channel.getName().equals(channelName)) {
+                found.add(channel);
+            }
+        }
+        return found;
+    }
+
+    public List<IVoiceChannel> getVoiceChannelsByName(final String channelName) {
+        final List<IVoiceChannel> found = new ArrayList<>();
+        for (IVoiceChannel channel : getVoiceChannels()) {
+            if (channel.getName().equals(channelName)) {
+                found.add(channel);
+            }
+        }
+        return found;
+    }
+
+    public IChannel getDefaultChannel() {
+        final List<IChannel> textChannels = getChannels();
+        return textChannels.isEmpty() ? null : textChannels.get(0);
+    }
+
+    public IChannel getSystemChannel() {
+        return getDefaultChannel();
+    }
+
+    public IChannel createChannel(final String channelName) {
+        return fakeClient.createChannel(this, FakeChannel.Type.TEXT, channelName).asChannel();
+    }
+
+    public IVoiceChannel createVoiceChannel(final String channelName) {
+        return (IVoiceChannel) fakeClient.createChannel(this, FakeChannel.Type.VOICE, channelName).asChannel();
+    }
+
+    public List<IUser> getUsers() {
+        final List<IUser> users = new ArrayList<>(members.size());
+        for (FakeUser member : members.values()) {
+            users.add(member.asUser());
+        }
+        return users;
+    }
+
+    public IUser getUserByID(final long userID) {
+        final FakeUser member = members.get(userID);
+        return member == null ? null : member.asUser();
+    }
+
+    public List<IUser> getUsersByName(final String userName) {
+        return getUsersByName(userName, true);
+    }
+
+    public List<IUser> getUsersByName(final String userName, final boolean includeNicknames) {
+        final List<IUser> found = new ArrayList<>();
+        for (FakeUser member : members.values()) {
+            final IUser user = member.asUser();
+            if (user.getName().equals(userName) || includeNicknames && userName.equals(user.getNicknameForGuild(guild))) {
+                found.add(user);
+            }
+        }
+        return found;
+    }
+
+    public List<IUser> getUsersByRole(final IRole role) {
+        final List<IUser> found = new ArrayList<>();
+        for (FakeUser member : members.values()) {
+            if (member.asUser().hasRole(role)) {
+                found.add(member.asUser());
+            }
+        }
+        return found;
+    }
+
+    public int getTotalMemberCount() {
+        return members.size();
+    }
+
+    public Instant getJoinTimeForUser(final IUser user) {
+        return joinTimes.get(user.getLongID());
+    }
+
+    public void setUserNickname(final IUser user, final String nickname) {
+        final FakeUser member = members.get(user.getLongID());
+        if (member != null) {
+            member.setNickname(guild, nickname);
+        }
+    }
+
+    public List<IRole> getRoles() {
+        final List<IRole> sorted = new ArrayList<>();
+        for (FakeRole role : roles.values()) {
+            sorted.add(role.asRole());
+        }
+        sorted.sort(Comparator.comparingInt(IRole::getPosition));
+        return sorted;
+    }
+
+    public List<IRole> getRolesForUser(final IUser user) {
+        return user.getRolesForGuild(guild);
+    }
+
+    public IRole getRoleByID(final long roleID) {
+        final FakeRole role = roles.get(roleID);
+        return role == null ? null : role.asRole();
+    }
+
+    public List<IRole> getRolesByName(final String roleName) {
+        final List<IRole> found = new ArrayList<>();
+        for (FakeRole role : roles.values()) {
+            if (role.getName().equals(roleName)) {
+                found.add(role.asRole());
+            }
+        }
+        return found;
+    }
+
+    public IRole getEveryoneRole() {
+        return everyoneRole.asRole();
+    }
+
+    public IRole createRole() {
+        return fakeClient.createRole(this, "new role", 1, EnumSet.noneOf(Permissions.class)).asRole();
+    }
+
+    public List<IUser> getBannedUsers() {
+        final List<IUser> banned = new ArrayList<>();
+        for (long userID : bannedUserIDs) {
+            final IUser user = fakeClient.getUserByID(userID);
+            if (user != null) {
+                banned.add(user);
+            }
+        }
+        return banned;
+    }
+
+    public void banUser(final IUser user) {
+        banUser(user.getLongID());
+    }
+
+    public void banUser(final IUser user, final int deleteMessagesForDays) {
+        banUser(user.getLongID());
+    }
+
+    public void banUser(final IUser user, final String reason) {
+        banUser(user.getLongID());
+    }
+
+    public void banUser(final IUser user, final String reason, final int deleteMessagesForDays) {
+        banUser(user.getLongID());
+    }
+
+    public void banUser(final long userID, final int deleteMessagesForDays) {
+        banUser(userID);
+    }
+
+    public void banUser(final long userID, final String reason) {
+        banUser(userID);
+    }
+
+    public void banUser(final long userID, final String reason, final int deleteMessagesForDays) {
+        banUser(userID);
+    }
+
+    public void banUser(final long userID) {
+        bannedUserIDs.add(userID);
+
+        final FakeUser member = members.get(userID);
+        if (member != null) {
+            removeMember(member);
+            fakeClient.dispatch(new UserBanEvent(guild, member.asUser()));
+            fakeClient.dispatch(new UserLeaveEvent(guild, member.asUser()));
+        }
+    }
+
+    public void pardonUser(final long userID) {
+        bannedUserIDs.remove(userID);
+    }
+
+    boolean isBanned(final long userID) {
+        return bannedUserIDs.contains(userID);
+    }
+
+    public void kickUser(final IUser user) {
+        final FakeUser member = members.get(user.getLongID());
+        if (member != null) {
+            removeMember(member);
+            fakeClient.dispatch(new UserLeaveEvent(guild, member.asUser()));
+        }
+    }
+
+    public void kickUser(final IUser user, final String reason) {
+        kickUser(user);
+    }
+
+    public void leave() {
+        deleted = true;
+        fakeClient.removeGuild(this);
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public IMessage getMessageByID(final long messageID) {
+        for (FakeChannel channel : channels.values()) {
+            final IMessage message = channel.getMessageByID(messageID);
+            if (message != null) {
+                return message;
+            }
+        }
+        return null;
+    }
+
+    Collection<FakeChannel> getFakeChannels() {
+        return channels.values();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,215 @@
+package de.nikos410.discordbot.fake;
+
+import sx.blah.discord.api.internal.json.objects.EmbedObject;
+import sx.blah.discord.handle.impl.obj.Embed;
+import sx.blah.discord.handle.impl.obj.ReactionEmoji;
+import sx.blah.discord.handle.obj.*;
+
+import java.awt.Color;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory implementation of {@link IMessage}. Mentions are parsed from the content.
+ */
+final class FakeMessage extends FakeEntity {
+    private static final Pattern USER_MENTION = Pattern.compile("<@!?(\\d+)>");
+    private static final Pattern ROLE_MENTION = Pattern.compile("<@&(\\d+)>");
+    private static final Pattern CHANNEL_MENTION = Pattern.compile("<#(\\d+)>");
+
+    private final FakeChannel channel;
+    private final IUser author;
+    private final EmbedObject embed;
+    private final int attachmentCount;
+    private final Instant timestamp;
+    private final IMessage message;
+
+    private volatile String content;
+    private volatile Instant editedTimestamp;
+    private volatile boolean deleted;
+    private final AtomicInteger reactionCount = new AtomicInteger();
+
+    FakeMessage(final FakeClient fakeClient, final long id, final FakeChannel channel, final IUser author,
+                final String content, final EmbedObject embed, final int attachmentCount) {
+        super(fakeClient, id);
+        this.channel = channel;
+        this.author = author;
+        this.content = content;
+        this.embed = embed;
+        this.attachmentCount = attachmentCount;
+        this.timestamp = getCreationDate();
+        this.message = FakeProxy.create(IMessage.class, this);
+    }
+
+    IMessage asMessage() {
+        return message;
+    }
+
+    /**
+     * @return The embed that was sent with the message, or null.
+     */
+    EmbedObject getEmbed() {
+        return embed;
+    }
+
+    int getAttachmentCount() {
+        return attachmentCount;
+    }
+
+    int getReactionCount() {
+        return reactionCount.get();
+    }
+
+    /**
+     * Change the content, like a user editing the message.
+     *
+     * @return A copy of the message before the edit.
+     */
+    IMessage editContent(final String newContent) {
+        final FakeMessage oldMessage = new FakeMessage(fakeClient, id, channel, author, content, embed, attachmentCount);
+        oldMessage.editedTimestamp = editedTimestamp;
+
+        content = newContent;
+        editedTimestamp = Instant.now();
+        return oldMessage.asMessage();
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public String getFormattedContent() {
+        return content;
+    }
+
+    public IChannel getChannel() {
+        return channel.asChannel();
+    }
+
+    public IGuild getGuild() {
+        return channel.getGuild();
+    }
+
+    public IUser getAuthor() {
+        return author;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public Optional<Instant> getEditedTimestamp() {
+        return Optional.ofNullable(editedTimestamp);
+    }
+
+    public List<IEmbed> getEmbeds() {
+        if (embed == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(new Embed(embed.title, embed.type, embed.description, embed.url,
+                embed.thumbnail, embed.provider, null, new Color(embed.color), embed.footer, embed.image, embed.video,
+                embed.author, embed.fields));
+    }
+
+    public List<IMessage.Attachment> getAttachments() {
+        final List<IMessage.Attachment> attachments = new ArrayList<>(attachmentCount);
+        for (int i = 0; i < attachmentCount; i++) {
+            attachments.add(new IMessage.Attachment("attachment" + i, 0, fakeClient.nextID(), ""));
+        }
+        return attachments;
+    }
+
+    public List<IUser> getMentions() {
+        final List<IUser> mentions = new ArrayList<>();
+        final Matcher matcher = USER_MENTION.matcher(content);
+        while (matcher.find()) {
+            final IUser user = fakeClient.getUserByID(Long.parseLong(matcher.group(1)));
+            if (user != null && !mentions.contains(user)) {
+                mentions.add(user);
+            }
+        }
+        return mentions;
+    }
+
+    public List<IRole> getRoleMentions() {
+        final List<IRole> mentions = new ArrayList<>();
+        final Matcher matcher = ROLE_MENTION.matcher(content);
+        while (matcher.find()) {
+            final IRole role = fakeClient.getRoleByID(Long.parseLong(matcher.group(1)));
+            if (role != null && !mentions.contains(role)) {
+                mentions.add(role);
+            }
+        }
+        return mentions;
+    }
+
+    public List<IChannel> getChannelMentions() {
+        final List<IChannel> mentions = new ArrayList<>();
+        final Matcher matcher = CHANNEL_MENTION.matcher(content);
+        while (matcher.find()) {
+            final IChannel mentioned = fakeClient.getChannelByID(Long.parseLong(matcher.group(1)));
+            if (mentioned != null && !mentions.contains(mentioned)) {
+                mentions.add(mentioned);
+            }
+        }
+        return mentions;
+    }
+
+    public boolean mentionsEveryone() {
+        return content.contains("@everyone");
+    }
+
+    public boolean mentionsHere() {
+        return content.contains("@here");
+    }
+
+    public IMessage reply(final String replyContent) {
+        return channel.sendMessage(author.mention() + ", " + replyContent);
+    }
+
+    public IMessage edit(final String newContent) {
+        content = newContent;
+        editedTimestamp = Instant.now();
+        return message;
+    }
+
+    public void addReaction(final ReactionEmoji emoji) {
+        reactionCount.incrementAndGet();
+    }
+
+    public void addReaction(final IEmoji emoji) {
+        reactionCount.incrementAndGet();
+    }
+
+    public void addReaction(final IReaction reaction) {
+        reactionCount.incrementAndGet();
+    }
+
+    public void removeAllReactions() {
+        reactionCount.set(0);
+    }
+
+    public void delete() {
+        deleted = true;
+        channel.removeMessage(this);
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public IMessage.Type getType() {
+        return IMessage.Type.DEFAULT;
+    }
+
+    @Override
+    public String toString() {
+        return content;
+    }
+}
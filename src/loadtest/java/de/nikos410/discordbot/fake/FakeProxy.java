@@ -0,0 +1,127 @@
+package de.nikos410.discordbot.fake;
+
+import sx.blah.discord.util.cache.LongMap;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implements a Discord4J interface by forwarding every call to the public method with the same signature on a
+ * backing object. Methods the backing object does not implement return an empty value (null, 0, false or an empty
+ * collection) and do nothing, so only the parts of the API the bot actually uses have to be implemented.
+ */
+final class FakeProxy implements InvocationHandler {
+    // Interface method -> method on the backing class, per backing class
+    private static final Map<Class<?>, Map<Method, Optional<Method>>> TARGETS = new ConcurrentHashMap<>();
+
+    private final Object target;
+    private final Map<Method, Optional<Method>> targetMethods;
+
+    private FakeProxy(final Object target) {
+        this.target = target;
+        this.targetMethods = TARGETS.computeIfAbsent(target.getClass(), type -> new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Create a proxy that implements an interface using a backing object.
+     *
+     * @param type The interface to implement.
+     * @param target The object the calls are forwarded to.
+     * @param <T> The type of the interface.
+     * @return The proxy.
+     */
+    static <T> T create(final Class<T> type, final Object target) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, new FakeProxy(target)));
+    }
+
+    /**
+     * Get the backing object of a proxy.
+     *
+     * @param proxy A proxy created by {@link #create(Class, Object)}.
+     * @return The backing object.
+     */
+    static Object targetOf(final Object proxy) {
+        return ((FakeProxy) Proxy.getInvocationHandler(proxy)).target;
+    }
+
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            switch (method.getName()) {
+                case "equals": return proxy == args[0];
+                case "hashCode": return target.hashCode();
+                default: return target.toString();
+            }
+        }
+
+        final Optional<Method> targetMethod = targetMethods.computeIfAbsent(method, this::findTargetMethod);
+        if (!targetMethod.isPresent()) {
+            return emptyValue(method.getReturnType());
+        }
+
+        try {
+            return targetMethod.get().invoke(target, args);
+        }
+        catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Optional<Method> findTargetMethod(final Method method) {
+        try {
+            final Method targetMethod = target.getClass().getMethod(method.getName(), method.getParameterTypes());
+            targetMethod.setAccessible(true);
+            return Optional.of(targetMethod);
+        }
+        catch (NoSuchMethodException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Object emptyValue(final Class<?> type) {
+        if (type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == double.class) {
+            return 0D;
+        }
+        if (type == float.class) {
+            return 0F;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == List.class || type == Collection.class) {
+            return Collections.emptyList();
+        }
+        if (type == Set.class) {
+            return Collections.emptySet();
+        }
+        if (type == Optional.class) {
+            return Optional.empty();
+        }
+        if (type == LongMap.class) {
+            return LongMap.emptyMap();
+        }
+        return null;
+    }
+}
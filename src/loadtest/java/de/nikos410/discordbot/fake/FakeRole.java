@@ -0,0 +1,110 @@
+package de.nikos410.discordbot.fake;
+
+import sx.blah.discord.handle.impl.events.guild.role.RoleDeleteEvent;
+import sx.blah.discord.handle.obj.IGuild;
+import sx.blah.discord.handle.obj.IRole;
+import sx.blah.discord.handle.obj.Permissions;
+
+import java.awt.Color;
+import java.util.EnumSet;
+
+/**
+ * In-memory implementation of {@link IRole}.
+ */
+final class FakeRole extends FakeEntity {
+    private final FakeGuild guild;
+    private final IRole role;
+
+    private volatile String name;
+    private volatile int position;
+    private volatile EnumSet<Permissions> permissions;
+    private volatile Color color = Color.GRAY;
+    private volatile boolean mentionable;
+    private volatile boolean hoisted;
+    private volatile boolean deleted;
+
+    FakeRole(final FakeClient fakeClient, final long id, final FakeGuild guild, final String name, final int position,
+             final EnumSet<Permissions> permissions) {
+        super(fakeClient, id);
+        this.guild = guild;
+        this.name = name;
+        this.position = position;
+        this.permissions = EnumSet.copyOf(permissions);
+        this.role = FakeProxy.create(IRole.class, this);
+    }
+
+    IRole asRole() {
+        return role;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public EnumSet<Permissions> getPermissions() {
+        return EnumSet.copyOf(permissions);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isHoisted() {
+        return hoisted;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    public boolean isMentionable() {
+        return mentionable;
+    }
+
+    public IGuild getGuild() {
+        return guild.asGuild();
+    }
+
+    public void changeColor(final Color color) {
+        this.color = color;
+    }
+
+    public void changeHoist(final boolean hoisted) {
+        this.hoisted = hoisted;
+    }
+
+    public void changeName(final String name) {
+        this.name = name;
+    }
+
+    public void changePermissions(final EnumSet<Permissions> permissions) {
+        this.permissions = EnumSet.copyOf(permissions);
+    }
+
+    public void changeMentionable(final boolean mentionable) {
+        this.mentionable = mentionable;
+    }
+
+    public void delete() {
+        deleted = true;
+        guild.removeRole(this);
+        fakeClient.dispatch(new RoleDeleteEvent(role));
+    }
+
+    public boolean isEveryoneRole() {
+        return id == guild.getLongID();
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public String mention() {
+        return isEveryoneRole() ? "@everyone" : "<@&" + id + '>';
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,183 @@
+package de.nikos410.discordbot.fake;
+
+import sx.blah.discord.handle.impl.events.guild.member.UserRoleUpdateEvent;
+import sx.blah.discord.handle.impl.obj.Presence;
+import sx.blah.discord.handle.obj.*;
+
+import java.awt.Color;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory implementation of {@link IUser}. The roles of a user are stored per guild.
+ */
+final class FakeUser extends FakeEntity {
+    private final IUser user;
+    private volatile String name;
+    private final String discriminator;
+    private final boolean bot;
+
+    private volatile IPresence presence = new Presence(null, null, StatusType.OFFLINE, null);
+
+    // Guild ID -> roles of the user on that guild, without the everyone role
+    private final Map<Long, Set<FakeRole>> roles = new ConcurrentHashMap<>();
+    // Guild ID -> nickname
+    private final Map<Long, String> nicknames = new ConcurrentHashMap<>();
+
+    FakeUser(final FakeClient fakeClient, final long id, final String name, final String discriminator, final boolean bot) {
+        super(fakeClient, id);
+        this.name = name;
+        this.discriminator = discriminator;
+        this.bot = bot;
+        this.user = FakeProxy.create(IUser.class, this);
+    }
+
+    IUser asUser() {
+        return user;
+    }
+
+    void setPresence(final IPresence presence) {
+        this.presence = presence;
+    }
+
+    void joinGuild(final FakeGuild guild) {
+        roles.putIfAbsent(guild.getLongID(), ConcurrentHashMap.newKeySet());
+    }
+
+    void leaveGuild(final FakeGuild guild) {
+        roles.remove(guild.getLongID());
+        nicknames.remove(guild.getLongID());
+    }
+
+    /**
+     * Add a role without dispatching an event, used while generating guilds.
+     */
+    void grantRole(final FakeRole role) {
+        roles.computeIfAbsent(role.asRole().getGuild().getLongID(), guildID -> ConcurrentHashMap.newKeySet()).add(role);
+    }
+
+    void removeDeletedRole(final FakeRole role) {
+        final Set<FakeRole> guildRoles = roles.get(role.asRole().getGuild().getLongID());
+        if (guildRoles != null) {
+            guildRoles.remove(role);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    void setName(final String name) {
+        this.name = name;
+    }
+
+    public String getAvatarURL() {
+        return "https://cdn.discordapp.com/embed/avatars/" + Integer.parseInt(discriminator) % 5 + ".png";
+    }
+
+    public IPresence getPresence() {
+        return presence;
+    }
+
+    public String getDisplayName(final IGuild guild) {
+        final String nickname = guild == null ? null : nicknames.get(guild.getLongID());
+        return nickname == null ? name : nickname;
+    }
+
+    public String mention() {
+        return mention(true);
+    }
+
+    public String mention(final boolean mentionWithNickname) {
+        return (mentionWithNickname ? "<@!" : "<@") + id + '>';
+    }
+
+    public String getDiscriminator() {
+        return discriminator;
+    }
+
+    public List<IRole> getRolesForGuild(final IGuild guild) {
+        final List<IRole> guildRoles = new ArrayList<>();
+        final Set<FakeRole> userRoles = roles.get(guild.getLongID());
+        if (userRoles != null) {
+            for (FakeRole role : userRoles) {
+                guildRoles.add(role.asRole());
+            }
+        }
+        guildRoles.add(guild.getEveryoneRole());
+        return guildRoles;
+    }
+
+    public Color getColorForGuild(final IGuild guild) {
+        IRole topRole = guild.getEveryoneRole();
+        for (IRole role : getRolesForGuild(guild)) {
+            if (role.getPosition() > topRole.getPosition()) {
+                topRole = role;
+            }
+        }
+        return topRole.getColor();
+    }
+
+    public EnumSet<Permissions> getPermissionsForGuild(final IGuild guild) {
+        if (guild.getOwnerLongID() == id) {
+            return EnumSet.allOf(Permissions.class);
+        }
+
+        final EnumSet<Permissions> permissions = EnumSet.noneOf(Permissions.class);
+        for (IRole role : getRolesForGuild(guild)) {
+            permissions.addAll(role.getPermissions());
+        }
+        return permissions.contains(Permissions.ADMINISTRATOR) ? EnumSet.allOf(Permissions.class) : permissions;
+    }
+
+    public String getNicknameForGuild(final IGuild guild) {
+        return nicknames.get(guild.getLongID());
+    }
+
+    void setNickname(final IGuild guild, final String nickname) {
+        if (nickname == null) {
+            nicknames.remove(guild.getLongID());
+        }
+        else {
+            nicknames.put(guild.getLongID(), nickname);
+        }
+    }
+
+    public boolean isBot() {
+        return bot;
+    }
+
+    public IPrivateChannel getOrCreatePMChannel() {
+        return fakeClient.getOrCreatePMChannel(user);
+    }
+
+    public void addRole(final IRole role) {
+        changeRoles(role, true);
+    }
+
+    public void removeRole(final IRole role) {
+        changeRoles(role, false);
+    }
+
+    private void changeRoles(final IRole role, final boolean add) {
+        final IGuild guild = role.getGuild();
+        final FakeRole fakeRole = fakeClient.getFakeRole(role.getLongID());
+        final List<IRole> oldRoles = getRolesForGuild(guild);
+
+        final Set<FakeRole> guildRoles = roles.computeIfAbsent(guild.getLongID(), guildID -> ConcurrentHashMap.newKeySet());
+        final boolean changed = add ? guildRoles.add(fakeRole) : guildRoles.remove(fakeRole);
+        if (changed) {
+            fakeClient.dispatch(new UserRoleUpdateEvent(guild, user, oldRoles, getRolesForGuild(guild)));
+        }
+    }
+
+    public boolean hasRole(final IRole role) {
+        final Set<FakeRole> guildRoles = roles.get(role.getGuild().getLongID());
+        return role.isEveryoneRole() || guildRoles != null && guildRoles.contains(fakeClient.getFakeRole(role.getLongID()));
+    }
+
+    @Override
+    public String toString() {
+        return name + '#' + discriminator;
+    }
+}
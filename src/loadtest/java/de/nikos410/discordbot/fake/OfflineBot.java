@@ -0,0 +1,65 @@
+package de.nikos410.discordbot.fake;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sx.blah.discord.handle.obj.IChannel;
+import sx.blah.discord.handle.obj.IGuild;
+import sx.blah.discord.handle.obj.IUser;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the bot offline with generated guilds and runs a few commands. Every message the bot sends is logged.
+ *
+ * Arguments: [guild count] [members per guild]
+ */
+public class OfflineBot {
+    private static final Logger LOG = LoggerFactory.getLogger(OfflineBot.class);
+
+    private static final String[] COMMANDS = {"help", "ping", "uptime", "modules", "roll 2;6", "playing Minecraft",
+            "groups", "commandqueue", "commandstats"};
+
+    public static void main(String[] args) throws InterruptedException {
+        final int guildCount = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        final int membersPerGuild = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+
+        final long start = System.nanoTime();
+        final OfflineEnvironment environment = new OfflineEnvironment(guildCount, membersPerGuild);
+        LOG.info("Generated {} guild(s) with {} members each in {} ms.", guildCount, membersPerGuild,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        final FakeClient fakeClient = environment.getFakeClient();
+        fakeClient.addOutboundListener(message -> LOG.info("Bot -> #{}: {}", message.getChannel().getName(),
+                summarize(message.getContent())));
+
+        environment.start();
+
+        final IUser owner = environment.getOwner();
+        for (IGuild guild : environment.getGuilds()) {
+            final IChannel botChannel = guild.getChannelsByName("bot").get(0);
+            for (String command : COMMANDS) {
+                fakeClient.receiveMessage(botChannel, owner, OfflineEnvironment.PREFIX + command);
+            }
+
+            // A regular member
+            final List<IUser> users = guild.getUsers();
+            fakeClient.receiveMessage(botChannel, users.get(users.size() / 2), OfflineEnvironment.PREFIX + "setbotname Test");
+        }
+
+        // Give the executor time to process the commands
+        TimeUnit.SECONDS.sleep(2);
+        LOG.info("The bot sent {} message(s).", fakeClient.getSentMessageCount());
+
+        environment.getBot().getCommandExecutor().shutdown();
+        System.exit(0);
+    }
+
+    private static String summarize(final String content) {
+        if (content.isEmpty()) {
+            return "<embed>";
+        }
+        final int lineBreak = content.indexOf('\n');
+        return lineBreak < 0 ? content : content.substring(0, lineBreak) + " [...]";
+    }
+}
@@ -0,0 +1,146 @@
+package de.nikos410.discordbot.fake;
+
+import de.nikos410.discordbot.DiscordBot;
+import de.nikos410.discordbot.util.io.IOUtil;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import sx.blah.discord.handle.obj.IChannel;
+import sx.blah.discord.handle.obj.IGuild;
+import sx.blah.discord.handle.obj.IRole;
+import sx.blah.discord.handle.obj.IUser;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs the real bot with all modules against a {@link FakeClient} with generated guilds. The bot reads its
+ * configuration and data from the working directory, so the configuration for the generated guilds is written there
+ * before the bot is started. Use a separate working directory, an existing real configuration is never overwritten.
+ */
+public class OfflineEnvironment {
+    public static final String PREFIX = "%";
+    private static final String OFFLINE_TOKEN = "offline";
+
+    private static final Path CONFIG_PATH = Paths.get("config/config.json");
+    private static final Path DATA_PATH = Paths.get("data");
+
+    // Modules that need network access besides Discord
+    private static final String[] UNLOADED_MODULES = {"LastFm"};
+
+    private final FakeClient fakeClient;
+    private final IUser owner;
+    private final List<IGuild> guilds = new ArrayList<>();
+
+    private DiscordBot bot;
+
+    /**
+     * Create the client and generate the guilds. The bot is not started yet.
+     *
+     * @param guildCount The number of guilds.
+     * @param membersPerGuild The number of members of each guild.
+     */
+    public OfflineEnvironment(final int guildCount, final int membersPerGuild) {
+        this.fakeClient = new FakeClient("Offline-Bot");
+        this.owner = fakeClient.createUser("Owner", false);
+
+        for (int i = 0; i < guildCount; i++) {
+            final IGuild guild = fakeClient.createSyntheticGuild("Server " + (i + 1), membersPerGuild, i);
+            fakeClient.addMember(guild, owner);
+            guilds.add(guild);
+        }
+    }
+
+    /**
+     * Write the configuration, log in the client and start the bot. Returns after all modules are initialized.
+     *
+     * @return The started bot.
+     */
+    public DiscordBot start() {
+        writeConfiguration();
+        fakeClient.login();
+        bot = DiscordBot.startWithClient(fakeClient.getClient());
+        return bot;
+    }
+
+    /**
+     * Write the configuration of the bot and its modules for the generated guilds. The roles "Admin" and
+     * "Moderator" are configured, mutes use the role "Muted" and moderation and user logs are enabled.
+     */
+    public void writeConfiguration() {
+        if (Files.exists(CONFIG_PATH)) {
+            final String existing = IOUtil.readFile(CONFIG_PATH);
+            if (existing == null || !OFFLINE_TOKEN.equals(new JSONObject(existing).optString("token"))) {
+                throw new IllegalStateException("Refusing to overwrite the configuration in " + CONFIG_PATH.toAbsolutePath()
+                        + ". Use a separate working directory.");
+            }
+        }
+
+        final JSONObject config = new JSONObject();
+        config.put("owner", owner.getLongID());
+        config.put("prefix", PREFIX);
+        config.put("unloadedModules", new JSONArray(UNLOADED_MODULES));
+        config.put("token", OFFLINE_TOKEN);
+        IOUtil.writeToFile(CONFIG_PATH, config.toString(4));
+
+        final JSONObject roles = new JSONObject();
+        final JSONObject modStuff = new JSONObject();
+        final JSONObject userLog = new JSONObject();
+        for (IGuild guild : guilds) {
+            final JSONObject guildRoles = new JSONObject();
+            guildRoles.put("adminRole", findRole(guild, "Admin").getLongID());
+            guildRoles.put("modRole", findRole(guild, "Moderator").getLongID());
+            roles.put(guild.getStringID(), guildRoles);
+
+            final JSONObject guildModStuff = new JSONObject();
+            guildModStuff.put("muteRole", findRole(guild, "Muted").getLongID());
+            guildModStuff.put("modlogChannel", findChannel(guild, "modlog").getLongID());
+            modStuff.put(guild.getStringID(), guildModStuff);
+
+            final JSONObject guildUserLog = new JSONObject();
+            guildUserLog.put("on", true);
+            guildUserLog.put("channel", findChannel(guild, "userlog").getLongID());
+            userLog.put(guild.getStringID(), guildUserLog);
+        }
+
+        IOUtil.writeToFile(DATA_PATH.resolve("roles.json"), roles.toString(4));
+        IOUtil.writeToFile(DATA_PATH.resolve("modstuff.json"), modStuff.toString(4));
+        IOUtil.writeToFile(DATA_PATH.resolve("userLog.json"), userLog.toString(4));
+        IOUtil.writeToFile(DATA_PATH.resolve("gameStats.json"), "{}");
+        IOUtil.writeToFile(DATA_PATH.resolve("usergroups.json"), "{}");
+        IOUtil.writeToFile(DATA_PATH.resolve("rules.json"), "{}");
+    }
+
+    private static IRole findRole(final IGuild guild, final String name) {
+        return guild.getRolesByName(name).get(0);
+    }
+
+    private static IChannel findChannel(final IGuild guild, final String name) {
+        return guild.getChannelsByName(name).get(0);
+    }
+
+    public FakeClient getFakeClient() {
+        return fakeClient;
+    }
+
+    /**
+     * @return The configured owner of the bot. The owner is a member of every guild.
+     */
+    public IUser getOwner() {
+        return owner;
+    }
+
+    public List<IGuild> getGuilds() {
+        return Collections.unmodifiableList(guilds);
+    }
+
+    /**
+     * @return The bot, or null if it was not started yet.
+     */
+    public DiscordBot getBot() {
+        return bot;
+    }
+}
@@ -0,0 +1,12 @@
+package de.nikos410.discordbot.loadtest;
+
+/**
+ * A stream of events to replay.
+ */
+@FunctionalInterface
+public interface EventSource {
+    /**
+     * @return The next event, or null if there are no more events.
+     */
+    ReplayEvent next();
+}
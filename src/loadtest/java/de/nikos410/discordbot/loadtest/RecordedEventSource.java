@@ -0,0 +1,216 @@
+package de.nikos410.discordbot.loadtest;
+
+import de.nikos410.discordbot.fake.OfflineEnvironment;
+import de.nikos410.discordbot.framework.CommandWrapper;
+import de.nikos410.discordbot.loadtest.ReplayEvent.Type;
+import de.nikos410.discordbot.util.io.EventLogReader;
+import de.nikos410.discordbot.util.io.EventLogRecord;
+import sx.blah.discord.handle.impl.obj.Presence;
+import sx.blah.discord.handle.obj.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Replays event logs written by the EventRecorder module. The recorded guilds, channels and users are mapped to the
+ * generated ones of an {@link OfflineEnvironment} in the order they appear. Messages are replaced with generated
+ * text of the recorded length, commands are replayed without parameters. The recorded timing is not reproduced, the
+ * rate is controlled by the {@link ReplayHarness}.
+ */
+public class RecordedEventSource implements EventSource {
+    private static final String FILLER = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod " +
+            "tempor incididunt ut labore et dolore magna aliqua. ";
+
+    private final OfflineEnvironment environment;
+    private final Iterator<Path> files;
+    private EventLogReader reader;
+
+    // Recorded ID -> generated entity
+    private final Map<Long, GuildMapping> guilds = new HashMap<>();
+    private final Map<Long, IUser> users = new HashMap<>();
+    // Hash of the command name -> command name
+    private final Map<Integer, String> commands = new HashMap<>();
+    private final List<IUser> members = new ArrayList<>();
+    private int joinedUsers;
+
+    /**
+     * @param environment The started environment.
+     * @param files The event logs in the order they were written.
+     */
+    public RecordedEventSource(final OfflineEnvironment environment, final List<Path> files) {
+        this.environment = environment;
+        this.files = files.iterator();
+
+        for (CommandWrapper command : environment.getBot().getModuleRegistry().getActiveCommands().values()) {
+            commands.put(command.getName().toLowerCase().hashCode(), command.getName());
+        }
+        for (IUser user : environment.getFakeClient().getUsers()) {
+            // Recorded owner commands are not replayed as the owner
+            if (!user.isBot() && !user.equals(environment.getOwner())) {
+                members.add(user);
+            }
+        }
+    }
+
+    @Override
+    public ReplayEvent next() {
+        try {
+            EventLogRecord record;
+            while ((record = nextRecord()) != null) {
+                final ReplayEvent event = toReplayEvent(record);
+                if (event != null) {
+                    return event;
+                }
+            }
+            return null;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private EventLogRecord nextRecord() throws IOException {
+        while (true) {
+            if (reader == null) {
+                if (!files.hasNext()) {
+                    return null;
+                }
+                reader = new EventLogReader(files.next());
+            }
+
+            final EventLogRecord record = reader.read();
+            if (record != null) {
+                return record;
+            }
+            reader.close();
+            reader = null;
+        }
+    }
+
+    private ReplayEvent toReplayEvent(final EventLogRecord record) {
+        final IUser user = getUser(record.getUserID());
+
+        switch (record.getType()) {
+            case PRESENCE_UPDATE: {
+                final StatusType status = StatusType.values()[record.getValue()];
+                final IPresence presence = record.getHash() == 0 ?
+                        new Presence(null, null, status, null) :
+                        new Presence("Spiel-" + Integer.toHexString(record.getHash()), null, status, ActivityType.PLAYING);
+                return new ReplayEvent(Type.PRESENCE_UPDATE, client -> client.updatePresence(user, presence));
+            }
+            case USER_JOIN: {
+                // A new user
+                final GuildMapping guild = getGuild(record.getGuildID());
+                final String name = String.format("Neu%06d", joinedUsers++);
+                return new ReplayEvent(Type.USER_JOIN, client -> {
+                    final IUser newUser = client.createUser(name, false);
+                    users.put(record.getUserID(), newUser);
+                    client.joinGuild(guild.guild, newUser);
+                });
+            }
+            default:
+                break;
+        }
+
+        if (record.getGuildID() == 0) {
+            // Private messages are not replayed
+            return null;
+        }
+        final GuildMapping guild = getGuild(record.getGuildID());
+
+        switch (record.getType()) {
+            case MESSAGE: {
+                final IChannel channel = guild.getTextChannel(record.getChannelID());
+                final String content = generateContent(record);
+                return new ReplayEvent(Type.MESSAGE, client -> guild.recentMessages.put(channel, client.receiveMessage(channel, user, content)));
+            }
+            case MESSAGE_EDIT: {
+                final IChannel channel = guild.getTextChannel(record.getChannelID());
+                final String content = generateContent(record);
+                return new ReplayEvent(Type.MESSAGE_EDIT, client -> {
+                    final IMessage message = guild.recentMessages.get(channel);
+                    if (message == null) {
+                        guild.recentMessages.put(channel, client.receiveMessage(channel, user, content));
+                    }
+                    else {
+                        client.editMessage(message, content);
+                    }
+                });
+            }
+            case USER_LEAVE:
+                return new ReplayEvent(Type.USER_LEAVE, client -> guild.guild.kickUser(user));
+            case VOICE_JOIN: {
+                final IVoiceChannel channel = guild.getVoiceChannel(record.getChannelID());
+                return new ReplayEvent(Type.VOICE_JOIN, client -> client.joinVoiceChannel(user, channel));
+            }
+            case VOICE_MOVE: {
+                final IVoiceChannel oldChannel = guild.getVoiceChannel(record.getPreviousChannelID());
+                final IVoiceChannel newChannel = guild.getVoiceChannel(record.getChannelID());
+                return new ReplayEvent(Type.VOICE_MOVE, client -> client.moveVoiceChannel(user, oldChannel, newChannel));
+            }
+            case VOICE_LEAVE: {
+                final IVoiceChannel channel = guild.getVoiceChannel(record.getChannelID());
+                return new ReplayEvent(Type.VOICE_LEAVE, client -> client.leaveVoiceChannel(user, channel));
+            }
+            default:
+                return null;
+        }
+    }
+
+    private String generateContent(final EventLogRecord record) {
+        if (record.isCommand()) {
+            final String command = commands.get(record.getHash());
+            if (command != null) {
+                return OfflineEnvironment.PREFIX + command;
+            }
+        }
+
+        // Same hash, same text
+        final int length = Math.max(1, Math.min(record.getValue(), IMessage.MAX_MESSAGE_LENGTH));
+        final StringBuilder builder = new StringBuilder(length);
+        int position = Math.floorMod(record.getHash(), FILLER.length());
+        while (builder.length() < length) {
+            builder.append(FILLER.charAt(position));
+            position = (position + 1) % FILLER.length();
+        }
+        return builder.toString();
+    }
+
+    private GuildMapping getGuild(final long recordedID) {
+        return guilds.computeIfAbsent(recordedID, id -> {
+            final List<IGuild> generated = environment.getGuilds();
+            return new GuildMapping(generated.get(guilds.size() % generated.size()));
+        });
+    }
+
+    private IUser getUser(final long recordedID) {
+        return users.computeIfAbsent(recordedID, id -> members.get(users.size() % members.size()));
+    }
+
+    private static final class GuildMapping {
+        private final IGuild guild;
+        private final Map<Long, IChannel> textChannels = new HashMap<>();
+        private final Map<Long, IVoiceChannel> voiceChannels = new HashMap<>();
+        private final Map<IChannel, IMessage> recentMessages = new HashMap<>();
+
+        private GuildMapping(final IGuild guild) {
+            this.guild = guild;
+        }
+
+        private IChannel getTextChannel(final long recordedID) {
+            return textChannels.computeIfAbsent(recordedID, id -> {
+                final List<IChannel> generated = guild.getChannels();
+                return generated.get(textChannels.size() % generated.size());
+            });
+        }
+
+        private IVoiceChannel getVoiceChannel(final long recordedID) {
+            return voiceChannels.computeIfAbsent(recordedID, id -> {
+                final List<IVoiceChannel> generated = guild.getVoiceChannels();
+                return generated.get(voiceChannels.size() % generated.size());
+            });
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package de.nikos410.discordbot.loadtest;
+
+import de.nikos410.discordbot.fake.FakeClient;
+
+import java.util.function.Consumer;
+
+/**
+ * A single event of a replayed stream, e.g. a user writing a message. Replaying the event changes the state of the
+ * {@link FakeClient} and dispatches the corresponding Discord4J event.
+ */
+public final class ReplayEvent {
+    public enum Type {
+        MESSAGE,
+        MESSAGE_EDIT,
+        PRESENCE_UPDATE,
+        USER_JOIN,
+        USER_LEAVE,
+        VOICE_JOIN,
+        VOICE_MOVE,
+        VOICE_LEAVE
+    }
+
+    private final Type type;
+    private final Consumer<FakeClient> action;
+
+    public ReplayEvent(final Type type, final Consumer<FakeClient> action) {
+        this.type = type;
+        this.action = action;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Replay the event.
+     *
+     * @param client The client to dispatch the event on.
+     */
+    public void replay(final FakeClient client) {
+        action.accept(client);
+    }
+}
@@ -0,0 +1,236 @@
+package de.nikos410.discordbot.loadtest;
+
+import de.nikos410.discordbot.DiscordBot;
+import de.nikos410.discordbot.fake.FakeClient;
+import de.nikos410.discordbot.fake.OfflineEnvironment;
+import de.nikos410.discordbot.framework.CommandExecutor;
+import de.nikos410.discordbot.framework.metrics.CommandStats;
+import de.nikos410.discordbot.framework.metrics.LatencyHistogram;
+import de.nikos410.discordbot.util.io.EventLogReader;
+import de.nikos410.discordbot.util.io.PersistenceManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays gateway events through the bot at a controlled rate and reports the throughput, the latency per event
+ * type, the messages the bot sent and the heap growth. The latency of an event is the time from dispatching it until
+ * all listeners of the bot have handled it. Commands are only submitted to the command executor by the listeners, so
+ * their execution is reported separately.
+ *
+ * Arguments: [guild count] [members per guild] [event count] [events per second, 0 for unlimited] [event log directory]
+ *
+ * Without an event log directory, a {@link SyntheticEventSource} is used. Otherwise the event logs written by the
+ * EventRecorder module are replayed, up to the given number of events.
+ */
+public class ReplayHarness {
+    private static final Logger LOG = LoggerFactory.getLogger(ReplayHarness.class);
+
+    private static final long DRAIN_TIMEOUT_SECONDS = 60;
+
+    private final OfflineEnvironment environment;
+    private final FakeClient fakeClient;
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    // Simple name of the event class -> latency
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final AtomicLong handledEvents = new AtomicLong();
+    private final AtomicLong textMessages = new AtomicLong();
+    private final AtomicLong embedMessages = new AtomicLong();
+    private final AtomicLong fileMessages = new AtomicLong();
+
+    private long peakHeap;
+
+    public ReplayHarness(final OfflineEnvironment environment) {
+        this.environment = environment;
+        this.fakeClient = environment.getFakeClient();
+
+        fakeClient.addEventListener((event, latencyNanos) -> {
+            latencies.computeIfAbsent(event.getClass().getSimpleName(), key -> new LatencyHistogram())
+                    .record(latencyNanos, TimeUnit.NANOSECONDS);
+            handledEvents.incrementAndGet();
+        });
+        fakeClient.addOutboundListener(message -> {
+            if (message.getAttachments().isEmpty() && message.getEmbeds().isEmpty()) {
+                textMessages.incrementAndGet();
+            }
+            else if (message.getAttachments().isEmpty()) {
+                embedMessages.incrementAndGet();
+            }
+            else {
+                fileMessages.incrementAndGet();
+            }
+        });
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        final int guildCount = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        final int membersPerGuild = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        final long eventCount = args.length > 2 ? Long.parseLong(args[2]) : 100000;
+        final int eventsPerSecond = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        final Path eventLogDirectory = args.length > 4 ? Paths.get(args[4]).toAbsolutePath() : null;
+
+        final OfflineEnvironment environment = new OfflineEnvironment(guildCount, membersPerGuild);
+        final ReplayHarness harness = new ReplayHarness(environment);
+        environment.start();
+
+        final EventSource source;
+        if (eventLogDirectory == null) {
+            source = new SyntheticEventSource(environment, eventCount, 42);
+        }
+        else {
+            final List<Path> files = EventLogReader.findFiles(eventLogDirectory);
+            LOG.info("Replaying {} event log(s) from \"{}\".", files.size(), eventLogDirectory);
+            source = limit(new RecordedEventSource(environment, files), eventCount);
+        }
+        harness.run(source, eventsPerSecond);
+
+        environment.getBot().getCommandExecutor().shutdown();
+        System.exit(0);
+    }
+
+    /**
+     * Replay all events of a source and log the results.
+     *
+     * @param source The events to replay.
+     * @param eventsPerSecond The rate at which the events are replayed, 0 to replay them as fast as possible.
+     */
+    public void run(final EventSource source, final int eventsPerSecond) throws InterruptedException {
+        // Discard the events from starting the bot
+        waitForDrain();
+        latencies.clear();
+        handledEvents.set(0);
+        final long sentBefore = fakeClient.getSentMessageCount();
+        final PersistenceManager persistence = environment.getBot().getPersistenceManager();
+        final long markedDirtyBefore = persistence.getMarkedDirtyCount();
+        final long flushesBefore = persistence.getFlushCount();
+        final long bytesBefore = persistence.getBytesWritten();
+
+        System.gc();
+        final long heapBefore = usedHeap();
+        peakHeap = heapBefore;
+
+        final long interval = eventsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / eventsPerSecond : 0;
+        final Map<ReplayEvent.Type, Long> replayed = new EnumMap<>(ReplayEvent.Type.class);
+
+        final long start = System.nanoTime();
+        long next = start;
+        long count = 0;
+        ReplayEvent event;
+        while ((event = source.next()) != null) {
+            if (interval > 0) {
+                next += interval;
+                final long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+
+            event.replay(fakeClient);
+            replayed.merge(event.getType(), 1L, Long::sum);
+
+            if (++count % 1000 == 0) {
+                samplePeakHeap();
+            }
+        }
+        final long replayTime = System.nanoTime() - start;
+
+        final boolean drained = waitForDrain();
+        final long totalTime = System.nanoTime() - start;
+        samplePeakHeap();
+        final long heapAfter = usedHeap();
+
+        LOG.info("Replayed {} events in {} ms ({} events/s, {} events/s until all were handled){}", count,
+                TimeUnit.NANOSECONDS.toMillis(replayTime), perSecond(count, replayTime), perSecond(count, totalTime),
+                drained ? "." : ", timed out while waiting for the handlers!");
+        for (Map.Entry<ReplayEvent.Type, Long> entry : replayed.entrySet()) {
+            LOG.info("  {}: {}", entry.getKey(), entry.getValue());
+        }
+
+        LOG.info("Latency per gateway event:");
+        final List<String> eventTypes = new ArrayList<>(latencies.keySet());
+        Collections.sort(eventTypes);
+        for (String eventType : eventTypes) {
+            final LatencyHistogram histogram = latencies.get(eventType);
+            LOG.info(String.format("  %-30s %8d events | p50 %8.3f | p90 %8.3f | p99 %8.3f | max. %8.3f ms", eventType,
+                    histogram.getCount(), histogram.getPercentileMillis(50), histogram.getPercentileMillis(90),
+                    histogram.getPercentileMillis(99), histogram.getMaxMillis()));
+        }
+
+        final DiscordBot bot = environment.getBot();
+        long executed = 0;
+        long rejected = 0;
+        for (CommandStats stats : bot.getCommandMetrics().getAll()) {
+            executed += stats.getExecutedCount();
+            rejected += stats.getRejectedCount();
+        }
+        final CommandExecutor executor = bot.getCommandExecutor();
+        LOG.info("Commands: {} executed, {} rejected, average wait in queue {} ms, max. {} ms", executed, rejected,
+                String.format("%.3f", executor.getAverageWaitMillis()), String.format("%.3f", executor.getMaxWaitMillis()));
+
+        LOG.info("Sent messages: {} ({} text, {} embed, {} file)", fakeClient.getSentMessageCount() - sentBefore,
+                textMessages.get(), embedMessages.get(), fileMessages.get());
+        LOG.info("Data files: {} changes, {} writes, {} KiB written, mean write {} ms",
+                persistence.getMarkedDirtyCount() - markedDirtyBefore, persistence.getFlushCount() - flushesBefore,
+                (persistence.getBytesWritten() - bytesBefore) / 1024, String.format("%.3f", persistence.getMeanFlushMillis()));
+        LOG.info("Heap: {} MiB before, {} MiB after, {} MiB peak", mebibytes(heapBefore), mebibytes(heapAfter),
+                mebibytes(peakHeap));
+    }
+
+    private static EventSource limit(final EventSource source, final long eventCount) {
+        final AtomicLong remaining = new AtomicLong(eventCount);
+        return () -> remaining.getAndDecrement() > 0 ? source.next() : null;
+    }
+
+    /**
+     * Wait until every dispatched event was handled, the command executor is idle and no more messages are sent.
+     *
+     * @return false if the timeout was reached.
+     */
+    private boolean waitForDrain() throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DRAIN_TIMEOUT_SECONDS);
+        final CommandExecutor executor = environment.getBot().getCommandExecutor();
+
+        long lastHandled = -1;
+        long lastSent = -1;
+        while (System.nanoTime() < deadline) {
+            final long handled = handledEvents.get();
+            // Messages are sent asynchronously
+            final long sent = fakeClient.getSentMessageCount();
+            if (handled == lastHandled && sent == lastSent && executor.getQueuedCount() == 0
+                    && executor.getActiveQueueCount() == 0 && fakeClient.getDispatcher().isIdle()) {
+                return true;
+            }
+            lastHandled = handled;
+            lastSent = sent;
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        return false;
+    }
+
+    private void samplePeakHeap() {
+        peakHeap = Math.max(peakHeap, usedHeap());
+    }
+
+    private long usedHeap() {
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static long perSecond(final long count, final long nanos) {
+        return nanos == 0 ? 0 : count * TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    private static long mebibytes(final long bytes) {
+        return bytes / (1024 * 1024);
+    }
+}
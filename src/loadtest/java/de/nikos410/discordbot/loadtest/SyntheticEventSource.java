@@ -0,0 +1,163 @@
+package de.nikos410.discordbot.loadtest;
+
+import de.nikos410.discordbot.fake.OfflineEnvironment;
+import de.nikos410.discordbot.loadtest.ReplayEvent.Type;
+import sx.blah.discord.handle.impl.obj.Presence;
+import sx.blah.discord.handle.obj.*;
+
+import java.util.*;
+
+/**
+ * Generates a realistic stream of gateway events for the guilds of an {@link OfflineEnvironment}. Most events are
+ * chat messages and presence updates, a small part of the messages are commands. Voice events are consistent, i.e.
+ * only users that are connected leave or switch channels.
+ */
+public class SyntheticEventSource implements EventSource {
+    private static final String[] CHAT = {
+            "Hallo zusammen!",
+            "Weiß jemand, wann der Patch rauskommt?",
+            "lol",
+            "Ich habe gerade 15% Rabatt bekommen",
+            "Schaut mal in r/de vorbei",
+            "Kann mir jemand bei meiner Steuererklärung helfen? Ich verstehe Anlage N nicht so ganz.",
+            "@everyone schaut euch das an",
+            ":thinking:",
+            "Gute Nacht!",
+            "Hat jemand Lust auf eine Runde?"
+    };
+    private static final String[] COMMANDS = {"ping", "uptime", "help", "roll 3;6", "playing Minecraft", "groups",
+            "modules", "git", "setbotname Spam"};
+    private static final String[] GAMES = {"Minecraft", "League of Legends", "Factorio", "Dota 2", "Rocket League"};
+
+    // Cumulative weights per 1000 events
+    private static final int MESSAGE_WEIGHT = 700;
+    private static final int EDIT_WEIGHT = MESSAGE_WEIGHT + 30;
+    private static final int PRESENCE_WEIGHT = EDIT_WEIGHT + 220;
+    private static final int JOIN_WEIGHT = PRESENCE_WEIGHT + 10;
+
+    private static final int RECENT_MESSAGE_COUNT = 64;
+
+    private final Random random;
+    private final long eventCount;
+    private final List<GuildState> guilds = new ArrayList<>();
+    private final IMessage[] recentMessages = new IMessage[RECENT_MESSAGE_COUNT];
+
+    private long generated;
+    private int joinedUsers;
+
+    /**
+     * @param environment The environment with the guilds.
+     * @param eventCount The number of events to generate.
+     * @param seed The seed for the random generator.
+     */
+    public SyntheticEventSource(final OfflineEnvironment environment, final long eventCount, final long seed) {
+        this.random = new Random(seed);
+        this.eventCount = eventCount;
+
+        for (IGuild guild : environment.getGuilds()) {
+            guilds.add(new GuildState(guild));
+        }
+    }
+
+    @Override
+    public ReplayEvent next() {
+        if (generated >= eventCount) {
+            return null;
+        }
+        generated++;
+
+        final GuildState guild = guilds.get(random.nextInt(guilds.size()));
+        final IUser user = guild.members.get(random.nextInt(guild.members.size()));
+        final int kind = random.nextInt(1000);
+
+        if (kind < MESSAGE_WEIGHT) {
+            return message(guild, user);
+        }
+        if (kind < EDIT_WEIGHT) {
+            final IMessage message = recentMessages[random.nextInt(RECENT_MESSAGE_COUNT)];
+            if (message != null) {
+                return new ReplayEvent(Type.MESSAGE_EDIT, client -> client.editMessage(message, message.getContent() + " (bearbeitet)"));
+            }
+            return message(guild, user);
+        }
+        if (kind < PRESENCE_WEIGHT) {
+            return presence(user);
+        }
+        if (kind < JOIN_WEIGHT) {
+            final String name = String.format("Neu%06d", joinedUsers++);
+            return new ReplayEvent(Type.USER_JOIN, client -> {
+                final IUser newUser = client.createUser(name, false);
+                client.joinGuild(guild.guild, newUser);
+            });
+        }
+        return voice(guild, user);
+    }
+
+    private ReplayEvent message(final GuildState guild, final IUser user) {
+        final IChannel channel = guild.textChannels.get(random.nextInt(guild.textChannels.size()));
+        final String content = random.nextInt(100) < 8 ?
+                OfflineEnvironment.PREFIX + COMMANDS[random.nextInt(COMMANDS.length)] :
+                CHAT[random.nextInt(CHAT.length)];
+        final int slot = random.nextInt(RECENT_MESSAGE_COUNT);
+
+        return new ReplayEvent(Type.MESSAGE, client -> recentMessages[slot] = client.receiveMessage(channel, user, content));
+    }
+
+    private ReplayEvent presence(final IUser user) {
+        final IPresence presence;
+        final int kind = random.nextInt(10);
+        if (kind < 4) {
+            presence = new Presence(GAMES[random.nextInt(GAMES.length)], null, StatusType.ONLINE, ActivityType.PLAYING);
+        }
+        else if (kind < 7) {
+            presence = new Presence(null, null, StatusType.ONLINE, null);
+        }
+        else if (kind < 8) {
+            presence = new Presence(null, null, StatusType.IDLE, null);
+        }
+        else {
+            presence = new Presence(null, null, StatusType.OFFLINE, null);
+        }
+
+        return new ReplayEvent(Type.PRESENCE_UPDATE, client -> client.updatePresence(user, presence));
+    }
+
+    private ReplayEvent voice(final GuildState guild, final IUser user) {
+        final IVoiceChannel newChannel = guild.voiceChannels.get(random.nextInt(guild.voiceChannels.size()));
+        final IVoiceChannel oldChannel = guild.voiceStates.get(user);
+
+        if (oldChannel == null) {
+            guild.voiceStates.put(user, newChannel);
+            return new ReplayEvent(Type.VOICE_JOIN, client -> client.joinVoiceChannel(user, newChannel));
+        }
+        if (random.nextBoolean() && !oldChannel.equals(newChannel)) {
+            guild.voiceStates.put(user, newChannel);
+            return new ReplayEvent(Type.VOICE_MOVE, client -> client.moveVoiceChannel(user, oldChannel, newChannel));
+        }
+        guild.voiceStates.remove(user);
+        return new ReplayEvent(Type.VOICE_LEAVE, client -> client.leaveVoiceChannel(user, oldChannel));
+    }
+
+    private static final class GuildState {
+        private final IGuild guild;
+        private final List<IUser> members;
+        private final List<IChannel> textChannels;
+        private final List<IVoiceChannel> voiceChannels;
+        // User -> voice channel the user is connected to
+        private final Map<IUser, IVoiceChannel> voiceStates = new HashMap<>();
+
+        private GuildState(final IGuild guild) {
+            this.guild = guild;
+            this.textChannels = guild.getChannels();
+            this.voiceChannels = guild.getVoiceChannels();
+
+            final List<IUser> users = new ArrayList<>();
+            for (IUser user : guild.getUsers()) {
+                if (!user.isBot()) {
+                    users.add(user);
+                }
+            }
+            this.members = users;
+        }
+    }
+}
@@ -1,21 +1,29 @@
 package de.nikos410.discordbot;
 
 import de.nikos410.discordbot.exception.InitializationException;
+import de.nikos410.discordbot.framework.CircuitBreaker;
+import de.nikos410.discordbot.framework.CommandDispatcher;
+import de.nikos410.discordbot.framework.CommandExecutor;
+import de.nikos410.discordbot.framework.CommandInvoker;
 import de.nikos410.discordbot.framework.CommandModule;
 import de.nikos410.discordbot.framework.CommandWrapper;
+import de.nikos410.discordbot.framework.ModuleIndex;
+import de.nikos410.discordbot.framework.ModuleRegistry;
 import de.nikos410.discordbot.framework.ModuleWrapper;
+import de.nikos410.discordbot.framework.ParameterTokenizer;
 import de.nikos410.discordbot.framework.PermissionLevel;
-import de.nikos410.discordbot.framework.annotations.CommandParameter;
-import de.nikos410.discordbot.framework.annotations.CommandSubscriber;
+import de.nikos410.discordbot.framework.PermissionResolver;
+import de.nikos410.discordbot.framework.RateLimiter;
+import de.nikos410.discordbot.framework.metrics.CommandMetrics;
+import de.nikos410.discordbot.framework.metrics.CommandStats.Rejection;
 import de.nikos410.discordbot.modules.BotSetup;
-import de.nikos410.discordbot.service.DiscordMessageService;
 import de.nikos410.discordbot.service.impl.DiscordMessageServiceImpl;
 import de.nikos410.discordbot.util.discord.Authorization;
 import de.nikos410.discordbot.util.discord.UserUtils;
 import de.nikos410.discordbot.util.io.IOUtil;
+import de.nikos410.discordbot.util.io.PersistenceManager;
 import org.json.JSONArray;
 import org.json.JSONObject;
-import org.reflections.Reflections;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sx.blah.discord.api.IDiscordClient;
@@ -27,17 +35,18 @@ import sx.blah.discord.handle.impl.events.guild.channel.message.MessageUpdateEve
 import sx.blah.discord.handle.obj.*;
 import sx.blah.discord.util.DiscordException;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import static de.nikos410.discordbot.framework.ModuleWrapper.ModuleStatus;
 
@@ -52,14 +61,21 @@ public class DiscordBot {
     private static final Path ROLES_PATH = Paths.get("data/roles.json");
     public final JSONObject configJSON;
 
-    private static final DiscordMessageService MESSAGE_SERVICE = new DiscordMessageServiceImpl();
+    private static final DiscordMessageServiceImpl MESSAGE_SERVICE = new DiscordMessageServiceImpl();
 
     private final Map<String, ModuleWrapper> modules = new HashMap<>();
-    private final Map<String, CommandWrapper> acticeCommands = new HashMap<>();
+    private volatile ModuleRegistry registry;
+    private final CommandExecutor commandExecutor;
+    private final CommandDispatcher commandDispatcher;
+    private final PermissionResolver permissionResolver;
+    private final CommandMetrics commandMetrics = new CommandMetrics();
+    private final PersistenceManager persistenceManager;
 
     private final String prefix;
     private final long ownerID;
     private IDiscordClient client;
+    private ModuleIndex moduleIndex;
+    private final CountDownLatch readyLatch = new CountDownLatch(1);
 
     /**
      * Sets up the bot, loads configuration.
@@ -72,6 +88,8 @@ public class DiscordBot {
         }
         this.configJSON = new JSONObject(configFileContent);
         LOG.info("Loaded configuration with {} entries.", configJSON.keySet().size());
+        IOUtil.setBackupCount(configJSON.optInt("fileBackups", 3));
+        IOUtil.setPrettyPrintJSON(configJSON.optBoolean("prettyPrintData", false));
 
         // Read roles file
         final String rolesFileContent = IOUtil.readFile(ROLES_PATH);
@@ -86,10 +104,30 @@ public class DiscordBot {
             throw new InitializationException("No prefix configured.", DiscordBot.class);
         }
         this.prefix = configJSON.getString("prefix");
+        this.registry = new ModuleRegistry(prefix, Collections.emptyMap());
         if (!configJSON.has("owner")) {
             throw new InitializationException("No owner configured.", DiscordBot.class);
         }
         this.ownerID = configJSON.getLong("owner");
+        this.permissionResolver = new PermissionResolver(ownerID, rolesJSON);
+
+        // Commands are executed outside of the event dispatcher threads
+        this.commandExecutor = new CommandExecutor(configJSON.optInt("commandThreads", 4),
+                configJSON.optInt("commandQueueLimit", 25),
+                configJSON.optBoolean("virtualThreads", false));
+        this.commandDispatcher = new CommandDispatcher(ownerID,
+                (queueID, command, message) -> commandExecutor.submit(queueID, () -> processCommand(command, message)),
+                (command, rejection) -> commandMetrics.get(command.getName()).recordRejection(rejection));
+
+        // Messages to log channels are merged during bursts
+        MESSAGE_SERVICE.setLogCoalescing(configJSON.optLong("logCoalescingWindow", 2000),
+                configJSON.optInt("logCoalescingMaxLength", 2000),
+                configJSON.optInt("logCoalescingMaxFields", 25));
+        MESSAGE_SERVICE.setSanitizeRoleMentions(configJSON.optBoolean("sanitizeRoleMentions", false));
+
+        // Module data is written in the background, the remaining changes are written when the JVM exits
+        this.persistenceManager = new PersistenceManager(configJSON.optLong("persistenceFlushInterval", 10000));
+        Runtime.getRuntime().addShutdownHook(new Thread(persistenceManager::shutdown, "Persistence-Shutdown"));
     }
 
     private void start() {
@@ -99,22 +137,48 @@ public class DiscordBot {
         }
         final String token = configJSON.getString("token");
         // Authorize using token
+        final IDiscordClient client;
         try {
-            this.client = Authorization.createClient(token, true);
+            client = Authorization.createClient(token, true);
         }
         catch (DiscordException e) {
             throw new InitializationException("Could not log in client.", e, DiscordBot.class);
         }
         LOG.info("Bot authorized.");
 
+        start(client);
+    }
+
+    /**
+     * Start the bot with a client that was created somewhere else instead of logging in with the configured token,
+     * e.g. an offline client for load tests. Modules are only initialized completely once the client is ready.
+     *
+     * @param client The client to use.
+     * @return The started bot.
+     */
+    public static DiscordBot startWithClient(final IDiscordClient client) {
+        final DiscordBot bot = new DiscordBot();
+        bot.start(client);
+        return bot;
+    }
+
+    private void start(final IDiscordClient client) {
+        this.client = client;
+
         // Register Eventlistener
         try {
             this.client.getDispatcher().registerListener(this);
+            this.client.getDispatcher().registerListener(this.permissionResolver);
         }
         catch (NullPointerException e) {
             throw new InitializationException("Could not get EventDispatcher.", e, DiscordBot.class);
         }
 
+        // The ReadyEvent might have been dispatched before the listener was registered
+        if (this.client.isReady()) {
+            readyLatch.countDown();
+        }
+
         // Initialize Modules
         discoverModules();
         loadModules();
@@ -125,65 +189,186 @@ public class DiscordBot {
     }
 
     /**
-     * Finds all classes in the package {@link de.nikos410.discordbot.modules} that extend {@link CommandModule}
-     * and populates the module map using the module names as keys.
+     * Loads the {@link ModuleIndex} that was generated at compile time and populates the module map with all modules
+     * in the package {@link de.nikos410.discordbot.modules}, using the module names as keys.
      */
     private void discoverModules() {
-        // Search in package 'de.nikos410.discordbot.modules'
-        final Reflections reflections = new Reflections("de.nikos410.discordbot.modules");
-        // Find classes that are subtypes of CommandModule
-        final Set<Class<? extends CommandModule>> foundModuleClasses = reflections.getSubTypesOf(CommandModule.class);
+        try {
+            this.moduleIndex = ModuleIndex.load();
+        }
+        catch (IOException e) {
+            throw new InitializationException("Could not load module index.", e, DiscordBot.class);
+        }
+
+        for (String moduleClassName : moduleIndex.getModuleClassNames()) {
+            final Class<? extends CommandModule> moduleClass;
+            try {
+                moduleClass = Class.forName(moduleClassName).asSubclass(CommandModule.class);
+            }
+            catch (ClassNotFoundException | ClassCastException e) {
+                LOG.error("Module class \"{}\" from the module index could not be loaded. Skipping.", moduleClassName, e);
+                continue;
+            }
 
-        for (Class<? extends CommandModule> currentModuleClass : foundModuleClasses) {
-            final ModuleWrapper module = new ModuleWrapper(currentModuleClass);
+            final ModuleWrapper module = new ModuleWrapper(moduleClass);
             modules.put(module.getName(), module);
         }
-
     }
 
     /**
-     * Loads modules from classes that are located in the package 'de.nikos410.discordbot.modules' and are annotated
-     * with @CommandModule.
+     * Loads modules from classes that are located in the package 'de.nikos410.discordbot.modules'. Modules are
+     * initialized in parallel, a module is only initialized after the modules it depends on.
      */
     private void loadModules() {
         LOG.debug("Loading modules.");
 
         LOG.info("Found {} total module(s).", this.modules.size());
 
-        // Load modules from all found classes
-        for (ModuleWrapper wrapper : this.modules.values()) {
-            try {
-                loadModule(wrapper);
-            } catch (Exception e) {
-                LOG.error("Failed to load module " + wrapper.getName() + ".", e);
-                wrapper.setStatus(ModuleStatus.FAILED);
-            }
-        }
+        final ForkJoinPool pool = new ForkJoinPool();
+        try {
+            // Load modules from all found classes
+            runModulePhase("init", pool, wrapper -> true, wrapper -> {
+                try {
+                    loadModule(wrapper);
+                }
+                catch (Exception e) {
+                    LOG.error("Failed to load module " + wrapper.getName() + ".", e);
+                    wrapper.setStatus(ModuleStatus.FAILED);
+                }
+            });
 
-        // Wait until the bot is ready to run initializations
-        LOG.debug("Waiting until the bot is ready.");
-        while (!client.isReady()) {
+            // Wait until the bot is ready to run initializations
+            LOG.debug("Waiting until the bot is ready.");
+            final long waitStart = System.nanoTime();
             try {
-                TimeUnit.MILLISECONDS.sleep(100);
+                readyLatch.await();
             }
-            catch(InterruptedException e) {
-                LOG.warn("Sleep was interrupted");
+            catch (InterruptedException e) {
+                LOG.warn("Waiting for the bot to be ready was interrupted");
                 Thread.currentThread().interrupt();
             }
+            LOG.info("Waited {} ms for the bot to be ready.", millisSince(waitStart));
+
+            LOG.debug("Bot is ready. Running Inits.");
+            runModulePhase("initWhenReady", pool, wrapper -> wrapper.getStatus() == ModuleStatus.ACTIVE, wrapper -> {
+                try {
+                    wrapper.getInstance().initWhenReady();
+                }
+                catch (Exception e) {
+                    LOG.error("Failed to initialize module " + wrapper.getName() + ".", e);
+                    client.getDispatcher().unregisterListener(wrapper.getInstance());
+                    wrapper.setStatus(ModuleStatus.FAILED);
+                }
+            });
+        }
+        finally {
+            pool.shutdown();
         }
 
-        LOG.debug("Bot is ready. Running Inits.");
+        // Create command map
+        this.updateRegistry();
+        LOG.info("{} module(s) with {} command(s) active.", registry.getLoadedModules().size(), registry.getActiveCommands().size());
+    }
+
+    /**
+     * Run a startup phase for all modules in parallel and wait for it to finish. The phase is run for a module after
+     * it was run for all modules that module depends on. If one of the dependencies is not active after its phase,
+     * the module is marked as failed instead.
+     *
+     * @param phaseName The name of the phase, used for logging
+     * @param pool The pool in which to run the phase
+     * @param filter Only modules that match this filter take part in the phase
+     * @param action The action to run for each module
+     */
+    private void runModulePhase(final String phaseName, final ExecutorService pool,
+                                final Predicate<ModuleWrapper> filter, final Consumer<ModuleWrapper> action) {
+        final long phaseStart = System.nanoTime();
+
+        final Map<ModuleWrapper, CompletableFuture<Void>> futures = new HashMap<>();
         for (ModuleWrapper wrapper : this.modules.values()) {
-            final CommandModule module = wrapper.getInstance();
-            if (wrapper.getStatus().equals(ModuleStatus.ACTIVE)) {
-                module.initWhenReady();
+            scheduleModulePhase(wrapper, phaseName, pool, filter, action, futures, new HashSet<>());
+        }
+        CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+
+        LOG.info("Phase '{}' finished for all modules in {} ms.", phaseName, millisSince(phaseStart));
+    }
+
+    /**
+     * Schedule a startup phase for a module after the phase has finished for the modules it depends on.
+     *
+     * @return The future of the phase for this module, or null if the module is part of a dependency cycle
+     */
+    private CompletableFuture<Void> scheduleModulePhase(final ModuleWrapper wrapper, final String phaseName,
+                                                        final ExecutorService pool, final Predicate<ModuleWrapper> filter,
+                                                        final Consumer<ModuleWrapper> action,
+                                                        final Map<ModuleWrapper, CompletableFuture<Void>> futures,
+                                                        final Set<ModuleWrapper> path) {
+        final CompletableFuture<Void> existing = futures.get(wrapper);
+        if (existing != null) {
+            return existing;
+        }
+
+        if (!path.add(wrapper)) {
+            LOG.error("Module '{}' has a circular dependency.", wrapper.getName());
+            return null;
+        }
+
+        // Schedule the dependencies first
+        final List<ModuleWrapper> dependencies = new ArrayList<>();
+        final List<CompletableFuture<Void>> dependencyFutures = new ArrayList<>();
+        boolean dependenciesValid = true;
+        for (String dependencyClassName : moduleIndex.getDependencies(wrapper.getModuleClass())) {
+            final ModuleWrapper dependency = findModuleByClassName(dependencyClassName);
+            final CompletableFuture<Void> dependencyFuture = dependency == null ? null :
+                    scheduleModulePhase(dependency, phaseName, pool, filter, action, futures, path);
+
+            if (dependencyFuture == null) {
+                LOG.error("Dependency '{}' of module '{}' is missing or circular.", dependencyClassName, wrapper.getName());
+                dependenciesValid = false;
+                continue;
             }
+            dependencies.add(dependency);
+            dependencyFutures.add(dependencyFuture);
+        }
+        path.remove(wrapper);
 
+        final boolean validDependencies = dependenciesValid;
+        final CompletableFuture<Void> future = CompletableFuture
+                .allOf(dependencyFutures.toArray(new CompletableFuture<?>[0]))
+                .thenRunAsync(() -> {
+                    if (!filter.test(wrapper)) {
+                        return;
+                    }
+
+                    if (!validDependencies || dependencies.stream().anyMatch(d -> d.getStatus() != ModuleStatus.ACTIVE)) {
+                        LOG.error("Module '{}' can not be loaded because one of its dependencies is not active.", wrapper.getName());
+                        if (wrapper.getInstance() != null) {
+                            client.getDispatcher().unregisterListener(wrapper.getInstance());
+                        }
+                        wrapper.setStatus(ModuleStatus.FAILED);
+                        return;
+                    }
+
+                    final long moduleStart = System.nanoTime();
+                    action.accept(wrapper);
+                    LOG.info("Phase '{}' for module '{}' took {} ms.", phaseName, wrapper.getName(), millisSince(moduleStart));
+                }, pool);
+
+        futures.put(wrapper, future);
+        return future;
+    }
+
+    private ModuleWrapper findModuleByClassName(final String className) {
+        for (ModuleWrapper wrapper : this.modules.values()) {
+            if (wrapper.getModuleClass().getName().equals(className)) {
+                return wrapper;
+            }
         }
+        return null;
+    }
 
-        // Create command map
-        this.makeCommandMap();
-        LOG.info("{} module(s) with {} command(s) active.", this.modules.size(), this.acticeCommands.size());
+    private static long millisSince(final long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
     }
 
     /**
@@ -241,7 +426,9 @@ public class DiscordBot {
         LOG.debug("Unloading module '{}'.", wrapper.getName());
 
         wrapper.getInstance().shutdown();
-        client.getDispatcher().unregisterListener(wrapper.getClass());
+        if (wrapper.getInstance().hasEvents()) {
+            client.getDispatcher().unregisterListener(wrapper.getInstance());
+        }
 
         wrapper.setStatus(ModuleStatus.INACTIVE);
         wrapper.setInstance(null);
@@ -277,55 +464,74 @@ public class DiscordBot {
         }
     }
 
+    /**
+     * Create the commands of a module from the properties stored in the {@link ModuleIndex}.
+     *
+     * @param moduleWrapper The module, its instance has to be set already
+     * @return The commands of the module
+     */
     private List<CommandWrapper> discoverCommands(final ModuleWrapper moduleWrapper) {
         LOG.debug("Registering command(s) for module '{}'.", moduleWrapper.getName());
 
         final List<CommandWrapper> commands = new LinkedList<>();
 
-        final Method[] allMethods = moduleWrapper.getModuleClass().getMethods();
-        final List<Method> commandMethods = Arrays.stream(allMethods)
-                .filter(module -> module.isAnnotationPresent(CommandSubscriber.class))
-                .collect(Collectors.toList());
-
-        for (final Method method : commandMethods) {
-            // Register methods with the @CommandSubscriber as commands
-
-            // All annotations of type CommandSubscriber declared for that Method. Should be exactly 1
-            final CommandSubscriber annotation = method.getDeclaredAnnotationsByType(CommandSubscriber.class)[0];
+        final JSONArray commandsJSON = moduleIndex.getCommands(moduleWrapper.getModuleClass());
+        for (int i = 0; i < commandsJSON.length(); i++) {
+            final JSONObject commandJSON = commandsJSON.getJSONObject(i);
+
+            // Get command properties from the index
+            final String commandName = commandJSON.getString("command");
+            final String commandHelp = commandJSON.getString("help");
+            final boolean pmAllowed = commandJSON.getBoolean("pmAllowed");
+            final PermissionLevel permissionLevel = commandJSON.getEnum(PermissionLevel.class, "permissionLevel");
+            final boolean passContext = commandJSON.getBoolean("passContext");
+            final boolean ignoreParameterCount = commandJSON.getBoolean("ignoreParameterCount");
+            final int cooldown = commandJSON.getInt("cooldown");
+            final RateLimiter rateLimiter = cooldown > 0 ?
+                    new RateLimiter(commandJSON.getInt("rateLimit"), cooldown, TimeUnit.SECONDS) : null;
+            // The commands of BotSetup are needed to fix the other modules, so they are never disabled
+            final CircuitBreaker circuitBreaker = moduleWrapper.getModuleClass().equals(BotSetup.class) ?
+                    null : new CircuitBreaker(5, 1, TimeUnit.MINUTES);
+
+            // Read parameter help, keeping the order of the parameters
+            final Map<String, String> parametersDescriptions = new LinkedHashMap<>();
+            final JSONArray parametersJSON = commandJSON.getJSONArray("parameters");
+            for (int j = 0; j < parametersJSON.length(); j++) {
+                final JSONObject parameterJSON = parametersJSON.getJSONObject(j);
+                parametersDescriptions.put(parameterJSON.getString("name"), parameterJSON.getString("help"));
+            }
 
-            // Get command properties from annotation
-            final String commandName = annotation.command();
-            final String commandHelp = annotation.help();
-            final boolean pmAllowed = annotation.pmAllowed();
-            final PermissionLevel permissionLevel = annotation.permissionLevel();
-            final boolean passContext = annotation.passContext();
-            final boolean ignoreParameterCount = annotation.ignoreParameterCount();
+            // Find the method
+            final Method method;
+            try {
+                final JSONArray parameterTypesJSON = commandJSON.getJSONArray("parameterTypes");
+                final Class<?>[] parameterTypes = new Class<?>[parameterTypesJSON.length()];
+                for (int j = 0; j < parameterTypes.length; j++) {
+                    parameterTypes[j] = Class.forName(parameterTypesJSON.getString(j));
+                }
+                method = moduleWrapper.getModuleClass().getMethod(commandJSON.getString("method"), parameterTypes);
+            }
+            catch (ClassNotFoundException | NoSuchMethodException e) {
+                LOG.warn("Method for command '{}' not found. The module index may be outdated. Skipping", commandName, e);
+                continue;
+            }
 
             final int parameterCount = method.getParameterCount()-1;
 
-            // Read parameter help from annotations
-            final Map<String, String> parametersDescriptions = new HashMap<>();
-            for (Parameter parameter : Arrays.stream(method.getParameters())
-                    .filter(m -> m.getType() == String.class)
-                    .collect(Collectors.toList())) {
-                    final CommandParameter[] commandParameterAnnotations = parameter.getAnnotationsByType(CommandParameter.class);
-
-                    if (commandParameterAnnotations.length < 1) {
-                        LOG.warn(String.format("A parameter without a @CommandParameter annotation was found for the method %s in class %s. The help for this command will be incomplete.",
-                                method.getName(), method.getDeclaringClass()));
-                    }
-                    else if (commandParameterAnnotations.length > 1) {
-                        LOG.warn(String.format("Multiple @CommandParameter annotations were found for the method %s in class %s",
-                                method.getName(), method.getDeclaringClass()));
-                    }
-                    else {
-                        parametersDescriptions.put(commandParameterAnnotations[0].name(), commandParameterAnnotations[0].help());
-                    }
-            }
+            if (parameterCount >= 0 && parameterCount <= 5) {
+                // Link the method once, so executing the command does not need any reflection
+                final CommandInvoker invoker;
+                try {
+                    invoker = CommandInvoker.create(method, moduleWrapper.getInstance());
+                }
+                catch (IllegalAccessException e) {
+                    LOG.warn("Method '{}' is not accessible. Skipping", commandName, e);
+                    continue;
+                }
 
-            if ((parameterCount >= 0 && parameterCount <= 5) || ignoreParameterCount) {
-                final CommandWrapper commandWrapper = new CommandWrapper(commandName, commandHelp, parametersDescriptions, moduleWrapper, method, pmAllowed,
-                        permissionLevel, parameterCount, passContext, ignoreParameterCount);
+                final CommandWrapper commandWrapper = new CommandWrapper(commandName, commandHelp, parametersDescriptions, moduleWrapper, method,
+                        invoker, pmAllowed, permissionLevel, parameterCount, passContext, ignoreParameterCount, rateLimiter,
+                        circuitBreaker);
 
                 commands.add(commandWrapper);
 
@@ -334,28 +540,20 @@ public class DiscordBot {
             else {
                 LOG.warn("Method '{}' has an invalid number of arguments. Skipping", commandName);
             }
-
         }
 
         return commands;
     }
 
     /**
-     * Populates global command map, maps a 'CommandWrapper' instance, containing a commands attributes, to each command.
+     * Creates a new {@link ModuleRegistry} snapshot from the current state of all modules and publishes it. The
+     * snapshot contains the global command map, which maps a 'CommandWrapper' instance, containing a commands
+     * attributes, to each command.
      */
-    private void makeCommandMap() {
+    private synchronized void updateRegistry() {
         LOG.debug("Creating command map.");
 
-        LOG.debug("Clearing old commands.");
-        this.acticeCommands.clear();
-
-        final List<ModuleWrapper> loadedModules = getLoadedModules();
-
-        for (final ModuleWrapper moduleWrapper : loadedModules) {
-            for (final CommandWrapper commandWrapper : moduleWrapper.getCommands()) {
-                this.acticeCommands.put(commandWrapper.getName().toLowerCase(), commandWrapper);
-            }
-        }
+        this.registry = new ModuleRegistry(this.prefix, this.modules);
     }
 
     /**
@@ -423,31 +621,24 @@ public class DiscordBot {
     }
 
     /**
-     * Process a received or edited message. Check if it contains a command and execute the corresponding method.
+     * Process a received or edited message. Check if it contains a command and queue the corresponding method for
+     * execution.
      *
      * @param message The received/edited message
      */
     private void handleMessage(final IMessage message) {
-        final String messageContent = message.getContent();
-
-        // Check if the message starts with the configured prefix
-        if (!messageContent.startsWith(this.prefix)) {
-            return;
-        }
-
-        // Get only the command in lower case without prefix/parameters
-        final String commandName = (
-                    messageContent.contains(" ") ?
-                    messageContent.substring(this.prefix.length(), messageContent.indexOf(' ')) :   // Message contains parameters
-                    messageContent.substring(this.prefix.length())  // Message doesn't contain parameters
-                ).toLowerCase();
-
-        // Check if a command with that name is known
-        if (!acticeCommands.containsKey(commandName)) {
-            return;
-        }
+        commandDispatcher.dispatch(registry.getRouter(), message);
+    }
 
-        final CommandWrapper command = acticeCommands.get(commandName);
+    /**
+     * Check if the command can be used and execute it. Runs in the {@link CommandExecutor}.
+     *
+     * @param command The command that was found in the message
+     * @param message The received/edited message
+     */
+    private void processCommand(final CommandWrapper command, final IMessage message) {
+        final String messageContent = message.getContent();
+        final String commandName = command.getName();
 
         LOG.info("User {} used command {}", UserUtils.makeUserString(message.getAuthor(), message.getGuild()), commandName);
 
@@ -455,6 +646,7 @@ public class DiscordBot {
         if (message.getChannel().isPrivate() && !command.isPmAllowed()) {
             MESSAGE_SERVICE.sendMessage(message.getChannel(), "Dieser Befehl ist nicht in Privatnachrichten verfügbar!");
             LOG.info("CommandWrapper {} is not available in PMs.", commandName);
+            commandMetrics.get(commandName).recordRejection(Rejection.PM_NOT_ALLOWED);
             return;
         }
 
@@ -468,178 +660,81 @@ public class DiscordBot {
             LOG.info("User {} doesn't have the required permissions for using the command {}.",
                     UserUtils.makeUserString(message.getAuthor(), message.getGuild()),
                     commandName);
+            commandMetrics.get(commandName).recordRejection(Rejection.PERMISSION_DENIED);
             return;
         }
 
         final int expectedParameterCount = command.getExpectedParameterCount();
-        final List<String> parameters = parseParameters(messageContent, commandName, expectedParameterCount, command.isPassContext());
+        final String[] parameters = new String[expectedParameterCount];
+        final int parameterCount = ParameterTokenizer.tokenize(messageContent, prefix.length() + commandName.length(),
+                parameters, command.isPassContext());
+
+        // Check if the user used the correct number of parameters. Missing parameters are null.
+        if (parameterCount < expectedParameterCount && !command.isIgnoreParameterCount()) {
+            MESSAGE_SERVICE.sendMessage(message.getChannel(), String.format("Dieser Befehl benötigt mindestens %s Parameter! (Gegeben: %s)", expectedParameterCount, parameterCount));
+            LOG.info("Wrong number of arguments. Expected number: {} Actual number: {}",
+                    expectedParameterCount, parameterCount);
+            commandMetrics.get(commandName).recordRejection(Rejection.WRONG_PARAMETER_COUNT);
+            return;
+        }
 
-        // Check if the user used the correct number of parameters
-        if (parameters.size() < expectedParameterCount) {
-            if (command.isIgnoreParameterCount()) {
-                while (parameters.size() < expectedParameterCount) {
-                    parameters.add(null);
-                }
-            }
-            else {
-                MESSAGE_SERVICE.sendMessage(message.getChannel(), String.format("Dieser Befehl benötigt mindestens %s Parameter! (Gegeben: %s)", expectedParameterCount, parameters.size()));
-                LOG.info("Wrong number of arguments. Expected number: {} Actual number: {}",
-                        expectedParameterCount, parameters.size());
-                return;
-            }
+        // Don't invoke commands that failed repeatedly
+        final CircuitBreaker circuitBreaker = command.getCircuitBreaker();
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            MESSAGE_SERVICE.sendMessage(message.getChannel(), String.format("Der Befehl **%s** ist wegen wiederholter Fehler vorübergehend deaktiviert.",
+                    commandName));
+            LOG.info("Command {} is temporarily disabled.", commandName);
+            commandMetrics.get(commandName).recordRejection(Rejection.COMMAND_DISABLED);
+            return;
         }
 
-        executeCommand(command, parameters, message);
+        executeCommand(command, Arrays.asList(parameters), message);
     }
 
     /**
      * Invoke the method specified in a CommandWrapper with the parameters in a List
      *
-     * @param command The instance containing the attributes of the command, specifically the method to invoke
+     * @param command The instance containing the attributes of the command, specifically the invoker to use
      * @param parameters The parameters to use while invoking the method
      * @param message The message that triggered the command
      */
     private void executeCommand(final CommandWrapper command, final List<String> parameters, final IMessage message) {
         LOG.debug("Executing command {} with {} parameters.", command.getName(), parameters.size());
 
-        final Method method = command.getMethod();
-        final CommandModule instance = command.getModule().getInstance();
-
+        final CircuitBreaker circuitBreaker = command.getCircuitBreaker();
+        final long start = System.nanoTime();
+        boolean failed = false;
         try {
-            switch (parameters.size()) {
-                case 0:
-                    method.invoke(instance, message);
-                    break;
-                case 1:
-                    method.invoke(instance, message, parameters.get(0));
-                    break;
-                case 2:
-                    method.invoke(instance, message, parameters.get(0), parameters.get(1));
-                    break;
-                case 3:
-                    method.invoke(instance, message, parameters.get(0), parameters.get(1), parameters.get(2));
-                    break;
-                case 4:
-                    method.invoke(instance, message, parameters.get(0), parameters.get(1), parameters.get(2),
-                            parameters.get(3));
-                    break;
-                case 5:
-                    method.invoke(instance, message, parameters.get(0), parameters.get(1), parameters.get(2),
-                            parameters.get(3), parameters.get(4));
-                    break;
-                default:
-                    throw new IllegalArgumentException("Command has an invalid number of arguments. This should never happen.");
-            }
+            command.getInvoker().invoke(message, parameters);
         }
-        catch (IllegalAccessException | InvocationTargetException e) {
-            final Throwable cause = e.getCause();
-
-            LOG.error("Command '{}' could not be executed.", command.getName(), e.getCause());
-            MESSAGE_SERVICE.errorNotify(cause.toString(), message.getChannel());
+        catch (Throwable e) {
+            failed = true;
+            LOG.error("Command '{}' could not be executed.", command.getName(), e);
+            MESSAGE_SERVICE.errorNotify(e.toString(), message.getChannel());
         }
-    }
+        finally {
+            commandMetrics.get(command.getName()).recordExecution(System.nanoTime() - start, failed);
 
-    /**
-     * Parse the parameters from message input. Every word (after prefix+command) is one parameter.
-     *
-     * @param messageContent The full input message content
-     * @param parameterCount The number of parameters to parse
-     * @param passContext If true, additional words are appended to last parameter. If false, additional words are ignored
-     * @return The list containing the parsed parameters
-     */
-    private List<String> parseParameters(final String messageContent, final String command, int parameterCount, boolean passContext) {
-        final LinkedList<String> parameters = new LinkedList<>();
-
-        // Remove prefix and command
-        final String content = messageContent.substring(prefix.length() + command.length());
-
-        // Remove leading whitespace
-        int parameterStart = 0;
-        while (parameterStart < content.length() && (content.charAt(parameterStart) == '\n' || content.charAt(parameterStart) == ' ')) {
-            parameterStart++;
-        }
-        final String parameterContent = content.substring(parameterStart);   // The String containing only the parameters
-
-        // Seperate the individual parameters
-        final String[] contentParts = parameterContent.split("[\\t ]+");
-
-        int contentPartIndex;
-        for (contentPartIndex = 0; contentPartIndex < parameterCount; contentPartIndex++) {
-            if (contentPartIndex < contentParts.length) {
-                final String currentParameter = contentParts[contentPartIndex];
-                if (!currentParameter.isEmpty()) {
-                    parameters.add(currentParameter);
-                }
+            if (circuitBreaker != null && !failed) {
+                circuitBreaker.recordSuccess();
             }
-        }
-
-        // If passContext is true, append possible additional words to last parameter
-        if (passContext && contentPartIndex < contentParts.length && !parameters.isEmpty()) {
-            final StringBuilder builder = new StringBuilder();
-            final String last = parameters.removeLast();
-            builder.append(last);
-
-
-            while (contentPartIndex < contentParts.length) {
-                builder.append(' ');
-                builder.append(contentParts[contentPartIndex]);
-                contentPartIndex++;
+            else if (circuitBreaker != null && circuitBreaker.recordFailure(message.getAuthor().getLongID())) {
+                LOG.warn("Command {} failed repeatedly, it is disabled for {} seconds.",
+                        command.getName(), TimeUnit.MILLISECONDS.toSeconds(circuitBreaker.getRemainingOpenMillis()));
             }
-
-            parameters.add(builder.toString());
         }
-
-        return parameters;
     }
 
     /**
      * Get the permission level of a user on a guild. Returns 0 (level EVERYONE) if no roles are configured for the
-     * specified guild
+     * specified guild. The result is cached until the roles of the user or the guild change.
      *
      * @param user The user whose permission level gets returned
      * @param guild The guild on which the permission level counts
      * @return The user's permission level on the guiild
      */
     public PermissionLevel getUserPermissionLevel(final IUser user, final IGuild guild) {
-        // User is the configured owner of the bot
-        if (user.getLongID() == this.ownerID) {
-            return PermissionLevel.OWNER;
-        }
-
-        // No guild (maybe PM)
-        if (guild == null) {
-            return PermissionLevel.EVERYONE;
-        }
-
-        // If no roles are configured for this guild return the lowest level
-        if (!rolesJSON.has(guild.getStringID())) {
-            LOG.warn("Roles for guild {} (ID: {}) are not configured!", guild.getName(), guild.getStringID());
-            return PermissionLevel.EVERYONE;
-        }
-
-        final JSONObject guildRoles = rolesJSON.getJSONObject(guild.getStringID());
-
-        if (guildRoles.has("adminRole")) {
-            final long adminRoleID = guildRoles.getLong("adminRole");
-            if (UserUtils.hasRole(user, adminRoleID, guild)) {
-                return PermissionLevel.ADMIN;
-            }
-        }
-        else {
-            LOG.warn("Admin role for guild {} (ID: {}) is not configured!", guild.getName(), guild.getStringID());
-        }
-
-        if (guildRoles.has("modRole")) {
-            final long adminRoleID = guildRoles.getLong("modRole");
-            if (UserUtils.hasRole(user, adminRoleID, guild)) {
-                return PermissionLevel.ADMIN;
-            }
-        }
-        else {
-            LOG.warn("Moderator role for guild {} (ID: {}) is not configured!", guild.getName(), guild.getStringID());
-        }
-
-        return PermissionLevel.EVERYONE;
+        return permissionResolver.getUserPermissionLevel(user, guild);
     }
 
     /**
@@ -652,18 +747,27 @@ public class DiscordBot {
         LOG.info("[INFO] Bot ready. Prefix: {}", this.prefix);
         LOG.info("Add this bot to a server: https://discordapp.com/oauth2/authorize?client_id={}&scope=bot", client.getApplicationClientID());
         client.changePresence(StatusType.ONLINE, ActivityType.PLAYING, String.format("%shelp | WIP", this.prefix));
+
+        readyLatch.countDown();
+    }
+
+    /**
+     * Returns the current snapshot of all modules and commands. Use this to get a consistent view if multiple
+     * properties are needed.
+     *
+     * @return The current module registry
+     */
+    public ModuleRegistry getModuleRegistry() {
+        return registry;
     }
 
     /**
-     * Returns the map containing the loaded modules
+     * Returns the list containing the loaded modules
      *
-     * @return The map containing the loaded modules
+     * @return The list containing the loaded modules
      */
     public List<ModuleWrapper> getLoadedModules() {
-        return modules.values()
-                .stream()
-                .filter(module -> module.getStatus().equals(ModuleStatus.ACTIVE))
-                .collect(Collectors.toList());
+        return registry.getLoadedModules();
     }
 
     /**
@@ -672,10 +776,7 @@ public class DiscordBot {
      * @return The list containing the unloaded modules
      */
     public List<ModuleWrapper> getUnloadedModules() {
-        return modules.values()
-                .stream()
-                .filter(module -> module.getStatus().equals(ModuleStatus.INACTIVE))
-                .collect(Collectors.toList());
+        return registry.getUnloadedModules();
     }
 
     /**
@@ -684,14 +785,26 @@ public class DiscordBot {
      * @return The list containing the failed modules
      */
     public List<ModuleWrapper> getFailedModules() {
-        return modules.values()
-                .stream()
-                .filter(module -> module.getStatus().equals(ModuleStatus.FAILED))
-                .collect(Collectors.toList());
+        return registry.getFailedModules();
+    }
+
+    public CommandExecutor getCommandExecutor() {
+        return commandExecutor;
+    }
+
+    /**
+     * @return The persistence manager that writes the data files of the modules.
+     */
+    public PersistenceManager getPersistenceManager() {
+        return persistenceManager;
+    }
+
+    public CommandMetrics getCommandMetrics() {
+        return commandMetrics;
     }
 
     public Map<String, CommandWrapper> getActiveCommands() {
-        return acticeCommands;
+        return registry.getActiveCommands();
     }
 
     /**
@@ -700,7 +813,7 @@ public class DiscordBot {
      * @param moduleName The name of the module
      * @return true if everything went fine, false if the module does not exist or is already actived
      */
-    public ModuleWrapper activateModule(final String moduleName) {
+    public synchronized ModuleWrapper activateModule(final String moduleName) {
         if (!modules.containsKey(moduleName)) {
             // Module does not exist
             return null;
@@ -723,13 +836,12 @@ public class DiscordBot {
             return module;
         }
 
-        // Run init tasks
+        // Run init tasks, init() was already called when loading the module
         LOG.debug("Running init tasks.");
-        moduleInstance.init();
         moduleInstance.initWhenReady(); // This method can only be executed by a command, so we don't have to check if the bot is ready
 
         LOG.info("Rebuilding command map to include commands from module '{}'.", moduleName);
-        makeCommandMap();
+        updateRegistry();
 
         // Everything went fine
         return module;
@@ -741,7 +853,7 @@ public class DiscordBot {
      * @param moduleName The name of the module
      * @return true if everything went fine, false if the module does not exist or is already deactivated
      */
-    public ModuleWrapper deactivateModule(final String moduleName) {
+    public synchronized ModuleWrapper deactivateModule(final String moduleName) {
         if (!modules.containsKey(moduleName)) {
             // Module does not exist
             return null;
@@ -757,7 +869,7 @@ public class DiscordBot {
         unloadModule(module);
 
         LOG.info("Rebuilding command map to exclude commands from module \"{}\"", moduleName);
-        makeCommandMap();
+        updateRegistry();
 
         // Everything went fine
         return module;
@@ -788,10 +900,11 @@ public class DiscordBot {
     }
 
     /**
-     * Save the JSON file containing the role configurations
+     * Save the JSON file containing the role configurations and apply the changes to the cached permission levels
      */
     public void saveRoles() {
         LOG.debug("Saving roles file.");
+        permissionResolver.reloadRoleConfig(rolesJSON);
 
         final String jsonOutput = this.rolesJSON.toString(4);
         IOUtil.writeToFile(ROLES_PATH, jsonOutput);
@@ -806,6 +919,16 @@ public class DiscordBot {
             sampleConfig.put("owner", 165857945471418368L);
             sampleConfig.put("prefix", "%");
             sampleConfig.put("unloadedModules", new JSONArray());
+            sampleConfig.put("commandThreads", 4);
+            sampleConfig.put("commandQueueLimit", 25);
+            sampleConfig.put("virtualThreads", false);
+            sampleConfig.put("logCoalescingWindow", 2000);
+            sampleConfig.put("logCoalescingMaxLength", 2000);
+            sampleConfig.put("logCoalescingMaxFields", 25);
+            sampleConfig.put("sanitizeRoleMentions", false);
+            sampleConfig.put("persistenceFlushInterval", 10000);
+            sampleConfig.put("fileBackups", 3);
+            sampleConfig.put("prettyPrintData", false);
             sampleConfig.put("token", "<your token>");
 
             IOUtil.writeToFile(CONFIG_PATH, sampleConfig.toString(4));
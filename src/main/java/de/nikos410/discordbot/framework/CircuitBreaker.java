@@ -0,0 +1,154 @@
+package de.nikos410.discordbot.framework;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops invoking a command after it failed repeatedly. The breaker opens when the command failed for a number of
+ * different users in a row, so a single user who keeps using a command wrong can not disable it for everyone. While
+ * the breaker is open, the command is rejected. When the open time is over, a single invocation is let through: if it
+ * succeeds the breaker closes again, if it fails the breaker opens again for twice the time, up to a maximum.
+ */
+public class CircuitBreaker {
+    private static final int MAX_OPEN_TIME_FACTOR = 16;
+
+    public enum State {
+        /**
+         * The command is invoked.
+         */
+        CLOSED,
+
+        /**
+         * The command is rejected.
+         */
+        OPEN,
+
+        /**
+         * A single invocation is running to find out whether the command works again.
+         */
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long baseOpenNanos;
+
+    private volatile State state = State.CLOSED;
+    // The following fields are guarded by this
+    // The users the command failed for since the last success
+    private final Set<Long> failedUsers = new HashSet<>();
+    private long openNanos;
+    private long openUntil;
+    private long tripCount = 0;
+
+    /**
+     * Create a new closed circuit breaker.
+     *
+     * @param failureThreshold The number of different users the command has to fail for in a row to open the breaker.
+     * @param openTime The time for which the breaker stays open the first time.
+     * @param unit The unit of the open time.
+     */
+    public CircuitBreaker(final int failureThreshold, final long openTime, final TimeUnit unit) {
+        this.failureThreshold = failureThreshold;
+        this.baseOpenNanos = unit.toNanos(openTime);
+        this.openNanos = baseOpenNanos;
+    }
+
+    /**
+     * Check if a command may be invoked. If true is returned, the result of the invocation has to be reported using
+     * {@link #recordSuccess()} or {@link #recordFailure(long)}.
+     *
+     * @return True if the command may be invoked.
+     */
+    public boolean tryAcquire() {
+        // Fast path without locking
+        if (state == State.CLOSED) {
+            return true;
+        }
+
+        synchronized (this) {
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (System.nanoTime() - openUntil < 0) {
+                        return false;
+                    }
+                    // Let a single invocation through
+                    state = State.HALF_OPEN;
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * Report that an invocation succeeded.
+     */
+    public synchronized void recordSuccess() {
+        failedUsers.clear();
+        if (state == State.HALF_OPEN) {
+            state = State.CLOSED;
+            openNanos = baseOpenNanos;
+        }
+    }
+
+    /**
+     * Report that an invocation failed.
+     *
+     * @param userID The ID of the user who used the command.
+     * @return True if the breaker was opened because of this failure.
+     */
+    public synchronized boolean recordFailure(final long userID) {
+        failedUsers.add(userID);
+
+        if (state == State.HALF_OPEN) {
+            openNanos = Math.min(openNanos * 2, baseOpenNanos * MAX_OPEN_TIME_FACTOR);
+            open();
+            return true;
+        }
+        if (state == State.CLOSED && failedUsers.size() >= failureThreshold) {
+            open();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Close the breaker and forget all failures.
+     */
+    public synchronized void reset() {
+        state = State.CLOSED;
+        failedUsers.clear();
+        openNanos = baseOpenNanos;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return The time in milliseconds until an invocation is let through again, 0 if the breaker is not open.
+     */
+    public synchronized long getRemainingOpenMillis() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(openUntil - System.nanoTime()));
+    }
+
+    /**
+     * @return The number of times the breaker was opened.
+     */
+    public synchronized long getTripCount() {
+        return tripCount;
+    }
+
+    private void open() {
+        failedUsers.clear();
+        state = State.OPEN;
+        openUntil = System.nanoTime() + openNanos;
+        tripCount++;
+    }
+}
@@ -0,0 +1,92 @@
+package de.nikos410.discordbot.framework;
+
+import de.nikos410.discordbot.framework.metrics.CommandStats.Rejection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sx.blah.discord.handle.obj.IChannel;
+import sx.blah.discord.handle.obj.IMessage;
+
+/**
+ * The part of handling a message that runs on the event dispatcher thread for every message: find the command in
+ * the message, check the rate limit and hand the command over for execution. Everything else is done by the
+ * {@link CommandHandler}, outside of the event dispatcher threads.
+ */
+public class CommandDispatcher {
+    private static final Logger LOG = LoggerFactory.getLogger(CommandDispatcher.class);
+
+    /**
+     * Executes the commands that were found in messages.
+     */
+    @FunctionalInterface
+    public interface CommandHandler {
+        /**
+         * Queue a command for execution.
+         *
+         * @param queueID Commands with the same queue ID have to be executed in the order they were received.
+         * @param command The command that was found in the message.
+         * @param message The message.
+         * @return False if the command could not be queued.
+         */
+        boolean submit(long queueID, CommandWrapper command, IMessage message);
+    }
+
+    /**
+     * Gets notified when a command is not handed over for execution.
+     */
+    @FunctionalInterface
+    public interface RejectionListener {
+        /**
+         * @param command The command that was found in the message.
+         * @param rejection The reason why the command is not executed.
+         */
+        void commandRejected(CommandWrapper command, Rejection rejection);
+    }
+
+    private final long ownerID;
+    private final CommandHandler commandHandler;
+    private final RejectionListener rejectionListener;
+
+    /**
+     * Create a new dispatcher.
+     *
+     * @param ownerID The ID of the bot's owner, the owner is never rate limited.
+     * @param commandHandler Executes the commands.
+     * @param rejectionListener Gets notified when a command is rate limited or could not be queued.
+     */
+    public CommandDispatcher(final long ownerID, final CommandHandler commandHandler,
+                             final RejectionListener rejectionListener) {
+        this.ownerID = ownerID;
+        this.commandHandler = commandHandler;
+        this.rejectionListener = rejectionListener;
+    }
+
+    /**
+     * Check if a message contains a command and hand it over for execution.
+     *
+     * @param router The router that finds the command.
+     * @param message The received/edited message.
+     */
+    public void dispatch(final CommandRouter router, final IMessage message) {
+        // Check if the message starts with the prefix followed by a known command
+        final CommandWrapper command = router.route(message.getContent());
+        if (command == null) {
+            return;
+        }
+
+        // Silently ignore users who are using the command too often, the owner is never limited
+        final long authorID = message.getAuthor().getLongID();
+        final RateLimiter rateLimiter = command.getRateLimiter();
+        if (rateLimiter != null && authorID != ownerID && !rateLimiter.tryAcquire(authorID)) {
+            LOG.debug("User with ID {} is rate limited for command {}.", authorID, command.getName());
+            rejectionListener.commandRejected(command, Rejection.RATE_LIMITED);
+            return;
+        }
+
+        // Commands from the same guild (or private channel) are executed in order
+        final IChannel channel = message.getChannel();
+        final long queueID = channel.isPrivate() ? channel.getLongID() : message.getGuild().getLongID();
+        if (!commandHandler.submit(queueID, command, message)) {
+            rejectionListener.commandRejected(command, Rejection.QUEUE_FULL);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package de.nikos410.discordbot.framework;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes commands outside of the event dispatcher threads. Every guild has its own queue, so commands from one
+ * guild are executed in the order they were received while different guilds are handled in parallel.
+ */
+public class CommandExecutor {
+    private static final Logger LOG = LoggerFactory.getLogger(CommandExecutor.class);
+
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final int threadCount;
+    private final int queueLimit;
+
+    private final Map<Long, GuildQueue> queues = new ConcurrentHashMap<>();
+
+    // Statistics
+    private final AtomicInteger queuedCount = new AtomicInteger();
+    private final AtomicLong executedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * Create a new executor.
+     *
+     * @param threadCount The maximum number of commands that are executed at the same time.
+     *                    Ignored if virtual threads are used.
+     * @param queueLimit The maximum number of commands that can be waiting for execution per guild.
+     * @param useVirtualThreads Set whether to execute every command in its own virtual thread. Only has an effect if
+     *                          the JVM supports virtual threads (Java 21+), otherwise a thread pool is used.
+     */
+    public CommandExecutor(final int threadCount, final int queueLimit, final boolean useVirtualThreads) {
+        this.threadCount = threadCount;
+        this.queueLimit = queueLimit;
+
+        final ExecutorService virtualExecutor = useVirtualThreads ? createVirtualThreadExecutor() : null;
+        if (virtualExecutor != null) {
+            this.executor = virtualExecutor;
+            this.virtualThreads = true;
+            LOG.info("Executing commands in virtual threads.");
+        }
+        else {
+            final AtomicInteger threadNumber = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+                final Thread thread = new Thread(runnable, "command-executor-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.virtualThreads = false;
+            LOG.info("Executing commands with {} thread(s).", threadCount);
+        }
+    }
+
+    /**
+     * Create an executor that starts a new virtual thread for each task. Uses reflection because the bot is compiled
+     * for Java 8.
+     *
+     * @return The executor, or null if virtual threads are not supported by the JVM.
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            LOG.warn("Virtual threads are not supported by this JVM. Using a thread pool instead.");
+            return null;
+        }
+    }
+
+    /**
+     * Queue a command for execution.
+     *
+     * @param queueID The ID of the queue to use, usually the guild ID. Commands with the same queue ID are executed
+     *                one after another.
+     * @param command The command to execute.
+     * @return False if the command was rejected because too many commands are waiting in the queue or the executor
+     * was shut down.
+     */
+    public boolean submit(final long queueID, final Runnable command) {
+        final QueuedCommand queuedCommand = new QueuedCommand(command);
+
+        final boolean[] accepted = new boolean[1];
+        queues.compute(queueID, (id, queue) -> {
+            final GuildQueue guildQueue = queue == null ? new GuildQueue(id) : queue;
+
+            if (guildQueue.commands.size() >= queueLimit) {
+                return guildQueue;
+            }
+            accepted[0] = true;
+            guildQueue.commands.add(queuedCommand);
+
+            // Only one task per guild is scheduled at a time
+            if (!guildQueue.scheduled) {
+                try {
+                    executor.execute(guildQueue);
+                    guildQueue.scheduled = true;
+                }
+                catch (RejectedExecutionException e) {
+                    // The executor was shut down
+                    guildQueue.commands.remove(queuedCommand);
+                    accepted[0] = false;
+                    return guildQueue.commands.isEmpty() ? null : guildQueue;
+                }
+            }
+            return guildQueue;
+        });
+
+        if (accepted[0]) {
+            queuedCount.incrementAndGet();
+        }
+        else {
+            rejectedCount.incrementAndGet();
+            LOG.warn("Queue {} is full or the executor was shut down. Rejecting command.", queueID);
+        }
+        return accepted[0];
+    }
+
+    /**
+     * Stop accepting new commands. Commands that are already queued are still executed.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * @return True if every command is executed in its own virtual thread.
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return The maximum number of commands that are executed at the same time, if no virtual threads are used.
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * @return The number of commands that are currently waiting for execution.
+     */
+    public int getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    /**
+     * @return The number of guilds that currently have commands waiting or being executed.
+     */
+    public int getActiveQueueCount() {
+        return queues.size();
+    }
+
+    /**
+     * @return The number of commands that were executed.
+     */
+    public long getExecutedCount() {
+        return executedCount.get();
+    }
+
+    /**
+     * @return The number of commands that were rejected because the queue was full or the executor was shut down.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return The average time commands waited in the queue, in milliseconds.
+     */
+    public double getAverageWaitMillis() {
+        final long executed = executedCount.get();
+        return executed == 0 ? 0 : totalWaitNanos.get() / (executed * 1_000_000.0);
+    }
+
+    /**
+     * @return The longest time a command waited in the queue, in milliseconds.
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    private void recordWait(final long waitNanos) {
+        executedCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+
+        long currentMax = maxWaitNanos.get();
+        while (waitNanos > currentMax && !maxWaitNanos.compareAndSet(currentMax, waitNanos)) {
+            currentMax = maxWaitNanos.get();
+        }
+    }
+
+    /**
+     * A command together with the time it was queued.
+     */
+    private static class QueuedCommand {
+        private final Runnable command;
+        private final long queuedAt;
+
+        private QueuedCommand(final Runnable command) {
+            this.command = command;
+            this.queuedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * The commands of a single guild. Executes one command per run and reschedules itself if more commands are
+     * waiting, so busy guilds can't starve the others. All state changes happen inside {@code queues.compute}.
+     */
+    private class GuildQueue implements Runnable {
+        private final long id;
+        private final Queue<QueuedCommand> commands = new ArrayDeque<>();
+        private boolean scheduled = false;
+
+        private GuildQueue(final long id) {
+            this.id = id;
+        }
+
+        @Override
+        public void run() {
+            final QueuedCommand[] next = new QueuedCommand[1];
+            queues.computeIfPresent(id, (queueID, queue) -> {
+                next[0] = commands.poll();
+                return queue;
+            });
+
+            try {
+                if (next[0] != null) {
+                    execute(next[0]);
+                }
+            }
+            finally {
+                reschedule();
+            }
+        }
+
+        private void execute(final QueuedCommand queuedCommand) {
+            queuedCount.decrementAndGet();
+            recordWait(System.nanoTime() - queuedCommand.queuedAt);
+
+            try {
+                queuedCommand.command.run();
+            }
+            catch (RuntimeException e) {
+                LOG.error("Unhandled exception while executing command.", e);
+            }
+        }
+
+        private void reschedule() {
+            // Reschedule if more commands are waiting, otherwise remove the idle queue
+            final List<QueuedCommand> remaining = new ArrayList<>();
+            queues.computeIfPresent(id, (queueID, queue) -> {
+                if (commands.isEmpty()) {
+                    scheduled = false;
+                    return null;
+                }
+
+                try {
+                    executor.execute(this);
+                    return queue;
+                }
+                catch (RejectedExecutionException e) {
+                    // The executor was shut down, the commands that are already queued are executed on this thread
+                    remaining.addAll(commands);
+                    commands.clear();
+                    scheduled = false;
+                    return null;
+                }
+            });
+
+            if (!remaining.isEmpty()) {
+                LOG.info("Executor was shut down. Executing {} queued command(s) before stopping.", remaining.size());
+                for (QueuedCommand queuedCommand : remaining) {
+                    execute(queuedCommand);
+                }
+            }
+        }
+    }
+}
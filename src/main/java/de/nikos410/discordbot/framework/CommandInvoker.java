@@ -0,0 +1,81 @@
+package de.nikos410.discordbot.framework;
+
+import sx.blah.discord.handle.obj.IMessage;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Pre-linked invoker for a command method. Created once when the module is loaded, so executing a command does not
+ * need any reflection.
+ */
+@FunctionalInterface
+public interface CommandInvoker {
+
+    /**
+     * Invoke the command.
+     *
+     * @param message The message that triggered the command.
+     * @param parameters The parameters to pass to the command. Must contain exactly as many parameters as the command
+     *                   method expects.
+     * @throws Throwable Anything thrown by the command method itself.
+     */
+    void invoke(IMessage message, List<String> parameters) throws Throwable;
+
+    /**
+     * Create an invoker for a command method that is bound to the given module instance.
+     *
+     * @param method The command method. The first parameter has to be the message, followed by 0 to 5 String parameters.
+     * @param instance The module instance on which to invoke the method.
+     * @return The created invoker.
+     * @throws IllegalAccessException If the method is not accessible.
+     * @throws IllegalArgumentException If the method has an unsupported number of parameters.
+     */
+    static CommandInvoker create(final Method method, final CommandModule instance) throws IllegalAccessException {
+        final int parameterCount = method.getParameterCount();
+
+        // Bind the module instance and erase all types to Object, so every call site can use invokeExact.
+        // The calls below have to be statements, otherwise the compiler links them with an Object return type.
+        final MethodHandle handle = MethodHandles.publicLookup()
+                .unreflect(method)
+                .bindTo(instance)
+                .asType(MethodType.genericMethodType(parameterCount).changeReturnType(void.class));
+
+        switch (parameterCount - 1) {
+            case 0:
+                return (message, parameters) -> {
+                    handle.invokeExact((Object) message);
+                };
+            case 1:
+                return (message, parameters) -> {
+                    handle.invokeExact((Object) message, (Object) parameters.get(0));
+                };
+            case 2:
+                return (message, parameters) -> {
+                    handle.invokeExact((Object) message, (Object) parameters.get(0),
+                            (Object) parameters.get(1));
+                };
+            case 3:
+                return (message, parameters) -> {
+                    handle.invokeExact((Object) message, (Object) parameters.get(0),
+                            (Object) parameters.get(1), (Object) parameters.get(2));
+                };
+            case 4:
+                return (message, parameters) -> {
+                    handle.invokeExact((Object) message, (Object) parameters.get(0),
+                            (Object) parameters.get(1), (Object) parameters.get(2), (Object) parameters.get(3));
+                };
+            case 5:
+                return (message, parameters) -> {
+                    handle.invokeExact((Object) message, (Object) parameters.get(0),
+                            (Object) parameters.get(1), (Object) parameters.get(2), (Object) parameters.get(3),
+                            (Object) parameters.get(4));
+                };
+            default:
+                throw new IllegalArgumentException("Command has an invalid number of arguments.");
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package de.nikos410.discordbot.framework;
+
+import java.util.Collection;
+
+/**
+ * Immutable lookup table that finds the command in a message. The prefix and the command name are matched directly
+ * on the message content, ignoring the case of the command name, so messages that do not contain a command are
+ * rejected without allocating anything.
+ */
+public class CommandRouter {
+    private final String prefix;
+
+    // Open addressing hash table, the names are stored in lower case
+    private final String[] names;
+    private final CommandWrapper[] commands;
+    private final int mask;
+    private final int maxNameLength;
+
+    /**
+     * Create a new router.
+     *
+     * @param prefix The prefix every command has to start with.
+     * @param commands The commands the router should find.
+     */
+    public CommandRouter(final String prefix, final Collection<CommandWrapper> commands) {
+        this.prefix = prefix;
+
+        // Keep the load factor at or below 0.5
+        int capacity = 2;
+        while (capacity < commands.size() * 2) {
+            capacity <<= 1;
+        }
+        this.names = new String[capacity];
+        this.commands = new CommandWrapper[capacity];
+        this.mask = capacity - 1;
+
+        int longestName = 0;
+        for (CommandWrapper command : commands) {
+            final String name = command.getName().toLowerCase();
+            longestName = Math.max(longestName, name.length());
+
+            int slot = hash(name, 0, name.length()) & mask;
+            while (names[slot] != null && !names[slot].equals(name)) {
+                slot = (slot + 1) & mask;
+            }
+            names[slot] = name;
+            this.commands[slot] = command;
+        }
+        this.maxNameLength = longestName;
+    }
+
+    /**
+     * Find the command a message refers to.
+     *
+     * @param content The content of the message.
+     * @return The command, or null if the message does not start with the prefix followed by a known command.
+     */
+    public CommandWrapper route(final String content) {
+        if (!content.startsWith(prefix)) {
+            return null;
+        }
+
+        // The command name ends at the first whitespace character
+        final int nameStart = prefix.length();
+        final int maxEnd = Math.min(content.length(), nameStart + maxNameLength + 1);
+        int nameEnd = nameStart;
+        while (nameEnd < maxEnd && !isSeparator(content.charAt(nameEnd))) {
+            nameEnd++;
+        }
+
+        final int nameLength = nameEnd - nameStart;
+        if (nameLength == 0 || nameLength > maxNameLength) {
+            return null;
+        }
+
+        int slot = hash(content, nameStart, nameEnd) & mask;
+        while (names[slot] != null) {
+            final String name = names[slot];
+            if (name.length() == nameLength && content.regionMatches(true, nameStart, name, 0, nameLength)) {
+                return commands[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return The prefix every command has to start with.
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Check whether a character separates the command name from its parameters.
+     *
+     * @param c The character to check.
+     * @return True if the character is a separator.
+     */
+    public static boolean isSeparator(final char c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r';
+    }
+
+    private static int hash(final CharSequence text, final int start, final int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + Character.toLowerCase(text.charAt(i));
+        }
+        // Spread the higher bits, the table is indexed with the lower ones
+        return hash ^ (hash >>> 16);
+    }
+}
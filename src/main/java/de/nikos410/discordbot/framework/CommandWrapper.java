@@ -12,11 +12,14 @@ public class CommandWrapper {
     private final Map<String, String> parameterDescriptions;
     private final ModuleWrapper module;
     private final Method method;
+    private final CommandInvoker invoker;
     private final boolean pmAllowed;
     private final PermissionLevel permissionLevel;
     private final int expectedParameterCount;
     private final boolean passContext;
     private final boolean ignoreParameterCount;
+    private final RateLimiter rateLimiter;
+    private final CircuitBreaker circuitBreaker;
 
     /**
      * Create a new command wrapper.
@@ -26,32 +29,41 @@ public class CommandWrapper {
      * @param parameterDescriptions The parameterDescriptions for this command. Key is the parameter name, Value is the description for that parameter.
      * @param module The name of module that contains the command.
      * @param method The method that should be invoked to execute the command.
+     * @param invoker The pre-linked invoker for the method.
      * @param pmAllowed Set whether the command should be available in private messages.
      * @param permissionLevel Which permission level is necessary to execute the command.
      * @param expectedParameterCount The number of parameterDescriptions the command accepts.
      * @param passContext Set whether to append additional parameterDescriptions or to ignore them.
      * @param ignoreParameterCount Don't check if enough parameterDescriptions are given when executing.
+     * @param rateLimiter The rate limiter for this command, or null if the command is not rate limited.
+     * @param circuitBreaker The circuit breaker for this command, or null if the command is never disabled.
      */
     public CommandWrapper(final String name,
                           final String help,
                           final Map<String, String> parameterDescriptions,
                           final ModuleWrapper module,
                           final Method method,
+                          final CommandInvoker invoker,
                           final boolean pmAllowed,
                           final PermissionLevel permissionLevel,
                           final int expectedParameterCount,
                           final boolean passContext,
-                          final boolean ignoreParameterCount) {
+                          final boolean ignoreParameterCount,
+                          final RateLimiter rateLimiter,
+                          final CircuitBreaker circuitBreaker) {
         this.name = name;
         this.help = help;
         this.parameterDescriptions = parameterDescriptions;
         this.module = module;
         this.method = method;
+        this.invoker = invoker;
         this.pmAllowed = pmAllowed;
         this.permissionLevel = permissionLevel;
         this.expectedParameterCount = expectedParameterCount;
         this.passContext = passContext;
         this.ignoreParameterCount = ignoreParameterCount;
+        this.rateLimiter = rateLimiter;
+        this.circuitBreaker = circuitBreaker;
     }
 
     /**
@@ -89,6 +101,13 @@ public class CommandWrapper {
         return method;
     }
 
+    /**
+     * @return The pre-linked invoker that executes the command.
+     */
+    public CommandInvoker getInvoker() {
+        return invoker;
+    }
+
     /**
      * @return True if the command should be available in private messages.
      */
@@ -123,4 +142,19 @@ public class CommandWrapper {
     public boolean isIgnoreParameterCount() {
         return ignoreParameterCount;
     }
+
+    /**
+     * @return The rate limiter for this command, or null if the command is not rate limited.
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * @return The circuit breaker that stops this command from being invoked after repeated failures, or null if the
+     * command is never disabled.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
 }
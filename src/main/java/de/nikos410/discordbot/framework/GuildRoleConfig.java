@@ -0,0 +1,59 @@
+package de.nikos410.discordbot.framework;
+
+import org.json.JSONObject;
+
+/**
+ * Immutable snapshot of the roles that are configured for a guild in the roles file.
+ */
+public class GuildRoleConfig {
+    /**
+     * Used for guilds that have no roles configured.
+     */
+    public static final GuildRoleConfig UNCONFIGURED = new GuildRoleConfig(0L, 0L);
+
+    private final long adminRoleID;
+    private final long modRoleID;
+
+    private GuildRoleConfig(final long adminRoleID, final long modRoleID) {
+        this.adminRoleID = adminRoleID;
+        this.modRoleID = modRoleID;
+    }
+
+    /**
+     * Create a snapshot from the JSON object of a guild in the roles file.
+     *
+     * @param guildRoles The JSON object containing the role IDs.
+     * @return The snapshot.
+     */
+    public static GuildRoleConfig fromJSON(final JSONObject guildRoles) {
+        return new GuildRoleConfig(guildRoles.optLong("adminRole", 0L), guildRoles.optLong("modRole", 0L));
+    }
+
+    /**
+     * @return True if an admin role is configured.
+     */
+    public boolean hasAdminRole() {
+        return adminRoleID != 0L;
+    }
+
+    /**
+     * @return The ID of the admin role, or 0 if none is configured.
+     */
+    public long getAdminRoleID() {
+        return adminRoleID;
+    }
+
+    /**
+     * @return True if a moderator role is configured.
+     */
+    public boolean hasModRole() {
+        return modRoleID != 0L;
+    }
+
+    /**
+     * @return The ID of the moderator role, or 0 if none is configured.
+     */
+    public long getModRoleID() {
+        return modRoleID;
+    }
+}
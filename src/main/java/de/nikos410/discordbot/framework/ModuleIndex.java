@@ -0,0 +1,96 @@
+package de.nikos410.discordbot.framework;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The index of all modules and their commands. It is generated at compile time by the ModuleIndexProcessor
+ * (src/processor) and contains the class name of every module, its dependencies and the properties of each of its
+ * commands.
+ */
+public class ModuleIndex {
+    private static final String INDEX_PATH = "/META-INF/de-discordbot/module-index.json";
+
+    // Module class name -> commands of that module
+    private final Map<String, JSONArray> modules;
+    // Module class name -> class names of the modules it depends on
+    private final Map<String, List<String>> dependencies;
+
+    private ModuleIndex(final Map<String, JSONArray> modules, final Map<String, List<String>> dependencies) {
+        this.modules = modules;
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * Load the index from the classpath.
+     *
+     * @return The loaded index.
+     * @throws IOException If the index does not exist or could not be read.
+     */
+    public static ModuleIndex load() throws IOException {
+        try (InputStream stream = ModuleIndex.class.getResourceAsStream(INDEX_PATH)) {
+            if (stream == null) {
+                throw new IOException("Module index " + INDEX_PATH + " not found. Was the annotation processor run?");
+            }
+
+            final Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8);
+            final JSONObject indexJSON = new JSONObject(new JSONTokener(reader));
+
+            final Map<String, JSONArray> modules = new LinkedHashMap<>();
+            final Map<String, List<String>> dependencies = new HashMap<>();
+            final JSONArray modulesJSON = indexJSON.getJSONArray("modules");
+            for (int i = 0; i < modulesJSON.length(); i++) {
+                final JSONObject moduleJSON = modulesJSON.getJSONObject(i);
+                final String className = moduleJSON.getString("class");
+                modules.put(className, moduleJSON.getJSONArray("commands"));
+
+                final List<String> moduleDependencies = new ArrayList<>();
+                final JSONArray dependenciesJSON = moduleJSON.getJSONArray("dependencies");
+                for (int j = 0; j < dependenciesJSON.length(); j++) {
+                    moduleDependencies.add(dependenciesJSON.getString(j));
+                }
+                dependencies.put(className, moduleDependencies);
+            }
+
+            return new ModuleIndex(modules, dependencies);
+        }
+    }
+
+    /**
+     * @return The fully qualified class names of all modules.
+     */
+    public Set<String> getModuleClassNames() {
+        return Collections.unmodifiableSet(modules.keySet());
+    }
+
+    /**
+     * Get the modules a module depends on, as declared with {@link de.nikos410.discordbot.framework.annotations.DependsOn}.
+     *
+     * @param moduleClass The class of the module.
+     * @return The fully qualified class names of the dependencies.
+     */
+    public List<String> getDependencies(final Class<? extends CommandModule> moduleClass) {
+        return dependencies.getOrDefault(moduleClass.getName(), Collections.emptyList());
+    }
+
+    /**
+     * Get the commands of a module. Every command is a JSON object containing the name of the method
+     * ("method"), the fully qualified names of its parameter types ("parameterTypes"), the descriptions of its
+     * parameters ("parameters") and all properties of its {@link de.nikos410.discordbot.framework.annotations.CommandSubscriber}
+     * annotation.
+     *
+     * @param moduleClass The class of the module.
+     * @return The commands, or an empty array if the module is not in the index.
+     */
+    public JSONArray getCommands(final Class<? extends CommandModule> moduleClass) {
+        return modules.getOrDefault(moduleClass.getName(), new JSONArray());
+    }
+}
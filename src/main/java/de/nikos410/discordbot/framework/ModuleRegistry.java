@@ -0,0 +1,120 @@
+package de.nikos410.discordbot.framework;
+
+import de.nikos410.discordbot.framework.ModuleWrapper.ModuleStatus;
+
+import java.util.*;
+
+/**
+ * Immutable snapshot of all modules and the active commands. A new snapshot is created whenever a module is activated
+ * or deactivated, so readers always get a consistent view without locking. The modules are snapshots as well
+ * ({@link ModuleWrapper#snapshot()}), so a module that is unloaded later still has its instance in this registry.
+ * All derived views are computed once when the snapshot is created.
+ */
+public class ModuleRegistry {
+    private final Map<String, ModuleWrapper> modules;
+    private final List<ModuleWrapper> loadedModules;
+    private final List<ModuleWrapper> unloadedModules;
+    private final List<ModuleWrapper> failedModules;
+    private final Map<ModuleWrapper, List<CommandWrapper>> commandsByModule;
+    private final Map<String, CommandWrapper> activeCommands;
+    private final CommandRouter router;
+
+    /**
+     * Create a snapshot of the current state of the given modules.
+     *
+     * @param prefix The prefix of the bot's commands.
+     * @param modules All known modules. Key is the module name.
+     */
+    public ModuleRegistry(final String prefix, final Map<String, ModuleWrapper> modules) {
+        final Map<String, ModuleWrapper> snapshots = new HashMap<>();
+        for (Map.Entry<String, ModuleWrapper> entry : modules.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        this.modules = Collections.unmodifiableMap(snapshots);
+
+        final List<ModuleWrapper> loaded = new ArrayList<>();
+        final List<ModuleWrapper> unloaded = new ArrayList<>();
+        final List<ModuleWrapper> failed = new ArrayList<>();
+        final Map<ModuleWrapper, List<CommandWrapper>> commands = new HashMap<>();
+        final Map<String, CommandWrapper> active = new HashMap<>();
+
+        for (ModuleWrapper module : snapshots.values()) {
+            final ModuleStatus status = module.getStatus();
+            if (status == ModuleStatus.ACTIVE) {
+                loaded.add(module);
+
+                final List<CommandWrapper> moduleCommands = module.getCommands() == null ?
+                        Collections.emptyList() : module.getCommands();
+                commands.put(module, moduleCommands);
+                for (CommandWrapper command : moduleCommands) {
+                    active.put(command.getName().toLowerCase(), command);
+                }
+            }
+            else if (status == ModuleStatus.INACTIVE) {
+                unloaded.add(module);
+            }
+            else if (status == ModuleStatus.FAILED) {
+                failed.add(module);
+            }
+        }
+
+        this.loadedModules = Collections.unmodifiableList(loaded);
+        this.unloadedModules = Collections.unmodifiableList(unloaded);
+        this.failedModules = Collections.unmodifiableList(failed);
+        this.commandsByModule = commands;
+        this.activeCommands = Collections.unmodifiableMap(active);
+        this.router = new CommandRouter(prefix, active.values());
+    }
+
+    /**
+     * @return All known modules. Key is the module name.
+     */
+    public Map<String, ModuleWrapper> getModules() {
+        return modules;
+    }
+
+    /**
+     * @return The modules that were active when the snapshot was created.
+     */
+    public List<ModuleWrapper> getLoadedModules() {
+        return loadedModules;
+    }
+
+    /**
+     * @return The modules that were inactive when the snapshot was created.
+     */
+    public List<ModuleWrapper> getUnloadedModules() {
+        return unloadedModules;
+    }
+
+    /**
+     * @return The modules that could not be loaded.
+     */
+    public List<ModuleWrapper> getFailedModules() {
+        return failedModules;
+    }
+
+    /**
+     * Get the commands of a module.
+     *
+     * @param module The module.
+     * @return The commands of the module, or an empty list if the module was not active.
+     */
+    public List<CommandWrapper> getCommands(final ModuleWrapper module) {
+        return commandsByModule.getOrDefault(module, Collections.emptyList());
+    }
+
+    /**
+     * @return All active commands. Key is the command name in lower case.
+     */
+    public Map<String, CommandWrapper> getActiveCommands() {
+        return activeCommands;
+    }
+
+    /**
+     * @return The router that finds the active commands in messages.
+     */
+    public CommandRouter getRouter() {
+        return router;
+    }
+}
@@ -1,23 +1,53 @@
 package de.nikos410.discordbot.framework;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Wrapper class containing a bot module's instance and a list of all commands in this module.
+ *
+ * The wrapper is changed when the module is loaded or unloaded. {@link ModuleRegistry} only hands out snapshots
+ * created with {@link #snapshot()}, which keep the state of that moment and can not be changed.
  */
 public class ModuleWrapper {
     private final Class<? extends CommandModule> moduleClass;
     private final String name;
+    private final boolean snapshot;
 
-    private String displayName;
-    private String description;
-    private CommandModule instance;
-    private List<CommandWrapper> commands;
-    private ModuleStatus status;
+    private volatile String displayName;
+    private volatile String description;
+    private volatile CommandModule instance;
+    private volatile List<CommandWrapper> commands;
+    private volatile ModuleStatus status;
 
     public ModuleWrapper(final Class<? extends CommandModule> moduleClass) {
         this.moduleClass = moduleClass;
         this.name = moduleClass.getSimpleName();
+        this.snapshot = false;
+    }
+
+    private ModuleWrapper(final ModuleWrapper source) {
+        this.moduleClass = source.moduleClass;
+        this.name = source.name;
+        this.snapshot = true;
+
+        // Read the status first, the other fields are set before a module becomes active
+        this.status = source.status;
+        this.displayName = source.displayName;
+        this.description = source.description;
+        this.instance = source.instance;
+        final List<CommandWrapper> sourceCommands = source.commands;
+        this.commands = sourceCommands == null ? null : Collections.unmodifiableList(new ArrayList<>(sourceCommands));
+    }
+
+    /**
+     * Create a copy of the current state that can not be changed.
+     *
+     * @return The snapshot.
+     */
+    public ModuleWrapper snapshot() {
+        return new ModuleWrapper(this);
     }
 
     public Class<? extends CommandModule> getModuleClass() {
@@ -33,6 +63,7 @@ public class ModuleWrapper {
     }
 
     public void setDisplayName(final String displayName) {
+        checkNotSnapshot();
         this.displayName = displayName;
     }
 
@@ -41,6 +72,7 @@ public class ModuleWrapper {
     }
 
     public void setDescription(String description) {
+        checkNotSnapshot();
         this.description = description;
     }
 
@@ -49,6 +81,7 @@ public class ModuleWrapper {
     }
 
     public void setInstance(final CommandModule instance) {
+        checkNotSnapshot();
         this.instance = instance;
     }
 
@@ -57,6 +90,7 @@ public class ModuleWrapper {
     }
 
     public void setCommands(final List<CommandWrapper> commands) {
+        checkNotSnapshot();
         this.commands = commands;
     }
 
@@ -65,9 +99,16 @@ public class ModuleWrapper {
     }
 
     public void setStatus(final ModuleStatus status) {
+        checkNotSnapshot();
         this.status = status;
     }
 
+    private void checkNotSnapshot() {
+        if (snapshot) {
+            throw new UnsupportedOperationException("A snapshot of a module can not be changed.");
+        }
+    }
+
     /**
      * Enum for specifying the current status of a module.
      */
@@ -0,0 +1,95 @@
+package de.nikos410.discordbot.framework;
+
+/**
+ * Splits the parameters of a command in a single pass over the message content. Parameters are separated by spaces
+ * or tabs, a parameter can contain separators if it is enclosed in double quotes. Only the parameters the command
+ * accepts are copied out of the message.
+ */
+public class ParameterTokenizer {
+    private ParameterTokenizer() {
+    }
+
+    /**
+     * Parse the parameters from the message content.
+     *
+     * @param content The full message content.
+     * @param offset The index in the content where the parameters start, i.e. after the prefix and command name.
+     * @param parameters The array to fill with the parameters. Its length is the number of parameters to parse.
+     *                   Entries for which no parameter was given are left untouched.
+     * @param passContext If true, the last parameter contains the remaining content, including all separators.
+     *                    If false, additional content is ignored.
+     * @return The number of parameters that were found.
+     */
+    public static int tokenize(final String content, final int offset, final String[] parameters, final boolean passContext) {
+        final int length = content.length();
+
+        // Skip leading whitespace, this may include a line break after the command name
+        int position = offset;
+        while (position < length && CommandRouter.isSeparator(content.charAt(position))) {
+            position++;
+        }
+
+        int found = 0;
+        while (found < parameters.length && position < length) {
+            final boolean last = found == parameters.length - 1;
+
+            final int tokenStart;
+            final int tokenEnd;
+            final int next;
+
+            final int closingQuote = content.charAt(position) == '"' ? content.indexOf('"', position + 1) : -1;
+            if (closingQuote >= 0) {
+                // Quoted parameter
+                tokenStart = position + 1;
+                tokenEnd = closingQuote;
+                next = closingQuote + 1;
+            }
+            else {
+                tokenStart = position;
+                int end = position;
+                while (end < length && !isParameterSeparator(content.charAt(end))) {
+                    end++;
+                }
+                tokenEnd = end;
+                next = end;
+            }
+
+            if (last && passContext) {
+                // Use the whole remaining content, unless it consists of exactly one quoted parameter
+                final int contentEnd = trimmedEnd(content, next);
+                if (next < contentEnd) {
+                    parameters[found++] = content.substring(position, contentEnd);
+                    return found;
+                }
+            }
+
+            parameters[found++] = content.substring(tokenStart, tokenEnd);
+
+            position = next;
+            while (position < length && isParameterSeparator(content.charAt(position))) {
+                position++;
+            }
+        }
+
+        return found;
+    }
+
+    private static boolean isParameterSeparator(final char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    /**
+     * Find the end of the content, ignoring trailing whitespace.
+     *
+     * @param content The content.
+     * @param from The index from which on to look for trailing whitespace.
+     * @return The index after the last character that is not whitespace, or {@code from} if there is none.
+     */
+    private static int trimmedEnd(final String content, final int from) {
+        int end = content.length();
+        while (end > from && Character.isWhitespace(content.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+}
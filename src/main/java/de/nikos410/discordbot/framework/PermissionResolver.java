@@ -0,0 +1,154 @@
+package de.nikos410.discordbot.framework;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sx.blah.discord.api.events.EventSubscriber;
+import sx.blah.discord.handle.impl.events.guild.GuildLeaveEvent;
+import sx.blah.discord.handle.impl.events.guild.member.UserLeaveEvent;
+import sx.blah.discord.handle.impl.events.guild.member.UserRoleUpdateEvent;
+import sx.blah.discord.handle.impl.events.guild.role.RoleDeleteEvent;
+import sx.blah.discord.handle.impl.events.guild.role.RoleUpdateEvent;
+import sx.blah.discord.handle.obj.IGuild;
+import sx.blah.discord.handle.obj.IRole;
+import sx.blah.discord.handle.obj.IUser;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves and caches the permission levels of users. The cache is invalidated when the roles of a user or guild
+ * change, or when the role configuration is changed.
+ */
+public class PermissionResolver {
+    private static final Logger LOG = LoggerFactory.getLogger(PermissionResolver.class);
+
+    private final long ownerID;
+
+    // Replaced as a whole when the role configuration changes
+    private volatile State state;
+
+    /**
+     * Create a new resolver.
+     *
+     * @param ownerID The ID of the bot's owner, who always has the permission level {@link PermissionLevel#OWNER}.
+     * @param rolesJSON The content of the roles file.
+     */
+    public PermissionResolver(final long ownerID, final JSONObject rolesJSON) {
+        this.ownerID = ownerID;
+        reloadRoleConfig(rolesJSON);
+    }
+
+    /**
+     * Replace the role configuration of all guilds and clear the cache.
+     *
+     * @param rolesJSON The content of the roles file.
+     */
+    public void reloadRoleConfig(final JSONObject rolesJSON) {
+        final Map<Long, GuildRoleConfig> roleConfigs = new ConcurrentHashMap<>();
+        for (String guildID : rolesJSON.keySet()) {
+            final GuildRoleConfig config = GuildRoleConfig.fromJSON(rolesJSON.getJSONObject(guildID));
+
+            if (!config.hasAdminRole()) {
+                LOG.warn("Admin role for guild with ID {} is not configured!", guildID);
+            }
+            if (!config.hasModRole()) {
+                LOG.warn("Moderator role for guild with ID {} is not configured!", guildID);
+            }
+
+            roleConfigs.put(Long.parseLong(guildID), config);
+        }
+
+        // Lookups that are still running fill the old cache, which is discarded
+        state = new State(roleConfigs);
+    }
+
+    /**
+     * Get the permission level of a user on a guild. Returns {@link PermissionLevel#EVERYONE} if no roles are
+     * configured for the specified guild.
+     *
+     * @param user The user whose permission level gets returned
+     * @param guild The guild on which the permission level counts, may be null (e.g. in PMs)
+     * @return The user's permission level on the guild
+     */
+    public PermissionLevel getUserPermissionLevel(final IUser user, final IGuild guild) {
+        // User is the configured owner of the bot
+        if (user.getLongID() == ownerID) {
+            return PermissionLevel.OWNER;
+        }
+
+        // No guild (maybe PM)
+        if (guild == null) {
+            return PermissionLevel.EVERYONE;
+        }
+
+        final State currentState = state;
+        return currentState.cache.computeIfAbsent(guild.getLongID(), id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(user.getLongID(), id -> resolve(currentState, user, guild));
+    }
+
+    private PermissionLevel resolve(final State currentState, final IUser user, final IGuild guild) {
+        final GuildRoleConfig config = currentState.roleConfigs.computeIfAbsent(guild.getLongID(), id -> {
+            // Only warn once per guild
+            LOG.warn("Roles for guild {} (ID: {}) are not configured!", guild.getName(), guild.getStringID());
+            return GuildRoleConfig.UNCONFIGURED;
+        });
+
+        for (IRole role : user.getRolesForGuild(guild)) {
+            final long roleID = role.getLongID();
+            if (config.hasAdminRole() && roleID == config.getAdminRoleID()) {
+                return PermissionLevel.ADMIN;
+            }
+            if (config.hasModRole() && roleID == config.getModRoleID()) {
+                return PermissionLevel.ADMIN;
+            }
+        }
+        return PermissionLevel.EVERYONE;
+    }
+
+    private void invalidate(final IGuild guild, final IUser user) {
+        final Map<Long, PermissionLevel> guildCache = state.cache.get(guild.getLongID());
+        if (guildCache != null) {
+            guildCache.remove(user.getLongID());
+        }
+    }
+
+    @EventSubscriber
+    public void onUserRoleUpdate(final UserRoleUpdateEvent event) {
+        invalidate(event.getGuild(), event.getUser());
+    }
+
+    @EventSubscriber
+    public void onUserLeave(final UserLeaveEvent event) {
+        invalidate(event.getGuild(), event.getUser());
+    }
+
+    @EventSubscriber
+    public void onRoleUpdate(final RoleUpdateEvent event) {
+        state.cache.remove(event.getGuild().getLongID());
+    }
+
+    @EventSubscriber
+    public void onRoleDelete(final RoleDeleteEvent event) {
+        state.cache.remove(event.getGuild().getLongID());
+    }
+
+    @EventSubscriber
+    public void onGuildLeave(final GuildLeaveEvent event) {
+        state.cache.remove(event.getGuild().getLongID());
+    }
+
+    /**
+     * The role configuration together with the levels resolved from it.
+     */
+    private static class State {
+        // Guild ID -> configured roles
+        private final Map<Long, GuildRoleConfig> roleConfigs;
+        // Guild ID -> (User ID -> permission level)
+        private final Map<Long, Map<Long, PermissionLevel>> cache = new ConcurrentHashMap<>();
+
+        private State(final Map<Long, GuildRoleConfig> roleConfigs) {
+            this.roleConfigs = roleConfigs;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package de.nikos410.discordbot.framework;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how often each user can use a command. Works like a token bucket per user: a user can use the command
+ * {@code rateLimit} times in a row, each use is refilled after {@code cooldown}.
+ *
+ * Only a single timestamp is stored per user (the time at which the bucket would be full again). Users whose bucket
+ * is full again are removed from time to time, so the memory usage depends only on the number of users that
+ * recently used the command.
+ */
+public class RateLimiter {
+    private static final int MIN_PURGE_THRESHOLD = 1024;
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+
+    // User ID -> time (System.nanoTime) at which the user's bucket is full again
+    private final Map<Long, Long> fullAt = new ConcurrentHashMap<>();
+    private volatile int purgeThreshold = MIN_PURGE_THRESHOLD;
+
+    /**
+     * Create a new rate limiter.
+     *
+     * @param rateLimit The number of times a user can use the command in a row.
+     * @param cooldown The time after which a single use is refilled.
+     * @param unit The unit of the cooldown.
+     */
+    public RateLimiter(final int rateLimit, final long cooldown, final TimeUnit unit) {
+        this.intervalNanos = unit.toNanos(cooldown);
+        this.toleranceNanos = intervalNanos * (Math.max(rateLimit, 1) - 1);
+    }
+
+    /**
+     * Try to use the command. Never blocks.
+     *
+     * @param userID The ID of the user who wants to use the command.
+     * @return True if the user is allowed to use the command, false if the user is rate limited.
+     */
+    public boolean tryAcquire(final long userID) {
+        final long now = System.nanoTime();
+
+        // Fast path for rejections: don't lock anything
+        final Long current = fullAt.get(userID);
+        if (current != null && current - now > toleranceNanos) {
+            return false;
+        }
+
+        final boolean[] acquired = new boolean[1];
+        fullAt.compute(userID, (id, previous) -> {
+            final long start = previous == null || previous - now < 0 ? now : previous;
+            if (start - now > toleranceNanos) {
+                return previous;
+            }
+            acquired[0] = true;
+            return start + intervalNanos;
+        });
+
+        if (fullAt.size() > purgeThreshold) {
+            purge(now);
+        }
+
+        return acquired[0];
+    }
+
+    /**
+     * Remove users whose bucket is full again. Those entries behave the same as missing ones.
+     *
+     * @param now The current time.
+     */
+    private void purge(final long now) {
+        fullAt.values().removeIf(time -> time - now <= 0);
+        purgeThreshold = Math.max(MIN_PURGE_THRESHOLD, fullAt.size() * 2);
+    }
+
+    /**
+     * @return The number of users that are currently tracked.
+     */
+    public int size() {
+        return fullAt.size();
+    }
+}
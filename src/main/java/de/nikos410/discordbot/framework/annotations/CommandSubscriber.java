@@ -16,4 +16,15 @@ public @interface CommandSubscriber {
     PermissionLevel permissionLevel() default PermissionLevel.EVERYONE;
     boolean passContext() default true;
     boolean ignoreParameterCount() default false;
+
+    /**
+     * The number of times a user can use the command in a row before the cooldown applies.
+     */
+    int rateLimit() default 1;
+
+    /**
+     * The time in seconds after which a single use of the command is available to the user again. 0 disables
+     * rate limiting.
+     */
+    int cooldown() default 0;
 }
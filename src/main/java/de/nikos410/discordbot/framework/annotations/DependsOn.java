@@ -0,0 +1,18 @@
+package de.nikos410.discordbot.framework.annotations;
+
+import de.nikos410.discordbot.framework.CommandModule;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares modules that have to be initialized before the annotated module. The module fails to load if one of its
+ * dependencies is not active.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.CLASS)
+public @interface DependsOn {
+    Class<? extends CommandModule>[] value();
+}
@@ -0,0 +1,66 @@
+package de.nikos410.discordbot.framework.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the {@link CommandStats} of all commands. The stats are kept by command name, so they survive reloading
+ * the module. Every command's stats are registered as an MBean named
+ * {@code de.nikos410.discordbot:type=CommandStats,name=<command>}.
+ */
+public class CommandMetrics {
+    private static final Logger LOG = LoggerFactory.getLogger(CommandMetrics.class);
+
+    private static final String MBEAN_DOMAIN = "de.nikos410.discordbot";
+
+    private final Map<String, CommandStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * Get the stats of a command. They are created and registered as an MBean if they don't exist yet.
+     *
+     * @param commandName The name of the command.
+     * @return The stats of the command.
+     */
+    public CommandStats get(final String commandName) {
+        final CommandStats existing = stats.get(commandName);
+        if (existing != null) {
+            return existing;
+        }
+
+        return stats.computeIfAbsent(commandName, name -> {
+            final CommandStats created = new CommandStats(name);
+            registerMBean(created);
+            return created;
+        });
+    }
+
+    /**
+     * @return The stats of all commands that were used at least once.
+     */
+    public List<CommandStats> getAll() {
+        return new ArrayList<>(stats.values());
+    }
+
+    private static void registerMBean(final CommandStats commandStats) {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(MBEAN_DOMAIN + ":type=CommandStats,name="
+                    + ObjectName.quote(commandStats.getCommandName()));
+            if (!server.isRegistered(name)) {
+                server.registerMBean(commandStats, name);
+            }
+        }
+        catch (JMException | SecurityException e) {
+            LOG.warn("Could not register MBean for command {}.", commandStats.getCommandName(), e);
+        }
+    }
+}
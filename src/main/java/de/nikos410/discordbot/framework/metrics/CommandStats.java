@@ -0,0 +1,164 @@
+package de.nikos410.discordbot.framework.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and the latency histogram of a single command.
+ */
+public class CommandStats implements CommandStatsMBean {
+    /**
+     * The reasons why a command was not executed.
+     */
+    public enum Rejection {
+        PM_NOT_ALLOWED,
+        PERMISSION_DENIED,
+        WRONG_PARAMETER_COUNT,
+        RATE_LIMITED,
+        QUEUE_FULL,
+        COMMAND_DISABLED
+    }
+
+    private final String commandName;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLongArray rejections = new AtomicLongArray(Rejection.values().length);
+
+    CommandStats(final String commandName) {
+        this.commandName = commandName;
+    }
+
+    /**
+     * Record an execution of the command.
+     *
+     * @param durationNanos The time it took to execute the command.
+     * @param failed True if the command threw an exception.
+     */
+    public void recordExecution(final long durationNanos, final boolean failed) {
+        latency.record(durationNanos, TimeUnit.NANOSECONDS);
+        if (failed) {
+            failures.incrementAndGet();
+        }
+    }
+
+    /**
+     * Record that the command was not executed.
+     *
+     * @param reason The reason why the command was not executed.
+     */
+    public void recordRejection(final Rejection reason) {
+        rejections.incrementAndGet(reason.ordinal());
+    }
+
+    /**
+     * @return The number of executions, including failed ones.
+     */
+    public long getExecutedCount() {
+        return latency.getCount();
+    }
+
+    /**
+     * Get the number of times the command was not executed for a specific reason.
+     *
+     * @param reason The reason.
+     * @return The number of rejections.
+     */
+    public long getRejectedCount(final Rejection reason) {
+        return rejections.get(reason.ordinal());
+    }
+
+    /**
+     * @return The number of times the command was not executed for any reason.
+     */
+    public long getRejectedCount() {
+        long total = 0;
+        for (int i = 0; i < rejections.length(); i++) {
+            total += rejections.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * @return The latency histogram of all executions.
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String getCommandName() {
+        return commandName;
+    }
+
+    @Override
+    public long getSucceededCount() {
+        return getExecutedCount() - getFailedCount();
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failures.get();
+    }
+
+    @Override
+    public long getRejectedPmNotAllowedCount() {
+        return getRejectedCount(Rejection.PM_NOT_ALLOWED);
+    }
+
+    @Override
+    public long getRejectedPermissionDeniedCount() {
+        return getRejectedCount(Rejection.PERMISSION_DENIED);
+    }
+
+    @Override
+    public long getRejectedWrongParametersCount() {
+        return getRejectedCount(Rejection.WRONG_PARAMETER_COUNT);
+    }
+
+    @Override
+    public long getRateLimitedCount() {
+        return getRejectedCount(Rejection.RATE_LIMITED);
+    }
+
+    @Override
+    public long getQueueFullCount() {
+        return getRejectedCount(Rejection.QUEUE_FULL);
+    }
+
+    @Override
+    public long getCommandDisabledCount() {
+        return getRejectedCount(Rejection.COMMAND_DISABLED);
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.getMeanMillis();
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.getPercentileMillis(50);
+    }
+
+    @Override
+    public double getP90Millis() {
+        return latency.getPercentileMillis(90);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.getPercentileMillis(99);
+    }
+
+    @Override
+    public double getP999Millis() {
+        return latency.getPercentileMillis(99.9);
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.getMaxMillis();
+    }
+}
@@ -0,0 +1,36 @@
+package de.nikos410.discordbot.framework.metrics;
+
+/**
+ * JMX view of the metrics of a single command. Latencies are in milliseconds.
+ */
+public interface CommandStatsMBean {
+    String getCommandName();
+
+    long getSucceededCount();
+
+    long getFailedCount();
+
+    long getRejectedPmNotAllowedCount();
+
+    long getRejectedPermissionDeniedCount();
+
+    long getRejectedWrongParametersCount();
+
+    long getRateLimitedCount();
+
+    long getQueueFullCount();
+
+    long getCommandDisabledCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+}
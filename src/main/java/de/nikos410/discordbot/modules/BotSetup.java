@@ -1,11 +1,16 @@
 package de.nikos410.discordbot.modules;
 
+import de.nikos410.discordbot.framework.CircuitBreaker;
+import de.nikos410.discordbot.framework.CommandExecutor;
 import de.nikos410.discordbot.framework.CommandModule;
 import de.nikos410.discordbot.framework.CommandWrapper;
+import de.nikos410.discordbot.framework.ModuleRegistry;
 import de.nikos410.discordbot.framework.ModuleWrapper;
 import de.nikos410.discordbot.framework.PermissionLevel;
 import de.nikos410.discordbot.framework.annotations.CommandParameter;
 import de.nikos410.discordbot.framework.annotations.CommandSubscriber;
+import de.nikos410.discordbot.framework.metrics.CommandStats;
+import de.nikos410.discordbot.framework.metrics.LatencyHistogram;
 import de.nikos410.discordbot.util.discord.GuildUtils;
 import de.nikos410.discordbot.util.discord.UserUtils;
 import org.json.JSONObject;
@@ -18,6 +23,7 @@ import sx.blah.discord.util.EmbedBuilder;
 import sx.blah.discord.util.RateLimitException;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 public class BotSetup extends CommandModule {
     private static final Logger LOG = LoggerFactory.getLogger(BotSetup.class);
@@ -32,7 +38,8 @@ public class BotSetup extends CommandModule {
         return "Mit diesem Modul kann der Bot konfiguriert und für einen Server eingerichtet werden.";
     }
 
-    @CommandSubscriber(command = "help", help = "Zeigt diese Hilfe an", ignoreParameterCount = true, passContext = false)
+    @CommandSubscriber(command = "help", help = "Zeigt diese Hilfe an", ignoreParameterCount = true, passContext = false,
+            rateLimit = 3, cooldown = 10)
     public void command_help(final IMessage message,
                              @CommandParameter(name = "Befehl", help = "Der Befehl, für den die Hilfe angezeigt werden soll. Wenn leer, werden alle Befehle aufgelistet.")
                              final String subject) {
@@ -56,13 +63,14 @@ public class BotSetup extends CommandModule {
 
     private EmbedObject globalHelp(final IUser user, final IGuild guild) {
         final EmbedBuilder helpEmbedBuilder = new EmbedBuilder();
-        for (ModuleWrapper module : bot.getLoadedModules()) {
+        final PermissionLevel userPermissionLevel = bot.getUserPermissionLevel(user, guild);
+        final ModuleRegistry registry = bot.getModuleRegistry();
+        for (ModuleWrapper module : registry.getLoadedModules()) {
             final StringBuilder moduleHelpBuilder = new StringBuilder();
 
-            for (CommandWrapper command : module.getCommands()) {
+            for (CommandWrapper command : registry.getCommands(module)) {
                 // Only list commands that are available to that user
-                if (bot.getUserPermissionLevel(user, guild).getLevel()
-                        >= command.getPermissionLevel().getLevel()) {
+                if (userPermissionLevel.getLevel() >= command.getPermissionLevel().getLevel()) {
 
                     moduleHelpBuilder.append(String.format("`%s` - %s%n", command.getName(), command.getHelp()));
                 }
@@ -202,14 +210,59 @@ public class BotSetup extends CommandModule {
 
     @CommandSubscriber(command = "shutdown", help = "Schaltet den Bot aus", permissionLevel = PermissionLevel.OWNER)
     public void command_shutdown(final IMessage message) {
-        messageService.sendMessage(message.getChannel(), "Ausschalten... :zzz:");
+        // Messages are sent asynchronously, wait until the message was sent before logging out
+        messageService.sendMessage(message.getChannel(), "Ausschalten... :zzz:")
+                .handle((sentMessages, throwable) -> sentMessages)
+                .join();
 
         LOG.info("Shutting down modules.");
         bot.getLoadedModules().forEach(module -> module.getInstance().shutdown());
+        bot.getCommandExecutor().shutdown();
+        bot.getPersistenceManager().shutdown();
 
         this.bot.getClient().logout();
     }
 
+    @CommandSubscriber(command = "commandqueue", help = "Auslastung der Befehlsausführung anzeigen", permissionLevel = PermissionLevel.OWNER)
+    public void command_commandQueue(final IMessage message) {
+        final CommandExecutor executor = bot.getCommandExecutor();
+
+        final EmbedBuilder embedBuilder = new EmbedBuilder();
+        embedBuilder.appendField("Threads", executor.isVirtualThreads() ? "virtuell" : String.valueOf(executor.getThreadCount()), true);
+        embedBuilder.appendField("Aktive Warteschlangen", String.valueOf(executor.getActiveQueueCount()), true);
+        embedBuilder.appendField("Wartende Befehle", String.valueOf(executor.getQueuedCount()), true);
+        embedBuilder.appendField("Ausgeführt", String.valueOf(executor.getExecutedCount()), true);
+        embedBuilder.appendField("Abgelehnt", String.valueOf(executor.getRejectedCount()), true);
+        embedBuilder.appendField("Wartezeit",
+                String.format("Ø %.1f ms | max. %.1f ms", executor.getAverageWaitMillis(), executor.getMaxWaitMillis()), true);
+
+        messageService.sendEmbed(message.getChannel(), embedBuilder.build());
+    }
+
+    @CommandSubscriber(command = "commandstats", help = "Ausführungszeiten und Fehler der Befehle anzeigen", permissionLevel = PermissionLevel.OWNER)
+    public void command_commandStats(final IMessage message) {
+        // Slowest commands first
+        final List<CommandStats> allStats = bot.getCommandMetrics().getAll();
+        allStats.sort(Comparator.comparingDouble(CommandStats::getP99Millis).reversed());
+
+        final EmbedBuilder embedBuilder = new EmbedBuilder();
+        if (allStats.isEmpty()) {
+            embedBuilder.withDescription("_Es wurden noch keine Befehle verwendet._");
+        }
+
+        // An embed can contain at most 25 fields
+        for (CommandStats stats : allStats.subList(0, Math.min(allStats.size(), EmbedBuilder.FIELD_COUNT_LIMIT))) {
+            final LatencyHistogram latency = stats.getLatency();
+            final String value = String.format("%d× ausgeführt | %d Fehler | %d abgelehnt%n" +
+                            "p50 %.1f ms | p99 %.1f ms | max. %.1f ms",
+                    stats.getExecutedCount(), stats.getFailedCount(), stats.getRejectedCount(),
+                    latency.getPercentileMillis(50), latency.getPercentileMillis(99), latency.getMaxMillis());
+            embedBuilder.appendField(stats.getCommandName(), value, false);
+        }
+
+        messageService.sendEmbed(message.getChannel(), embedBuilder.build());
+    }
+
     @CommandSubscriber(command = "setbotname", help = "Nutzernamen des Bots ändern", permissionLevel = PermissionLevel.OWNER)
     public void command_setUsername(final IMessage message,
                                     @CommandParameter(name = "Name", help = "Der neue Username.")
@@ -228,10 +281,11 @@ public class BotSetup extends CommandModule {
     @CommandSubscriber(command = "modules", help = "Alle Module anzeigen")
     public void command_listModules(final IMessage message) {
         final EmbedBuilder embedBuilder = new EmbedBuilder();
+        final ModuleRegistry registry = bot.getModuleRegistry();
 
         // List loaded modules
         final StringBuilder loadedBuilder = new StringBuilder();
-        for (ModuleWrapper module : bot.getLoadedModules()) {
+        for (ModuleWrapper module : registry.getLoadedModules()) {
             loadedBuilder.append(module.getName());
             loadedBuilder.append('\n');
         }
@@ -240,7 +294,7 @@ public class BotSetup extends CommandModule {
 
         // List unloaded modules
         final StringBuilder unloadedBuilder = new StringBuilder();
-        for (ModuleWrapper module : bot.getUnloadedModules()) {
+        for (ModuleWrapper module : registry.getUnloadedModules()) {
             unloadedBuilder.append(module.getName());
             unloadedBuilder.append('\n');
         }
@@ -248,7 +302,7 @@ public class BotSetup extends CommandModule {
         embedBuilder.appendField("Deaktivierte Module", unloadedModulesString, true);
 
         // Add failed modules, if present
-        final List<ModuleWrapper> failedModules = bot.getFailedModules();
+        final List<ModuleWrapper> failedModules = registry.getFailedModules();
         if (!failedModules.isEmpty()) {
             final StringBuilder failedBuilder = new StringBuilder();
             for (ModuleWrapper module : failedModules) {
@@ -258,6 +312,28 @@ public class BotSetup extends CommandModule {
             embedBuilder.appendField("Folgende Module konnten nicht geladen werden:", failedBuilder.toString(), true);
         }
 
+        // Add commands that are temporarily disabled because of repeated errors, if present
+        final StringBuilder brokenBuilder = new StringBuilder();
+        for (ModuleWrapper module : registry.getLoadedModules()) {
+            for (CommandWrapper command : module.getCommands()) {
+                final CircuitBreaker circuitBreaker = command.getCircuitBreaker();
+                if (circuitBreaker == null) {
+                    continue;
+                }
+
+                if (circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+                    brokenBuilder.append(String.format("%s (%s, noch %d Sekunden)\n", command.getName(), module.getName(),
+                            TimeUnit.MILLISECONDS.toSeconds(circuitBreaker.getRemainingOpenMillis())));
+                }
+                else if (circuitBreaker.getState() == CircuitBreaker.State.HALF_OPEN) {
+                    brokenBuilder.append(String.format("%s (%s, wird getestet)\n", command.getName(), module.getName()));
+                }
+            }
+        }
+        if (brokenBuilder.length() > 0) {
+            embedBuilder.appendField("Wegen Fehlern vorübergehend deaktiviert:", brokenBuilder.toString(), true);
+        }
+
         messageService.sendEmbed(message.getChannel(), embedBuilder.build());
     }
 
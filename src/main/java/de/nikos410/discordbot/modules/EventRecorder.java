@@ -0,0 +1,280 @@
+package de.nikos410.discordbot.modules;
+
+import de.nikos410.discordbot.framework.CommandModule;
+import de.nikos410.discordbot.framework.CommandWrapper;
+import de.nikos410.discordbot.framework.PermissionLevel;
+import de.nikos410.discordbot.framework.annotations.CommandParameter;
+import de.nikos410.discordbot.framework.annotations.CommandSubscriber;
+import de.nikos410.discordbot.util.io.EventLogRecord;
+import de.nikos410.discordbot.util.io.EventLogRecord.Type;
+import de.nikos410.discordbot.util.io.EventLogWriter;
+import de.nikos410.discordbot.util.io.IOUtil;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sx.blah.discord.api.events.EventSubscriber;
+import sx.blah.discord.handle.impl.events.guild.channel.message.MessageReceivedEvent;
+import sx.blah.discord.handle.impl.events.guild.channel.message.MessageUpdateEvent;
+import sx.blah.discord.handle.impl.events.guild.member.UserJoinEvent;
+import sx.blah.discord.handle.impl.events.guild.member.UserLeaveEvent;
+import sx.blah.discord.handle.impl.events.guild.voice.user.UserVoiceChannelJoinEvent;
+import sx.blah.discord.handle.impl.events.guild.voice.user.UserVoiceChannelLeaveEvent;
+import sx.blah.discord.handle.impl.events.guild.voice.user.UserVoiceChannelMoveEvent;
+import sx.blah.discord.handle.impl.events.user.PresenceUpdateEvent;
+import sx.blah.discord.handle.obj.IMessage;
+import sx.blah.discord.handle.obj.IPresence;
+import sx.blah.discord.util.EmbedBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Records the shape of the gateway traffic to compact binary files, to replay it in load tests. Message contents and
+ * the names of games are not stored, only a salted hash and the length of messages. Recording is off until it is
+ * started by the owner.
+ */
+public class EventRecorder extends CommandModule {
+    private static final Logger LOG = LoggerFactory.getLogger(EventRecorder.class);
+
+    private static final Path EVENT_RECORDER_PATH = Paths.get("data/eventRecorder.json");
+    private static final int QUEUE_CAPACITY = 65536;
+
+    private JSONObject eventRecorderJSON;
+    private volatile EventLogWriter writer;
+    // Events of users with a sample value below this are recorded, see isSampled
+    private volatile int sampleThreshold;
+
+    @Override
+    public String getDisplayName() {
+        return "Event-Recorder";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Zeichnet die Form des Datenverkehrs ohne Nachrichteninhalte für Lasttests auf.";
+    }
+
+    @Override
+    public boolean hasEvents() {
+        return true;
+    }
+
+    @Override
+    public void init() {
+        if (Files.exists(EVENT_RECORDER_PATH)) {
+            this.eventRecorderJSON = IOUtil.readJSON(EVENT_RECORDER_PATH);
+        }
+        else {
+            this.eventRecorderJSON = new JSONObject();
+        }
+
+        synchronized (this) {
+            // Defaults
+            if (!eventRecorderJSON.has("recording")) {
+                eventRecorderJSON.put("recording", false);
+            }
+            if (!eventRecorderJSON.has("sampleRate")) {
+                eventRecorderJSON.put("sampleRate", 1.0);
+            }
+            if (!eventRecorderJSON.has("maxFileSizeMB")) {
+                eventRecorderJSON.put("maxFileSizeMB", 64);
+            }
+            if (!eventRecorderJSON.has("directory")) {
+                eventRecorderJSON.put("directory", "data/events");
+            }
+
+            if (eventRecorderJSON.getBoolean("recording")) {
+                startRecording(eventRecorderJSON.getDouble("sampleRate"));
+            }
+        }
+        saveJSON();
+    }
+
+    @Override
+    public void shutdown() {
+        stopRecording();
+    }
+
+    @CommandSubscriber(command = "record", help = "Aufzeichnung des Datenverkehrs starten, stoppen oder anzeigen",
+            permissionLevel = PermissionLevel.OWNER, ignoreParameterCount = true, passContext = false)
+    public void command_record(final IMessage message,
+                               @CommandParameter(name = "Aktion", help = "`start`, `stop` oder `status`.")
+                               final String action,
+                               @CommandParameter(name = "Abtastrate", help = "Anteil der Nutzer, deren Events aufgezeichnet werden, zwischen 0 und 1. Standard: 1")
+                               final String sampleRateParameter) {
+        if ("start".equalsIgnoreCase(action)) {
+            final double sampleRate;
+            try {
+                sampleRate = sampleRateParameter == null ? 1.0 : Double.parseDouble(sampleRateParameter.replace(',', '.'));
+            }
+            catch (NumberFormatException e) {
+                messageService.sendMessage(message.getChannel(), "Ungültige Abtastrate.");
+                return;
+            }
+            if (sampleRate <= 0 || sampleRate > 1) {
+                messageService.sendMessage(message.getChannel(), "Die Abtastrate muss zwischen 0 und 1 liegen.");
+                return;
+            }
+
+            synchronized (this) {
+                stopRecording();
+                startRecording(sampleRate);
+                eventRecorderJSON.put("recording", true);
+                eventRecorderJSON.put("sampleRate", sampleRate);
+            }
+            saveJSON();
+
+            messageService.sendMessage(message.getChannel(), String.format(":red_circle: Aufzeichnung gestartet. (Abtastrate: %s)", sampleRate));
+        }
+        else if ("stop".equalsIgnoreCase(action)) {
+            final EventLogWriter stoppedWriter = writer;
+            synchronized (this) {
+                stopRecording();
+                eventRecorderJSON.put("recording", false);
+            }
+            saveJSON();
+
+            if (stoppedWriter == null) {
+                messageService.sendMessage(message.getChannel(), "Es läuft keine Aufzeichnung.");
+            }
+            else {
+                messageService.sendMessage(message.getChannel(), String.format(":white_check_mark: Aufzeichnung gestoppt. %s Events geschrieben, %s verworfen.",
+                        stoppedWriter.getWrittenCount(), stoppedWriter.getDroppedCount()));
+            }
+        }
+        else {
+            sendStatus(message);
+        }
+    }
+
+    private void sendStatus(final IMessage message) {
+        final EventLogWriter currentWriter = writer;
+        final double sampleRate;
+        synchronized (this) {
+            sampleRate = eventRecorderJSON.getDouble("sampleRate");
+        }
+
+        final EmbedBuilder embedBuilder = new EmbedBuilder();
+        embedBuilder.appendField("Aufzeichnung", currentWriter == null ? "aus" : "an", true);
+        embedBuilder.appendField("Abtastrate", String.valueOf(sampleRate), true);
+        if (currentWriter != null) {
+            embedBuilder.appendField("Geschrieben", String.valueOf(currentWriter.getWrittenCount()), true);
+            embedBuilder.appendField("Verworfen", String.valueOf(currentWriter.getDroppedCount()), true);
+            final Path file = currentWriter.getCurrentFile();
+            embedBuilder.appendField("Datei", file == null ? "_keine_" : file.toString(), false);
+        }
+
+        messageService.sendEmbed(message.getChannel(), embedBuilder.build());
+    }
+
+    /**
+     * Start a new recording. Only call this while synchronized on the module.
+     */
+    private void startRecording(final double sampleRate) {
+        this.sampleThreshold = (int) Math.round(sampleRate * 0x10000);
+        this.writer = new EventLogWriter(Paths.get(eventRecorderJSON.getString("directory")),
+                eventRecorderJSON.getLong("maxFileSizeMB") * 1024 * 1024, QUEUE_CAPACITY);
+        LOG.info("Started recording events with sample rate {}.", sampleRate);
+    }
+
+    private void stopRecording() {
+        final EventLogWriter currentWriter = writer;
+        if (currentWriter != null) {
+            writer = null;
+            currentWriter.close();
+            LOG.info("Stopped recording events. {} events written, {} dropped.", currentWriter.getWrittenCount(),
+                    currentWriter.getDroppedCount());
+        }
+    }
+
+    @EventSubscriber
+    public void onMessageReceived(final MessageReceivedEvent event) {
+        recordMessage(Type.MESSAGE, event.getMessage());
+    }
+
+    @EventSubscriber
+    public void onMessageUpdate(final MessageUpdateEvent event) {
+        recordMessage(Type.MESSAGE_EDIT, event.getNewMessage());
+    }
+
+    @EventSubscriber
+    public void onPresenceUpdate(final PresenceUpdateEvent event) {
+        final EventLogWriter currentWriter = writer;
+        final long userID = event.getUser().getLongID();
+        if (currentWriter == null || !isSampled(userID)) {
+            return;
+        }
+
+        final IPresence presence = event.getNewPresence();
+        // Game names are salted like message contents, 0 is reserved for "no game"
+        final int gameHash = presence.getText().map(currentWriter::hashContent).map(hash -> hash == 0 ? 1 : hash).orElse(0);
+        currentWriter.add(EventLogRecord.presence(System.currentTimeMillis(), userID, presence.getStatus().ordinal(), gameHash));
+    }
+
+    @EventSubscriber
+    public void onUserJoin(final UserJoinEvent event) {
+        recordMember(Type.USER_JOIN, event.getGuild().getLongID(), 0, event.getUser().getLongID(), 0);
+    }
+
+    @EventSubscriber
+    public void onUserLeave(final UserLeaveEvent event) {
+        recordMember(Type.USER_LEAVE, event.getGuild().getLongID(), 0, event.getUser().getLongID(), 0);
+    }
+
+    @EventSubscriber
+    public void onVoiceJoin(final UserVoiceChannelJoinEvent event) {
+        recordMember(Type.VOICE_JOIN, event.getGuild().getLongID(), event.getVoiceChannel().getLongID(),
+                event.getUser().getLongID(), 0);
+    }
+
+    @EventSubscriber
+    public void onVoiceMove(final UserVoiceChannelMoveEvent event) {
+        recordMember(Type.VOICE_MOVE, event.getGuild().getLongID(), event.getNewChannel().getLongID(),
+                event.getUser().getLongID(), event.getOldChannel().getLongID());
+    }
+
+    @EventSubscriber
+    public void onVoiceLeave(final UserVoiceChannelLeaveEvent event) {
+        recordMember(Type.VOICE_LEAVE, event.getGuild().getLongID(), event.getVoiceChannel().getLongID(),
+                event.getUser().getLongID(), 0);
+    }
+
+    private void recordMessage(final Type type, final IMessage message) {
+        final EventLogWriter currentWriter = writer;
+        final long userID = message.getAuthor().getLongID();
+        if (currentWriter == null || !isSampled(userID)) {
+            return;
+        }
+
+        final String content = message.getContent();
+        final CommandWrapper command = bot.getModuleRegistry().getRouter().route(content);
+        // Command names are not private, their hash is not salted so it can be resolved when replaying
+        final int hash = command == null ? currentWriter.hashContent(content) : command.getName().toLowerCase().hashCode();
+        final long guildID = message.getChannel().isPrivate() ? 0 : message.getGuild().getLongID();
+
+        currentWriter.add(EventLogRecord.message(type, System.currentTimeMillis(), guildID, message.getChannel().getLongID(),
+                userID, content.length(), hash, command != null));
+    }
+
+    private void recordMember(final Type type, final long guildID, final long channelID, final long userID,
+                              final long previousChannelID) {
+        final EventLogWriter currentWriter = writer;
+        if (currentWriter != null && isSampled(userID)) {
+            currentWriter.add(EventLogRecord.member(type, System.currentTimeMillis(), guildID, channelID, userID, previousChannelID));
+        }
+    }
+
+    /**
+     * Sampling is done per user, so all events of a sampled user are recorded and e.g. voice channel joins and
+     * leaves stay consistent.
+     */
+    private boolean isSampled(final long userID) {
+        final int sampleValue = (int) ((userID * 0x9E3779B97F4A7C15L) >>> 48);
+        return sampleValue < sampleThreshold;
+    }
+
+    private void saveJSON() {
+        bot.getPersistenceManager().markDirty(EVENT_RECORDER_PATH, eventRecorderJSON, this);
+    }
+}
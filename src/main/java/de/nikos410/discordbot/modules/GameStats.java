@@ -43,11 +43,10 @@ public class GameStats extends CommandModule {
 
     @Override
     public void init() {
-        final String jsonContent = IOUtil.readFile(GAMESTATS_PATH);
-        if (jsonContent == null) {
+        this.gameStatsJSON = IOUtil.readJSON(GAMESTATS_PATH);
+        if (gameStatsJSON == null) {
             throw new InitializationException("Could not read module data.", GameStats.class);
         }
-        this.gameStatsJSON = new JSONObject(jsonContent);
         LOG.info("Loaded GameStats file for {} guilds.", gameStatsJSON.keySet().size());
     }
 
@@ -67,7 +66,8 @@ public class GameStats extends CommandModule {
         saveJSON();
     }
 
-    @CommandSubscriber(command = "playing", help = "Zeigt alle Nutzer die das angegebene Spiel spielen", pmAllowed = false)
+    @CommandSubscriber(command = "playing", help = "Zeigt alle Nutzer die das angegebene Spiel spielen", pmAllowed = false,
+            rateLimit = 2, cooldown = 30)
     public void command_playing(final IMessage message,
                                 @CommandParameter(name = "Spiel", help = "Das spiel dessen Spieler angezeigt werden sollen.")
                                 final String game) {
@@ -89,20 +89,12 @@ public class GameStats extends CommandModule {
         // Users who played the game at any point
         List<IUser> playingAnyUsers = new ArrayList<>();
 
-        if (gameStatsJSON.has(guild.getStringID())) {
-            final JSONObject guildJSON = gameStatsJSON.getJSONObject(guild.getStringID());
-            if (guildJSON.has(game.toLowerCase())) {
-                final JSONArray gameArray = guildJSON.getJSONArray(game.toLowerCase());
-
-                for (int i = 0; i < gameArray.length(); i++) {
-                    final IUser user = guild.getUserByID(gameArray.getLong(i));
-
-                    // Only add if user isn't playing right now
-                    if (user != null && !playingNowUsers.contains(user)) {
-                        playingAnyUsers.add(user);
-                    }
-                }
+        for (long userID : getPlayerIDs(game.toLowerCase(), guild)) {
+            final IUser user = guild.getUserByID(userID);
 
+            // Only add if user isn't playing right now
+            if (user != null && !playingNowUsers.contains(user)) {
+                playingAnyUsers.add(user);
             }
         }
 
@@ -169,14 +161,7 @@ public class GameStats extends CommandModule {
         final FuzzyScore scoreCalculator = new FuzzyScore(Locale.GERMANY);
         final List<GameFuzzyScore> scores = new ArrayList<>();
 
-        final JSONObject guildJSON = gameStatsJSON.getJSONObject(guild.getStringID());
-        if (guildJSON == null) {
-            return new ArrayList<>();
-        }
-
-        for (Object obj : guildJSON.keySet()) {
-            final String gameName = obj.toString();
-
+        for (String gameName : getGameNames(guild)) {
             if (!gameName.equals(inputKeyLowerCase)) {
                 final int result = scoreCalculator.fuzzyScore(inputKeyLowerCase, gameName);
 
@@ -195,6 +180,32 @@ public class GameStats extends CommandModule {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * @return A copy of the IDs of all users who have played a game on a guild.
+     */
+    private synchronized List<Long> getPlayerIDs(final String game, final IGuild guild) {
+        final List<Long> userIDs = new ArrayList<>();
+        final JSONObject guildJSON = gameStatsJSON.optJSONObject(guild.getStringID());
+        if (guildJSON != null && guildJSON.has(game)) {
+            final JSONArray gameArray = guildJSON.getJSONArray(game);
+            for (int i = 0; i < gameArray.length(); i++) {
+                userIDs.add(gameArray.getLong(i));
+            }
+        }
+        return userIDs;
+    }
+
+    /**
+     * @return A copy of the names of all games that have been played on a guild.
+     */
+    private synchronized List<String> getGameNames(final IGuild guild) {
+        final JSONObject guildJSON = gameStatsJSON.optJSONObject(guild.getStringID());
+        if (guildJSON == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(guildJSON.keySet());
+    }
+
     private static class GameFuzzyScore implements Comparable {
         private final String name;
         private final int score;
@@ -368,10 +379,7 @@ public class GameStats extends CommandModule {
         return false;
     }
 
-    private synchronized void saveJSON() {
-        LOG.debug("Saving GameStats file");
-
-        final String jsonOutput = gameStatsJSON.toString(4);
-        IOUtil.writeToFile(GAMESTATS_PATH, jsonOutput);
+    private void saveJSON() {
+        bot.getPersistenceManager().markDirty(GAMESTATS_PATH, gameStatsJSON, this);
     }
 }
@@ -49,7 +49,8 @@ public class GeneralCommands extends CommandModule {
         messageService.sendMessage(message.getChannel(), "https://github.com/DACH-Discord/de-DiscordBot/");
     }
 
-    @CommandSubscriber(command = "quote", help = "Zitiert die Nachricht mit der angegebenen ID.", pmAllowed = false, passContext = false)
+    @CommandSubscriber(command = "quote", help = "Zitiert die Nachricht mit der angegebenen ID.", pmAllowed = false, passContext = false,
+            rateLimit = 3, cooldown = 30)
     public void command_quote(final IMessage commandMessage,
                               @CommandParameter(name = "ID", help = "Die ID der Nachricht, die zitiert werden soll.")
                               final String id) {
@@ -5,6 +5,7 @@ import de.nikos410.discordbot.framework.CommandModule;
 import de.nikos410.discordbot.framework.PermissionLevel;
 import de.nikos410.discordbot.framework.annotations.CommandParameter;
 import de.nikos410.discordbot.framework.annotations.CommandSubscriber;
+import de.nikos410.discordbot.service.DiscordMessageService.Priority;
 import de.nikos410.discordbot.util.io.IOUtil;
 import de.umass.lastfm.*;
 import org.json.JSONException;
@@ -12,15 +13,15 @@ import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sx.blah.discord.handle.obj.IMessage;
+import sx.blah.discord.handle.obj.IUser;
 import sx.blah.discord.util.EmbedBuilder;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URL;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
@@ -38,7 +39,6 @@ public class LastFm extends CommandModule {
     }
 
     private static final Path LASTFM_PATH = Paths.get("data/lastFm/lastFm.json");
-    private static final Path TEMP_IMG_PATH = Paths.get("data/lastFm/chart.png");
 
     private String botPrefix;
 
@@ -66,11 +66,10 @@ public class LastFm extends CommandModule {
     public void init() {
         this.botPrefix = bot.configJSON.getString("prefix");
 
-        final String jsonContent = IOUtil.readFile(LASTFM_PATH);
-        if (jsonContent == null) {
+        this.lastFmJSON = IOUtil.readJSON(LASTFM_PATH);
+        if (lastFmJSON == null) {
             throw new InitializationException("Could not read module data.", LastFm.class);
         }
-        this.lastFmJSON = new JSONObject(jsonContent);
         LOG.info("Loaded Last.fm config file.");
 
         if (!lastFmJSON.has("apiKey")) {
@@ -91,7 +90,9 @@ public class LastFm extends CommandModule {
     public void command_lastFmSetApiKey(final IMessage message,
                                         @CommandParameter(name = "Key", help = "Der Last.fm API-Key der benutzt werden soll.")
                                         final String key) {
-        lastFmJSON.put("apiKey", key);
+        synchronized (this) {
+            lastFmJSON.put("apiKey", key);
+        }
         saveJSON();
 
         this.apiKey = key;
@@ -99,7 +100,8 @@ public class LastFm extends CommandModule {
         messageService.sendMessage(message.getChannel(), ":white_check_mark: Last.fm API-Key gesetzt.");
     }
 
-    @CommandSubscriber(command = "lastfm", help = "Last.fm Modul - Parameter 'help' für Hilfe", pmAllowed = false, ignoreParameterCount = true)
+    @CommandSubscriber(command = "lastfm", help = "Last.fm Modul - Parameter 'help' für Hilfe", pmAllowed = false, ignoreParameterCount = true,
+            rateLimit = 3, cooldown = 30)
     public void command_lastfm(final IMessage message,
                                @CommandParameter(name = "Funktion", help = "Die Funktion, die benutzt werden soll. 'help' um alle anzuzeigen.")
                                final String function,
@@ -176,10 +178,12 @@ public class LastFm extends CommandModule {
         User response = User.getInfo(username, apiKey);
 
         if (response != null) {
-            try {
-                lastFmJSON.getJSONObject("users").put(message.getAuthor().getStringID(), username);
-            } catch (JSONException ex) {
-                lastFmJSON.put("users", new JSONObject().put(message.getAuthor().getStringID(), username));
+            synchronized (this) {
+                try {
+                    lastFmJSON.getJSONObject("users").put(message.getAuthor().getStringID(), username);
+                } catch (JSONException ex) {
+                    lastFmJSON.put("users", new JSONObject().put(message.getAuthor().getStringID(), username));
+                }
             }
             saveJSON();
 
@@ -197,7 +201,7 @@ public class LastFm extends CommandModule {
         try {
             message.getChannel().setTypingStatus(true);
 
-            String username = lastFmJSON.getJSONObject("users").getString(message.getAuthor().getStringID());
+            String username = getUsername(message.getAuthor());
 
             String title = "";
             String titleAppendix = "";
@@ -312,7 +316,7 @@ public class LastFm extends CommandModule {
 
             int[] coords = new int[]{100, 400, 1801, 445};
 
-            String username = lastFmJSON.getJSONObject("users").getString(message.getAuthor().getStringID());
+            String username = getUsername(message.getAuthor());
 
             int[] offsetsToUse;
             int imgSize;
@@ -324,8 +328,6 @@ public class LastFm extends CommandModule {
             LocalDate toDate = LocalDate.now();
             LocalDate fromDate = toDate.minusDays(7);
 
-            File imgFile = TEMP_IMG_PATH.toFile();
-
             java.awt.Image albumImg;
 
             Artist artist;
@@ -373,14 +375,6 @@ public class LastFm extends CommandModule {
                     return;
             }
 
-            try {
-                LOG.debug("Chart png file already found - deleting.");
-                Files.deleteIfExists(imgFile.toPath());
-            }
-            catch (IOException e) {
-                LOG.error("Chart png could not be deleted.", e);
-            }
-
             img = new BufferedImage(3200, 2300, BufferedImage.TYPE_INT_ARGB);
 
             g = img.createGraphics();
@@ -439,15 +433,18 @@ public class LastFm extends CommandModule {
                 }
             }
 
+            // The collage is uploaded directly from memory
+            final ByteArrayOutputStream imgData = new ByteArrayOutputStream();
             try {
-                ImageIO.write(img, "png", imgFile);
+                ImageIO.write(img, "png", imgData);
             } catch (IOException ex) {
                 LOG.error("ERROR while trying to write finished collage.", ex);
                 message.getChannel().setTypingStatus(false);
                 return;
             }
 
-            messageService.sendMessage(message.getChannel(), message.getAuthor().mention(), TEMP_IMG_PATH.toFile());
+            messageService.sendMessage(message.getChannel(), Priority.INTERACTIVE, message.getAuthor().mention(),
+                    "chart.png", imgData.toByteArray());
         } catch (JSONException ex) {
             messageService.sendMessage(message.getChannel(), String.format(":x: Du hast noch keinen Last.fm-Usernamen gesetzt. '%slastfm help' für Hilfe.", botPrefix));
         }
@@ -462,11 +459,15 @@ public class LastFm extends CommandModule {
         }
     }
 
-    private void saveJSON() {
-        LOG.info("Saving Last.fm config file.");
+    /**
+     * @return The Last.fm username of a user. Throws a JSONException if the user has not set a username.
+     */
+    private synchronized String getUsername(final IUser user) {
+        return lastFmJSON.getJSONObject("users").getString(user.getStringID());
+    }
 
-        final String jsonOutput = lastFmJSON.toString(4);
-        IOUtil.writeToFile(LASTFM_PATH, jsonOutput);
+    private void saveJSON() {
+        bot.getPersistenceManager().markDirty(LASTFM_PATH, lastFmJSON, this);
     }
 
     private enum Target {
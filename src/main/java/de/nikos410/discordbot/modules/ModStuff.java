@@ -5,12 +5,15 @@ import de.nikos410.discordbot.framework.CommandModule;
 import de.nikos410.discordbot.framework.PermissionLevel;
 import de.nikos410.discordbot.framework.annotations.CommandParameter;
 import de.nikos410.discordbot.framework.annotations.CommandSubscriber;
+import de.nikos410.discordbot.service.DiscordMessageService.Priority;
 import de.nikos410.discordbot.util.CommandUtils;
 import de.nikos410.discordbot.util.discord.ChannelUtils;
 import de.nikos410.discordbot.util.discord.GuildUtils;
 import de.nikos410.discordbot.util.discord.UserUtils;
 import de.nikos410.discordbot.util.io.IOUtil;
+import de.nikos410.discordbot.util.io.JSONJournal;
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,10 +36,12 @@ import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class ModStuff extends CommandModule {
     private static final Logger LOG = LoggerFactory.getLogger(ModStuff.class);
@@ -44,8 +49,19 @@ public class ModStuff extends CommandModule {
     private static final Path MODSTUFF_PATH = Paths.get("data/modstuff.json");
     private JSONObject modstuffJSON;
 
+    // Mutes and unmutes since the mutes in modstuff.json were last written
+    private static final Path MUTE_JOURNAL_PATH = Paths.get("data/modstuff.journal");
+    private static final int MUTE_JOURNAL_MAX_RECORDS = 100;
+    private static final long MUTE_JOURNAL_COMPACTION_MINUTES = 60;
+    private static final DateTimeFormatter MUTE_TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final JSONJournal muteJournal = new JSONJournal(MUTE_JOURNAL_PATH);
+
+    // How long kick and ban wait for the PM to the user to be sent
+    private static final long REMOVAL_NOTICE_TIMEOUT_SECONDS = 10;
+
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
 
+    // Only accessed while synchronized on the module, the mutes are written to the JSON object under the same lock
     private final Map<IGuild, Map<IUser, ScheduledFuture>> userMuteFutures = new HashMap<>();
     private final Map<IGuild, Map<IChannel, Map<IUser, ScheduledFuture>>> channelMuteFutures = new HashMap<>();
 
@@ -68,13 +84,14 @@ public class ModStuff extends CommandModule {
 
     @Override
     public void init() {
-        final String rolesFileContent = IOUtil.readFile(MODSTUFF_PATH);
-        if (rolesFileContent == null) {
+        this.modstuffJSON = IOUtil.readJSON(MODSTUFF_PATH);
+        if (modstuffJSON == null) {
             LOG.error("Could not read modstuff file.");
             throw new InitializationException("Could not read modstuff file.", ModStuff.class) ;
         }
-        this.modstuffJSON = new JSONObject(rolesFileContent);
         LOG.info("Loaded modstuff file for {} guilds.", modstuffJSON.keySet().size());
+
+        replayMuteJournal();
     }
 
     @Override
@@ -82,34 +99,53 @@ public class ModStuff extends CommandModule {
         // Restore all mutes that can be found in the JSON file
         LOG.info("Restoring muted users.");
 
-        for (final String guildStringID : modstuffJSON.keySet()) {
+        final List<String> guildStringIDs;
+        synchronized (this) {
+            guildStringIDs = new ArrayList<>(modstuffJSON.keySet());
+        }
+        for (final String guildStringID : guildStringIDs) {
             LOG.debug("Processing JSON for guild with ID '{}'.", guildStringID);
 
             final long guildLongID = Long.parseLong(guildStringID);
             final IGuild guild = bot.getClient().getGuildByID(guildLongID);
+            if (guild == null) {
+                LOG.warn("Guild with ID '{}' not found. Skipping its mutes.", guildStringID);
+                continue;
+            }
             LOG.debug("Found guild '{}'.", guild.getName());
 
             restoreGuildUserMutes(guild);
             restoreGuildChannelMutes(guild);
         }
 
+        // Write the restored mutes to the JSON file and start a new journal
+        compactMutes();
+        scheduler.scheduleWithFixedDelay(() -> {
+            if (muteJournal.getRecordCount() > 0) {
+                compactMutes();
+            }
+        }, MUTE_JOURNAL_COMPACTION_MINUTES, MUTE_JOURNAL_COMPACTION_MINUTES, TimeUnit.MINUTES);
+
         LOG.info("Restored all mutes.");
     }
 
     @Override
     public void shutdown() {
-        // Usermutes
-        userMuteFutures.values()
-                .forEach(guildUserMutes -> guildUserMutes.values()
-                        .forEach(future -> future.cancel(false)));
+        synchronized (this) {
+            // Usermutes
+            userMuteFutures.values()
+                    .forEach(guildUserMutes -> guildUserMutes.values()
+                            .forEach(future -> future.cancel(false)));
 
-        // Channel mutes
-        channelMuteFutures.values()
-                .forEach(guildChannelMutes -> guildChannelMutes.values()
-                        .forEach(channelMutes -> channelMutes.values()
-                            .forEach(future -> future.cancel(false))));
+            // Channel mutes
+            channelMuteFutures.values()
+                    .forEach(guildChannelMutes -> guildChannelMutes.values()
+                            .forEach(channelMutes -> channelMutes.values()
+                                .forEach(future -> future.cancel(false))));
+        }
 
         scheduler.shutdown();
+        muteJournal.close();
     }
 
     @CommandSubscriber(command = "kick", help = "Kickt den angegebenen Nutzer mit der angegeben Nachricht vom Server",
@@ -127,7 +163,7 @@ public class ModStuff extends CommandModule {
             // Find the user to kick
             final IUser kickUser = UserUtils.getUserFromMessage(message, userString);
             if (kickUser == null) {
-                messageService.sendMessage(message.getChannel(), ":x: Fehler: Kein gültiger Nutzer angegeben!");
+                messageService.sendMessage(message.getChannel(), Priority.MODERATION, ":x: Fehler: Kein gültiger Nutzer angegeben!");
                 return;
             }
 
@@ -135,7 +171,7 @@ public class ModStuff extends CommandModule {
             final IGuild guild = message.getGuild();
 
             if (!PermissionUtils.hasHierarchicalPermissions(guild, message.getClient().getOurUser(), kickUser, Permissions.KICK)) {
-                messageService.sendMessage(message.getChannel(), ":x: Nutzer kann nicht gekickt werden! (Unzureichende Berechtigungen)");
+                messageService.sendMessage(message.getChannel(), Priority.MODERATION, ":x: Nutzer kann nicht gekickt werden! (Unzureichende Berechtigungen)");
                 return;
             }
 
@@ -149,7 +185,7 @@ public class ModStuff extends CommandModule {
                 final List<String> kickMessage = Arrays.asList(
                         String.format("**Du wurdest vom Server %s gekickt!** (Du kannst dem Server jedoch erneut beitreten.)", guild.getName()),
                         String.format("Hinweis: _%s_", customMessage));
-                messageService.sendMessage(kickUser.getOrCreatePMChannel(), kickMessage);
+                sendRemovalNotice(kickUser, kickMessage);
             }
 
             guild.kickUser(kickUser, customMessage);
@@ -171,12 +207,12 @@ public class ModStuff extends CommandModule {
                         message.getChannel().mention()));
                 modLogMessage.add(String.format("Hinweis: _%s_", customMessage));
 
-                messageService.sendMessage(modLogChannel, modLogMessage);
+                messageService.sendLogMessage(modLogChannel, Priority.MODERATION, modLogMessage);
             }
         }
         else {
             message.getGuild().kickUser(message.getAuthor());
-            messageService.sendMessage(message.getChannel(), "¯\\_(ツ)_/¯");
+            messageService.sendMessage(message.getChannel(), Priority.MODERATION, "¯\\_(ツ)_/¯");
         }
     }
 
@@ -195,7 +231,7 @@ public class ModStuff extends CommandModule {
             // Find the user to ban
             final IUser banUser = UserUtils.getUserFromMessage(message, userString);
             if (banUser == null) {
-                messageService.sendMessage(message.getChannel(), ":x: Fehler: Kein gültiger Nutzer angegeben!");
+                messageService.sendMessage(message.getChannel(), Priority.MODERATION, ":x: Fehler: Kein gültiger Nutzer angegeben!");
                 return;
             }
 
@@ -203,7 +239,7 @@ public class ModStuff extends CommandModule {
             final IGuild guild = message.getGuild();
 
             if (!PermissionUtils.hasHierarchicalPermissions(guild, message.getClient().getOurUser(), banUser, Permissions.BAN)) {
-                messageService.sendMessage(message.getChannel(), ":x: Nutzer kann nicht gebannt werden! (Unzureichende Berechtigungen)");
+                messageService.sendMessage(message.getChannel(), Priority.MODERATION, ":x: Nutzer kann nicht gebannt werden! (Unzureichende Berechtigungen)");
                 return;
             }
 
@@ -217,7 +253,7 @@ public class ModStuff extends CommandModule {
                 final List<String> banMessage = Arrays.asList(String.format("**Du wurdest vom Server %s gebannt!**", guild.getName()),
                         String.format("Hinweis: _%s_", customMessage));
 
-                messageService.sendMessage(banUser.getOrCreatePMChannel(), banMessage);
+                sendRemovalNotice(banUser, banMessage);
             }
 
             guild.banUser(banUser, customMessage, 0);
@@ -239,12 +275,33 @@ public class ModStuff extends CommandModule {
                         message.getChannel().mention()));
                 modLogMessage.add(String.format("Hinweis: _%s_", customMessage));
 
-                messageService.sendMessage(modLogChannel, modLogMessage);
+                messageService.sendLogMessage(modLogChannel, Priority.MODERATION, modLogMessage);
             }
         }
         else {
             message.getGuild().kickUser(message.getAuthor(), customMessage);
-            messageService.sendMessage(message.getChannel(), "¯\\_(ツ)_/¯");
+            messageService.sendMessage(message.getChannel(), Priority.MODERATION, "¯\\_(ツ)_/¯");
+        }
+    }
+
+    /**
+     * Send a PM to a user that is about to be kicked or banned. Messages are sent in the background, but once the user
+     * shares no guild with the bot the PM can not be delivered anymore. So this waits until the PM was sent, but not
+     * longer than {@link #REMOVAL_NOTICE_TIMEOUT_SECONDS}.
+     *
+     * @param user The user that is kicked or banned.
+     * @param notice The lines of the PM.
+     */
+    private void sendRemovalNotice(final IUser user, final List<String> notice) {
+        try {
+            messageService.sendMessage(user.getOrCreatePMChannel(), Priority.MODERATION, notice)
+                    .get(REMOVAL_NOTICE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException | TimeoutException e) {
+            LOG.warn(String.format("Could not notify user %s before removing them from the guild.", user.getStringID()), e);
         }
     }
 
@@ -256,7 +313,7 @@ public class ModStuff extends CommandModule {
         if (modLogChannel != null) {
             final String modLogMessage = String.format("**%s** wurde vom Server **gebannt**.",
                     UserUtils.makeUserString(event.getUser(), event.getGuild()));
-            messageService.sendMessage(modLogChannel, modLogMessage);
+            messageService.sendLogMessage(modLogChannel, Priority.MODERATION, modLogMessage);
         }
     }
 
@@ -270,20 +327,20 @@ public class ModStuff extends CommandModule {
         // Find the user to mute
         final IUser muteUser = UserUtils.getUserFromMessage(message, userString);
         if (muteUser == null) {
-            messageService.sendMessage(message.getChannel(), ":x: Fehler: Nutzer nicht gefunden!");
+            messageService.sendMessage(message.getChannel(), Priority.MODERATION, ":x: Fehler: Nutzer nicht gefunden!");
             return;
         }
 
         // Check if mute duration was specified
         if (muteDurationInput == null) {
-            messageService.sendMessage(message.getChannel(), "Fehler! Es muss eine Mute-Dauer angegeben werden.");
+            messageService.sendMessage(message.getChannel(), Priority.MODERATION, "Fehler! Es muss eine Mute-Dauer angegeben werden.");
             return;
         }
 
         // Parse mute duration
         final CommandUtils.DurationParameters durationParameters = CommandUtils.parseDurationParameters(muteDurationInput);
         if (durationParameters == null) {
-            messageService.sendMessage(message.getChannel(),
+            messageService.sendMessage(message.getChannel(), Priority.MODERATION,
                     "Ungültige Dauer angegeben. Mögliche Einheiten sind: s, m, h, d");
             return;
         }
@@ -309,7 +366,7 @@ public class ModStuff extends CommandModule {
                     muteDurationUnit.name()),
                     String.format("Hinweis: _%s_", customMessage));
 
-            messageService.sendMessage(muteUser.getOrCreatePMChannel(), muteMessage);
+            messageService.sendMessage(muteUser.getOrCreatePMChannel(), Priority.MODERATION, muteMessage);
         }
 
         // Modlog
@@ -330,10 +387,8 @@ public class ModStuff extends CommandModule {
                     muteDuration, muteDurationUnit.name()));
             modLogMessage.add(String.format("Hinweis: _%s_", customMessage));
 
-            messageService.sendMessage(modLogChannel, modLogMessage);
+            messageService.sendLogMessage(modLogChannel, Priority.MODERATION, modLogMessage);
         }
-
-        saveUserMutes();
     }
 
     @CommandSubscriber(command = "selfmute", help = "Schalte dich selber für die angegebene Zeit stumm",
@@ -399,7 +454,7 @@ public class ModStuff extends CommandModule {
         final IRole muteRole = getMuteRoleForGuild(guild);
         if (muteRole == null) {
             if (channel != null) {
-                messageService.sendMessage(channel, ":x: Keine Mute-Rolle konfiguriert. Nutzer kann nicht gemuted werden.");
+                messageService.sendMessage(channel, Priority.MODERATION, ":x: Keine Mute-Rolle konfiguriert. Nutzer kann nicht gemuted werden.");
             }
             else {
                 LOG.warn("No mute role configured for guild {} (ID: {}). Cannot mute user.",
@@ -408,49 +463,58 @@ public class ModStuff extends CommandModule {
             return;
         }
 
-        if (isUserMutedForGuild(user, guild)) {
-            // User is already muted
-            final ScheduledFuture oldFuture = userMuteFutures.get(guild).get(user);
+        final boolean alreadyMuted;
+        synchronized (this) {
+            alreadyMuted = isUserMutedForGuild(user, guild);
+            if (alreadyMuted) {
+                // User is already muted
+                final ScheduledFuture oldFuture = userMuteFutures.get(guild).get(user);
 
-            // Check which mute lasts longer
-            final LocalDateTime oldDateTime = LocalDateTime.now().plusSeconds(oldFuture.getDelay(TimeUnit.SECONDS));
-            final LocalDateTime newDateTime = LocalDateTime.now().plus(muteDuration, muteDurationUnit);
+                // Check which mute lasts longer
+                final LocalDateTime oldDateTime = LocalDateTime.now().plusSeconds(oldFuture.getDelay(TimeUnit.SECONDS));
+                final LocalDateTime newDateTime = LocalDateTime.now().plus(muteDuration, muteDurationUnit);
 
-            if (newDateTime.isBefore(oldDateTime)) {
-                // Existing mute lasts longer than the existing one -> Do nothing
-                if (channel != null) {
-                    messageService.sendMessage(channel, ":x: Nutzer ist bereits für einen längeren Zeitraum gemuted.");
+                if (newDateTime.isBefore(oldDateTime)) {
+                    // Existing mute lasts longer than the existing one -> Do nothing
+                    if (channel != null) {
+                        messageService.sendMessage(channel, Priority.MODERATION, ":x: Nutzer ist bereits für einen längeren Zeitraum gemuted.");
+                    }
+                    return;
+                }
+                else {
+                    // New mute lasts longer than the existing one -> override
+                    userMuteFutures.get(guild).remove(user, oldFuture);
+                    oldFuture.cancel(false);
                 }
-                return;
+            }
+
+            // Task that will be run to unmute user
+            final Runnable unmuteTask = () -> unmuteUserForGuild(user, guild, null);
+
+
+            // Schedule the unmute task
+            final ScheduledFuture newFuture = scheduler.schedule(unmuteTask, muteDuration, CommandUtils.toTimeUnit(muteDurationUnit));
+
+            // Save the mute, so it can be restored after a restart of the bot
+            if (userMuteFutures.containsKey(guild)) {
+                userMuteFutures.get(guild).put(user, newFuture);
             }
             else {
-                // New mute lasts longer than the existing one -> override
-                userMuteFutures.get(guild).remove(user, oldFuture);
-                oldFuture.cancel(false);
+                final Map<IUser, ScheduledFuture> guildMap = new HashMap<>();
+                guildMap.put(user, newFuture);
+                userMuteFutures.put(guild, guildMap);
             }
         }
-        else {
+
+        if (!alreadyMuted) {
             // User is not muted yet
             user.addRole(muteRole);
             LOG.info("Muted user {} for {} {}.", UserUtils.makeUserString(user, guild), muteDuration, muteDurationUnit.name());
         }
 
-        // Task that will be run to unmute user
-        final Runnable unmuteTask = () -> unmuteUserForGuild(user, guild, null);
-
-
-        // Schedule the unmute task
-        final ScheduledFuture newFuture = scheduler.schedule(unmuteTask, muteDuration, CommandUtils.toTimeUnit(muteDurationUnit));
-
-        // Save the mute, so it can be restored after a restart of the bot
-        if (userMuteFutures.containsKey(guild)) {
-            userMuteFutures.get(guild).put(user, newFuture);
-        }
-        else {
-            final Map<IUser, ScheduledFuture> guildMap = new HashMap<>();
-            guildMap.put(user, newFuture);
-            userMuteFutures.put(guild, guildMap);
-        }
+        // The journal is written outside of the lock, see compactMutes()
+        appendMuteRecord(createMuteRecord("mute", guild, null, user)
+                .put("mutedUntil", LocalDateTime.now().plus(muteDuration, muteDurationUnit).format(MUTE_TIMESTAMP_FORMATTER)));
     }
 
     /**
@@ -465,7 +529,7 @@ public class ModStuff extends CommandModule {
         final IRole muteRole = getMuteRoleForGuild(guild);
         if (muteRole == null) {
             if (channel != null) {
-                messageService.sendMessage(channel, ":x: Keine Mute-Rolle konfiguriert. Nutzer kann nicht entmuted werden.");
+                messageService.sendMessage(channel, Priority.MODERATION, ":x: Keine Mute-Rolle konfiguriert. Nutzer kann nicht entmuted werden.");
             }
             else {
                 LOG.warn("No mute role configured for guild {} (ID: {}). Cannot unmute user.",
@@ -479,12 +543,18 @@ public class ModStuff extends CommandModule {
             user.removeRole(muteRole);
         }
 
-        if (isUserMutedForGuild(user, guild)) {
-            userMuteFutures.get(guild).remove(user);
+        final boolean wasMuted;
+        synchronized (this) {
+            wasMuted = isUserMutedForGuild(user, guild);
+            if (wasMuted) {
+                userMuteFutures.get(guild).remove(user);
+            }
+        }
+        if (wasMuted) {
+            appendMuteRecord(createMuteRecord("unmute", guild, null, user));
         }
 
         LOG.info("User {} was unmuted.", UserUtils.makeUserString(user, guild));
-        saveUserMutes();
     }
 
     /**
@@ -494,7 +564,7 @@ public class ModStuff extends CommandModule {
      * @param guild The guild.
      * @return True if the user is muted on the given guild, otherwise false.
      */
-    private boolean isUserMutedForGuild (final IUser user, final IGuild guild) {
+    private synchronized boolean isUserMutedForGuild (final IUser user, final IGuild guild) {
         return (userMuteFutures.containsKey(guild) && userMuteFutures.get(guild).containsKey(user));
     }
 
@@ -510,21 +580,21 @@ public class ModStuff extends CommandModule {
         // Parse user
         final IUser muteUser = UserUtils.getUserFromMessage(message, userInput);
         if (muteUser == null) {
-            messageService.sendMessage(message.getChannel(), ":x: Fehler: Kein gültiger Nutzer angegeben!");
+            messageService.sendMessage(message.getChannel(), Priority.MODERATION, ":x: Fehler: Kein gültiger Nutzer angegeben!");
             return;
         }
 
         // Parse channel
         final IChannel muteChannel = ChannelUtils.getChannelFromMessage(message, channelInput);
         if (muteChannel == null) {
-            messageService.sendMessage(message.getChannel(), ":x: Fehler: Kein gültiger Kanal angegeben!");
+            messageService.sendMessage(message.getChannel(), Priority.MODERATION, ":x: Fehler: Kein gültiger Kanal angegeben!");
             return;
         }
 
         // Parse mute duration and message
         final CommandUtils.DurationParameters durationParameters = CommandUtils.parseDurationParameters(muteDurationInput);
         if (durationParameters == null) {
-            messageService.sendMessage(message.getChannel(),
+            messageService.sendMessage(message.getChannel(), Priority.MODERATION,
                     "Ungültige Dauer angegeben. Mögliche Einheiten sind: s, m, h, d");
             return;
         }
@@ -543,7 +613,7 @@ public class ModStuff extends CommandModule {
             message.addReaction(ReactionEmoji.of("\uD83D\uDD07")); // :mute:
         }
         else {
-            messageService.sendMessage(message.getChannel(), output);
+            messageService.sendMessage(message.getChannel(), Priority.MODERATION, output);
             return;
         }
 
@@ -558,7 +628,7 @@ public class ModStuff extends CommandModule {
                     guild.getName()));
             muteMessage.add(String.format("Hinweis: _%s_", customMessage));
 
-            messageService.sendMessage(muteUser.getOrCreatePMChannel(), muteMessage);
+            messageService.sendMessage(muteUser.getOrCreatePMChannel(), Priority.MODERATION, muteMessage);
         }
 
         // Modlog
@@ -579,7 +649,7 @@ public class ModStuff extends CommandModule {
                     muteDuration, muteDurationUnit.name(), muteChannel.mention()));
             modLogMessage.add(String.format("Hinweis: _%s _", customMessage));
 
-            messageService.sendMessage(modLogChannel, modLogMessage);
+            messageService.sendLogMessage(modLogChannel, Priority.MODERATION, modLogMessage);
         }
     }
 
@@ -608,56 +678,60 @@ public class ModStuff extends CommandModule {
 
         final IGuild guild = channel.getGuild();
 
-        if (isUserMutedForChannel(user, channel)) {
-            // User is already muted for this channel
-            final ScheduledFuture oldFuture = channelMuteFutures.get(guild).get(channel).get(user);
+        synchronized (this) {
+            if (isUserMutedForChannel(user, channel)) {
+                // User is already muted for this channel
+                final ScheduledFuture oldFuture = channelMuteFutures.get(guild).get(channel).get(user);
 
-            // Check whether the existing or the new mute lasts longer
-            final LocalDateTime oldDateTime = LocalDateTime.now().plusSeconds(oldFuture.getDelay(TimeUnit.SECONDS));
-            final LocalDateTime newDateTime = LocalDateTime.now().plus(muteDuration, muteDurationUnit);
+                // Check whether the existing or the new mute lasts longer
+                final LocalDateTime oldDateTime = LocalDateTime.now().plusSeconds(oldFuture.getDelay(TimeUnit.SECONDS));
+                final LocalDateTime newDateTime = LocalDateTime.now().plus(muteDuration, muteDurationUnit);
 
-            if (newDateTime.isBefore(oldDateTime)) {
-                // Existing mute lasts longer -> Keep existing mute
-                return "Nutzer ist bereits für einen längeren Zeitraum gemuted!";
+                if (newDateTime.isBefore(oldDateTime)) {
+                    // Existing mute lasts longer -> Keep existing mute
+                    return "Nutzer ist bereits für einen längeren Zeitraum gemuted!";
+                }
+                else {
+                    // New mute lasts longer -> Cancel existing mute (New mute will be scheduled)
+                    channelMuteFutures.get(guild).get(channel).remove(user, oldFuture);
+                    oldFuture.cancel(false);
+                }
             }
             else {
-                // New mute lasts longer -> Cancel existing mute (New mute will be scheduled)
-                channelMuteFutures.get(guild).get(channel).remove(user, oldFuture);
-                oldFuture.cancel(false);
+                // User is not muted for this channel yet
+                LOG.info("Muted user {}.", UserUtils.makeUserString(user, guild));
             }
-        }
-        else {
-            // User is not muted for this channel yet
-            LOG.info("Muted user {}.", UserUtils.makeUserString(user, guild));
-        }
 
-        // Schedule unmuting the user
-        final Runnable unmuteTask = () -> unmuteUserForChannel(user, channel);
-        final ScheduledFuture newFuture = scheduler.schedule(unmuteTask, muteDuration, CommandUtils.toTimeUnit(muteDurationUnit));
+            // Schedule unmuting the user
+            final Runnable unmuteTask = () -> unmuteUserForChannel(user, channel);
+            final ScheduledFuture newFuture = scheduler.schedule(unmuteTask, muteDuration, CommandUtils.toTimeUnit(muteDurationUnit));
 
-        final Map<IChannel, Map<IUser, ScheduledFuture>> guildMap;
-        // Make sure an entry for this guild exists
-        if (channelMuteFutures.containsKey(guild)) {
-            guildMap = channelMuteFutures.get(guild);
-        }
-        else {
-            guildMap = new HashMap<>();
-            channelMuteFutures.put(guild, guildMap);
-        }
+            final Map<IChannel, Map<IUser, ScheduledFuture>> guildMap;
+            // Make sure an entry for this guild exists
+            if (channelMuteFutures.containsKey(guild)) {
+                guildMap = channelMuteFutures.get(guild);
+            }
+            else {
+                guildMap = new HashMap<>();
+                channelMuteFutures.put(guild, guildMap);
+            }
 
-        final Map<IUser, ScheduledFuture> channelMap;
-        // Make sure an entry for this channel exists
-        if (guildMap.containsKey(channel)) {
-            channelMap = guildMap.get(channel);
-        }
-        else {
-            channelMap = new HashMap<>();
-            guildMap.put(channel, channelMap);
-        }
+            final Map<IUser, ScheduledFuture> channelMap;
+            // Make sure an entry for this channel exists
+            if (guildMap.containsKey(channel)) {
+                channelMap = guildMap.get(channel);
+            }
+            else {
+                channelMap = new HashMap<>();
+                guildMap.put(channel, channelMap);
+            }
 
-        // Save the mute
-        channelMap.put(user, newFuture);
-        saveChannelMutes();
+            // Save the mute
+            channelMap.put(user, newFuture);
+        }
+        // The journal is written outside of the lock, see compactMutes()
+        appendMuteRecord(createMuteRecord("channelMute", guild, channel, user)
+                .put("mutedUntil", LocalDateTime.now().plus(muteDuration, muteDurationUnit).format(MUTE_TIMESTAMP_FORMATTER)));
 
         return "";
     }
@@ -693,11 +767,13 @@ public class ModStuff extends CommandModule {
 
         LOG.info("Nutzer {} wurde entmuted.", UserUtils.makeUserString(user, guild));
 
-        channelMuteFutures.get(guild).get(channel).remove(user);
-        saveChannelMutes();
+        synchronized (this) {
+            channelMuteFutures.get(guild).get(channel).remove(user);
+        }
+        appendMuteRecord(createMuteRecord("channelUnmute", guild, channel, user));
     }
 
-    private boolean isUserMutedForChannel (final IUser user, final IChannel channel) {
+    private synchronized boolean isUserMutedForChannel (final IUser user, final IChannel channel) {
         final IGuild guild = channel.getGuild();
         if (channelMuteFutures.containsKey(guild)) {
             final Map<IChannel, Map<IUser, ScheduledFuture>> guildMap = channelMuteFutures.get(guild);
@@ -800,17 +876,9 @@ public class ModStuff extends CommandModule {
             return;
         }
 
-        final IGuild guild = message.getGuild();
-        final JSONObject guildJSON;
-        if (modstuffJSON.has(guild.getStringID())) {
-            guildJSON = modstuffJSON.getJSONObject(guild.getStringID());
-        }
-        else {
-            guildJSON = new JSONObject();
-            modstuffJSON.put(guild.getStringID(), guildJSON);
+        synchronized (this) {
+            getJSONForGuild(message.getGuild()).put("modlogChannel", modlogChannel.getLongID());
         }
-
-        guildJSON.put("modlogChannel", modlogChannel.getLongID());
         saveJSON();
 
         message.addReaction(ReactionEmoji.of("✅")); // :white_check_mark:
@@ -828,17 +896,9 @@ public class ModStuff extends CommandModule {
             return;
         }
 
-        final IGuild guild = message.getGuild();
-        final JSONObject guildJSON;
-        if (modstuffJSON.has(guild.getStringID())) {
-            guildJSON = modstuffJSON.getJSONObject(guild.getStringID());
-        }
-        else {
-            guildJSON = new JSONObject();
-            modstuffJSON.put(guild.getStringID(), guildJSON);
+        synchronized (this) {
+            getJSONForGuild(message.getGuild()).put("muteRole", muteRole.getLongID());
         }
-
-        guildJSON.put("muteRole", muteRole.getLongID());
         saveJSON();
 
         message.addReaction(ReactionEmoji.of("✅")); // :white_check_mark:
@@ -848,7 +908,7 @@ public class ModStuff extends CommandModule {
     public void onUserJoin(final UserJoinEvent event) {
         // Check if the user that joined should still be muted
         final IUser user = event.getUser();
-        if (userMuteFutures.containsKey(event.getGuild()) && userMuteFutures.get(event.getGuild()).containsKey(user)) {
+        if (isUserMutedForGuild(user, event.getGuild())) {
             final IRole muteRole = getMuteRoleForGuild(event.getGuild());
             if (muteRole == null) {
                 return;
@@ -866,17 +926,19 @@ public class ModStuff extends CommandModule {
     private void restoreGuildUserMutes(final IGuild guild) {
         final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-        final JSONArray guildUserMutes = getUserMutesJSONForGuild(guild);
-        LOG.debug("Found {} mutes for guild.", guildUserMutes.length());
-
         // First, obtain a list of all user mutes
         final List<Object> userMutes = new ArrayList<>();
-        final Iterator<Object> muteIterator = guildUserMutes.iterator();
-        muteIterator.forEachRemaining(userMutes::add);
+        synchronized (this) {
+            final JSONArray guildUserMutes = getUserMutesJSONForGuild(guild);
+            LOG.debug("Found {} mutes for guild.", guildUserMutes.length());
 
-        // Second, clear the array
-        for (int i = 0; i < userMutes.size(); i++) {
-            guildUserMutes.remove(0);
+            final Iterator<Object> muteIterator = guildUserMutes.iterator();
+            muteIterator.forEachRemaining(userMutes::add);
+
+            // Second, clear the array
+            for (int i = 0; i < userMutes.size(); i++) {
+                guildUserMutes.remove(0);
+            }
         }
 
         // Third, restore all mutes
@@ -912,14 +974,18 @@ public class ModStuff extends CommandModule {
             }
         }
 
-        // Update JSON
-        saveUserMutes();
     }
 
     private void restoreGuildChannelMutes(final IGuild guild) {
         final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-        final JSONObject guildChannels = getChannelMutesJSONForGuild(guild);
+        // Remove the old mutes from the JSON, the restored ones are written with the next compaction
+        final JSONObject guildChannels;
+        synchronized (this) {
+            guildChannels = getChannelMutesJSONForGuild(guild);
+            getJSONForGuild(guild).remove("channelMutes");
+        }
+
         for (String channelID : guildChannels.keySet()) {
             final IChannel channel = guild.getChannelByID(Long.parseLong(channelID));
             final JSONArray channelMutes = guildChannels.getJSONArray(channelID);
@@ -956,13 +1022,9 @@ public class ModStuff extends CommandModule {
                 }
             }
         }
-
-        // Update JSON
-        getJSONForGuild(guild).remove("channelMutes");
-        saveChannelMutes();
     }
 
-    private IRole getMuteRoleForGuild(final IGuild guild) {
+    private synchronized IRole getMuteRoleForGuild(final IGuild guild) {
         final JSONObject guildJSON = getJSONForGuild(guild);
         if (guildJSON.has("muteRole")) {
             final long muteRoleID = guildJSON.getLong("muteRole");
@@ -982,7 +1044,7 @@ public class ModStuff extends CommandModule {
         }
     }
 
-    private IChannel getModlogChannelForGuild(final IGuild guild) {
+    private synchronized IChannel getModlogChannelForGuild(final IGuild guild) {
         final JSONObject guildJSON = getJSONForGuild(guild);
         if (guildJSON.has("modlogChannel")) {
             final long modlogChannelID = guildJSON.getLong("modlogChannel");
@@ -1023,6 +1085,8 @@ public class ModStuff extends CommandModule {
         }
     }
 
+    // The following methods access the JSON object, only call them while synchronized on the module
+
     private JSONArray getUserMutesJSONForGuild(final IGuild guild) {
         final JSONObject guildJSON = getJSONForGuild(guild);
         if (guildJSON.has("userMutes")) {
@@ -1076,26 +1140,28 @@ public class ModStuff extends CommandModule {
     private void saveUserMutes() {
         final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-        for (Entry<IGuild, Map<IUser, ScheduledFuture>> guildEntry : userMuteFutures.entrySet()) {
-            final JSONArray guildUserMutesJSON = getUserMutesJSONForGuild(guildEntry.getKey());
+        synchronized (this) {
+            for (Entry<IGuild, Map<IUser, ScheduledFuture>> guildEntry : userMuteFutures.entrySet()) {
+                final JSONArray guildUserMutesJSON = getUserMutesJSONForGuild(guildEntry.getKey());
 
-            // Clear JSON
-            final int arraySize = guildUserMutesJSON.length();
-            for (int i = 0; i < arraySize; i++) {
-                guildUserMutesJSON.remove(0);
-            }
+                // Clear JSON
+                final int arraySize = guildUserMutesJSON.length();
+                for (int i = 0; i < arraySize; i++) {
+                    guildUserMutesJSON.remove(0);
+                }
 
-            final Map<IUser, ScheduledFuture> guildUserMutesMap = guildEntry.getValue();
+                final Map<IUser, ScheduledFuture> guildUserMutesMap = guildEntry.getValue();
 
-            for (Entry<IUser, ScheduledFuture> userEntry : guildUserMutesMap.entrySet()) {
-                final JSONObject entryObject = new JSONObject();
-                entryObject.put("user", userEntry.getKey().getLongID());
+                for (Entry<IUser, ScheduledFuture> userEntry : guildUserMutesMap.entrySet()) {
+                    final JSONObject entryObject = new JSONObject();
+                    entryObject.put("user", userEntry.getKey().getLongID());
 
-                final ScheduledFuture unmutefuture = userEntry.getValue();
-                final long delay = unmutefuture.getDelay(TimeUnit.SECONDS);
-                final LocalDateTime unmuteTimestamp = LocalDateTime.now().plusSeconds(delay);
-                entryObject.put("mutedUntil", unmuteTimestamp.format(formatter));
-                guildUserMutesJSON.put(entryObject);
+                    final ScheduledFuture unmutefuture = userEntry.getValue();
+                    final long delay = unmutefuture.getDelay(TimeUnit.SECONDS);
+                    final LocalDateTime unmuteTimestamp = LocalDateTime.now().plusSeconds(delay);
+                    entryObject.put("mutedUntil", unmuteTimestamp.format(formatter));
+                    guildUserMutesJSON.put(entryObject);
+                }
             }
         }
 
@@ -1105,33 +1171,35 @@ public class ModStuff extends CommandModule {
     private void saveChannelMutes() {
         final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-        // Iterate over all guilds
-        for (Entry<IGuild, Map<IChannel, Map<IUser, ScheduledFuture>>> guildEntry : channelMuteFutures.entrySet()) {
-            final IGuild guild = guildEntry.getKey();
+        synchronized (this) {
+            // Iterate over all guilds
+            for (Entry<IGuild, Map<IChannel, Map<IUser, ScheduledFuture>>> guildEntry : channelMuteFutures.entrySet()) {
+                final IGuild guild = guildEntry.getKey();
 
-            final Map<IChannel, Map<IUser, ScheduledFuture>> guildChannels = guildEntry.getValue();
+                final Map<IChannel, Map<IUser, ScheduledFuture>> guildChannels = guildEntry.getValue();
 
-            // Clear JSON
-            final JSONObject guildChannelsJSON = new JSONObject();
-            getJSONForGuild(guild).put("channelMutes", guildChannelsJSON);
+                // Clear JSON
+                final JSONObject guildChannelsJSON = new JSONObject();
+                getJSONForGuild(guild).put("channelMutes", guildChannelsJSON);
 
-            // Iterate over all channels for that guild
-            for (Entry<IChannel, Map<IUser, ScheduledFuture>> channelEntry : guildChannels.entrySet()) {
-                final Map<IUser, ScheduledFuture> channelMutes = channelEntry.getValue();
+                // Iterate over all channels for that guild
+                for (Entry<IChannel, Map<IUser, ScheduledFuture>> channelEntry : guildChannels.entrySet()) {
+                    final Map<IUser, ScheduledFuture> channelMutes = channelEntry.getValue();
 
-                final JSONArray channelMutesJSON = new JSONArray();
-                guildChannelsJSON.put(channelEntry.getKey().getStringID(), channelMutesJSON);
+                    final JSONArray channelMutesJSON = new JSONArray();
+                    guildChannelsJSON.put(channelEntry.getKey().getStringID(), channelMutesJSON);
 
-                // Iterator over all mutes for that channel
-                for (Entry<IUser, ScheduledFuture> userEntry : channelMutes.entrySet()) {
-                    final JSONObject entryObject = new JSONObject();
-                    entryObject.put("user", userEntry.getKey().getLongID());
+                    // Iterator over all mutes for that channel
+                    for (Entry<IUser, ScheduledFuture> userEntry : channelMutes.entrySet()) {
+                        final JSONObject entryObject = new JSONObject();
+                        entryObject.put("user", userEntry.getKey().getLongID());
 
-                    final ScheduledFuture unmutefuture = userEntry.getValue();
-                    final long delay = unmutefuture.getDelay(TimeUnit.SECONDS);
-                    final LocalDateTime unmuteTimestamp = LocalDateTime.now().plusSeconds(delay);
-                    entryObject.put("mutedUntil", unmuteTimestamp.format(formatter));
-                    channelMutesJSON.put(entryObject);
+                        final ScheduledFuture unmutefuture = userEntry.getValue();
+                        final long delay = unmutefuture.getDelay(TimeUnit.SECONDS);
+                        final LocalDateTime unmuteTimestamp = LocalDateTime.now().plusSeconds(delay);
+                        entryObject.put("mutedUntil", unmuteTimestamp.format(formatter));
+                        channelMutesJSON.put(entryObject);
+                    }
                 }
             }
         }
@@ -1139,10 +1207,122 @@ public class ModStuff extends CommandModule {
         saveJSON();
     }
 
-    private synchronized void saveJSON() {
-        LOG.debug("Saving modstuff file.");
+    /**
+     * Apply the records in the mute journal to the mutes in the JSON file, so they are restored with the others.
+     * Records are absolute (muted until / unmuted), so applying a record again after a crash has no effect.
+     */
+    private void replayMuteJournal() {
+        final List<JSONObject> records = muteJournal.read();
+        synchronized (this) {
+            replayMuteRecords(records);
+        }
+
+        if (!records.isEmpty()) {
+            LOG.info("Replayed {} records from the mute journal.", records.size());
+        }
+    }
+
+    private void replayMuteRecords(final List<JSONObject> records) {
+        for (JSONObject record : records) {
+            try {
+                final String guildID = Long.toString(record.getLong("guild"));
+                if (!modstuffJSON.has(guildID)) {
+                    modstuffJSON.put(guildID, new JSONObject());
+                }
+                final JSONObject guildJSON = modstuffJSON.getJSONObject(guildID);
+
+                final String type = record.getString("type");
+                final JSONArray mutes;
+                if ("mute".equals(type) || "unmute".equals(type)) {
+                    if (!guildJSON.has("userMutes")) {
+                        guildJSON.put("userMutes", new JSONArray());
+                    }
+                    mutes = guildJSON.getJSONArray("userMutes");
+                }
+                else if ("channelMute".equals(type) || "channelUnmute".equals(type)) {
+                    if (!guildJSON.has("channelMutes")) {
+                        guildJSON.put("channelMutes", new JSONObject());
+                    }
+                    final JSONObject channelMutes = guildJSON.getJSONObject("channelMutes");
+                    final String channelID = Long.toString(record.getLong("channel"));
+                    if (!channelMutes.has(channelID)) {
+                        channelMutes.put(channelID, new JSONArray());
+                    }
+                    mutes = channelMutes.getJSONArray(channelID);
+                }
+                else {
+                    LOG.warn("Unknown mute journal record type '{}'. Skipping.", type);
+                    continue;
+                }
+
+                // Remove the previous state of this user
+                final long userID = record.getLong("user");
+                for (int i = mutes.length() - 1; i >= 0; i--) {
+                    final JSONObject mute = mutes.optJSONObject(i);
+                    if (mute != null && mute.optLong("user") == userID) {
+                        mutes.remove(i);
+                    }
+                }
+
+                if (record.has("mutedUntil")) {
+                    final JSONObject mute = new JSONObject();
+                    mute.put("user", userID);
+                    mute.put("mutedUntil", record.getString("mutedUntil"));
+                    mutes.put(mute);
+                }
+            }
+            catch (JSONException e) {
+                LOG.warn("Invalid mute journal record {}. Skipping.", record);
+            }
+        }
+    }
+
+    private static JSONObject createMuteRecord(final String type, final IGuild guild, final IChannel channel,
+                                               final IUser user) {
+        final JSONObject record = new JSONObject();
+        record.put("type", type);
+        record.put("guild", guild.getLongID());
+        if (channel != null) {
+            record.put("channel", channel.getLongID());
+        }
+        record.put("user", user.getLongID());
+        return record;
+    }
+
+    /**
+     * Append a mute or unmute to the journal. Compacts the journal in the background once it gets too long, or if the
+     * record could not be written.
+     */
+    private void appendMuteRecord(final JSONObject record) {
+        final boolean written = muteJournal.append(record);
+        if ((!written || muteJournal.getRecordCount() >= MUTE_JOURNAL_MAX_RECORDS) && !scheduler.isShutdown()) {
+            scheduler.execute(this::compactMutes);
+        }
+    }
+
+    /**
+     * Write all current mutes to the JSON file and clear the journal. The journal is locked the whole time, so a mute
+     * that happens in between is either in the JSON file or in the journal. The mutes are copied into the JSON object
+     * while synchronized on the module, which is also held while the file is written. Mutes and unmutes change the
+     * maps while holding that lock and write the journal after releasing it, so the locks are always taken in the
+     * same order.
+     */
+    private void compactMutes() {
+        synchronized (muteJournal) {
+            try {
+                saveUserMutes();
+                saveChannelMutes();
+                if (bot.getPersistenceManager().flush(MODSTUFF_PATH)) {
+                    muteJournal.clear();
+                }
+            }
+            catch (RuntimeException e) {
+                LOG.warn("Could not compact the mute journal. Trying again later.", e);
+            }
+        }
+    }
 
-        final String jsonOutput = this.modstuffJSON.toString(4);
-        IOUtil.writeToFile(MODSTUFF_PATH, jsonOutput);
+    private void saveJSON() {
+        bot.getPersistenceManager().markDirty(MODSTUFF_PATH, modstuffJSON, this);
     }
 }
@@ -1,6 +1,7 @@
 package de.nikos410.discordbot.modules;
 
 import de.nikos410.discordbot.framework.CommandModule;
+import de.nikos410.discordbot.service.DiscordMessageService.Priority;
 import sx.blah.discord.api.events.EventSubscriber;
 import sx.blah.discord.handle.impl.events.guild.channel.message.MessageReceivedEvent;
 import sx.blah.discord.handle.obj.IMessage;
@@ -35,7 +36,7 @@ public class RedditLinker extends CommandModule {
 
 
         if (matcher.matches()) {
-            messageService.sendMessage(message.getChannel(), "https://www.reddit.com/r/" + matcher.group(1));
+            messageService.sendMessage(message.getChannel(), Priority.BACKGROUND, "https://www.reddit.com/r/" + matcher.group(1));
         }
     }
 }
\ No newline at end of file
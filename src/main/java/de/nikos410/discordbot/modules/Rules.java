@@ -5,6 +5,7 @@ import de.nikos410.discordbot.framework.CommandModule;
 import de.nikos410.discordbot.framework.PermissionLevel;
 import de.nikos410.discordbot.framework.annotations.CommandParameter;
 import de.nikos410.discordbot.framework.annotations.CommandSubscriber;
+import de.nikos410.discordbot.service.DiscordMessageService.Priority;
 import de.nikos410.discordbot.util.discord.UserUtils;
 import de.nikos410.discordbot.util.io.IOUtil;
 import org.json.JSONObject;
@@ -26,8 +27,7 @@ public class Rules extends CommandModule {
 
     public Rules () {
         // Read configuration
-        final String welcomeFileContent = IOUtil.readFile(RULES_PATH);
-        this.rulesJSON = new JSONObject(welcomeFileContent);
+        this.rulesJSON = IOUtil.readJSON(RULES_PATH);
     }
 
     @Override
@@ -47,23 +47,19 @@ public class Rules extends CommandModule {
 
     @EventSubscriber
     public void onUserJoin(UserJoinEvent event) {
-        final IGuild guild = event.getGuild();
-        final JSONObject guildJSON = getJSONForGuild(guild);
-
-        if (guildJSON.has("welcome") && guildJSON.has("rulesDE") && guildJSON.has("footer") && !event.getUser().isBot()) {
+        final String welcomeMessage = getWelcomeMessage(event.getGuild());
 
-            messageService.sendMessage(event.getUser().getOrCreatePMChannel(), guildJSON.getString("welcome") +
-                    "\n\n" + guildJSON.getString("rulesDE") + "\n\n\n" + guildJSON.getString("footer"));
+        if (welcomeMessage != null && !event.getUser().isBot()) {
+            messageService.sendMessage(event.getUser().getOrCreatePMChannel(), Priority.BACKGROUND, welcomeMessage);
         }
     }
 
     @CommandSubscriber(command = "regeln", help = "Die Regeln dieses Servers", pmAllowed = false)
     public void command_regeln(final IMessage message) {
-        final IGuild guild = message.getGuild();
-        final JSONObject guildJSON = getJSONForGuild(guild);
+        final String rules = getSetting(message.getGuild(), "rulesDE");
 
-        if (guildJSON.has("rulesDE")) {
-            messageService.sendMessage(message.getAuthor().getOrCreatePMChannel(), guildJSON.getString("rulesDE"));
+        if (rules != null) {
+            messageService.sendMessage(message.getAuthor().getOrCreatePMChannel(), rules);
 
             if (!message.getChannel().isPrivate()) {
                 messageService.sendMessage(message.getChannel(), ":mailbox_with_mail:");
@@ -76,11 +72,10 @@ public class Rules extends CommandModule {
 
     @CommandSubscriber(command = "rules", help = "The rules of this server", pmAllowed = false)
     public void command_rules(final IMessage message) {
-        final IGuild guild = message.getGuild();
-        final JSONObject guildJSON = getJSONForGuild(guild);
+        final String rules = getSetting(message.getGuild(), "rulesEN");
 
-        if (guildJSON.has("rulesEN")) {
-            messageService.sendMessage(message.getAuthor().getOrCreatePMChannel(), guildJSON.getString("rulesEN"));
+        if (rules != null) {
+            messageService.sendMessage(message.getAuthor().getOrCreatePMChannel(), rules);
 
             if (!message.getChannel().isPrivate()) {
                 messageService.sendMessage(message.getChannel(), ":mailbox_with_mail:");
@@ -94,23 +89,17 @@ public class Rules extends CommandModule {
     @CommandSubscriber(command = "welcomeTest", help = "Begrüßungsnachricht testen", permissionLevel = PermissionLevel.ADMIN,
             pmAllowed = false)
     public void command_welcomeTest(final IMessage message) {
-        final IGuild guild = message.getGuild();
-        final JSONObject guildJSON = getJSONForGuild(guild);
-
-        if (guildJSON.has("welcome") && guildJSON.has("rulesDE") && guildJSON.has("footer")) {
+        final String welcomeMessage = getWelcomeMessage(message.getGuild());
 
-            messageService.sendMessage(message.getChannel(), guildJSON.getString("welcome") +
-                    "\n\n" + guildJSON.getString("rulesDE") + "\n\n\n" + guildJSON.getString("footer"));
+        if (welcomeMessage != null) {
+            messageService.sendMessage(message.getChannel(), welcomeMessage);
         }
     }
 
     @CommandSubscriber(command = "enableWelcome", help = "Begrüßungsnachricht aktivieren", permissionLevel = PermissionLevel.ADMIN, pmAllowed = false)
     public void command_enableWelcome(final IMessage message) {
         final IGuild guild = message.getGuild();
-        final JSONObject guildJSON = getJSONForGuild(guild);
-
-        guildJSON.put("on", true);
-        saveJSON();
+        setSetting(guild, "on", true);
 
         messageService.sendMessage(message.getChannel(), ":white_check_mark: Aktiviert!");
         LOG.info(String.format("%s enabled welcome messages for server %s (ID: %s)", UserUtils.makeUserString(message.getAuthor(), message.getGuild()),
@@ -120,10 +109,7 @@ public class Rules extends CommandModule {
     @CommandSubscriber(command = "disableWelcome", help = "Begrüßungsnachricht deaktivieren", permissionLevel = PermissionLevel.ADMIN, pmAllowed = false)
     public void command_disableWelcome(final IMessage message) {
         final IGuild guild = message.getGuild();
-        final JSONObject guildJSON = getJSONForGuild(guild);
-
-        guildJSON.put("on", false);
-        saveJSON();
+        setSetting(guild, "on", false);
 
         messageService.sendMessage(message.getChannel(), ":white_check_mark: Deaktiviert!");
         LOG.info(String.format("%s disabled welcome messages for server %s (ID: %s)", UserUtils.makeUserString(message.getAuthor(), message.getGuild()),
@@ -134,11 +120,7 @@ public class Rules extends CommandModule {
     public void command_setWelcome(final IMessage message,
                                    @CommandParameter(name = "Nachricht", help = "Die Begrüßungsnachricht.")
                                    final String welcomeMessage) {
-        final IGuild guild = message.getGuild();
-        final JSONObject guildJSON = getJSONForGuild(guild);
-
-        guildJSON.put("welcome", welcomeMessage);
-        saveJSON();
+        setSetting(message.getGuild(), "welcome", welcomeMessage);
 
         messageService.sendMessage(message.getChannel(), ":white_check_mark: Begrüßungs-Nachricht geändert:");
         messageService.sendMessage(message.getChannel(), welcomeMessage);
@@ -148,11 +130,7 @@ public class Rules extends CommandModule {
     public void command_setRegeln(final IMessage message,
                                   @CommandParameter(name = "Regeln", help = "Die Regeln für den Server. (Auf Deutsch)")
                                   final String rulesDE) {
-        final IGuild guild = message.getGuild();
-        final JSONObject guildJSON = getJSONForGuild(guild);
-
-        guildJSON.put("rulesDE", rulesDE);
-        saveJSON();
+        setSetting(message.getGuild(), "rulesDE", rulesDE);
 
         messageService.sendMessage(message.getChannel(), ":white_check_mark: Regeln (DE) geändert:");
         messageService.sendMessage(message.getChannel(), rulesDE);
@@ -163,11 +141,7 @@ public class Rules extends CommandModule {
     public void command_setRules(final IMessage message,
                                  @CommandParameter(name = "Regeln", help = "Die Regeln für den Server. (Auf Englisch)")
                                  final String rulesEN) {
-        final IGuild guild = message.getGuild();
-        final JSONObject guildJSON = getJSONForGuild(guild);
-
-        guildJSON.put("rulesEN", rulesEN);
-        saveJSON();
+        setSetting(message.getGuild(), "rulesEN", rulesEN);
 
         messageService.sendMessage(message.getChannel(), ":white_check_mark: Regeln (EN) geändert:");
         messageService.sendMessage(message.getChannel(), rulesEN);
@@ -179,17 +153,44 @@ public class Rules extends CommandModule {
     public void command_setFooter(final IMessage message,
                                   @CommandParameter(name = "Footer", help = "Der Text, der am Ende der Begrüßung angezeigt werden soll.")
                                   final String footer) {
-        final IGuild guild = message.getGuild();
-        final JSONObject guildJSON = getJSONForGuild(guild);
-
-        guildJSON.put("footer", footer);
-        saveJSON();
+        setSetting(message.getGuild(), "footer", footer);
 
         messageService.sendMessage(message.getChannel(), ":white_check_mark: Begrüßungs-Footer geändert:");
         messageService.sendMessage(message.getChannel(), footer);
         LOG.info(String.format("%s changed rules. (DE)", UserUtils.makeUserString(message.getAuthor(), message.getGuild())));
     }
 
+    /**
+     * @return The welcome message for new users, or null if it is not complete.
+     */
+    private synchronized String getWelcomeMessage(final IGuild guild) {
+        final JSONObject guildJSON = getJSONForGuild(guild);
+
+        if (guildJSON.has("welcome") && guildJSON.has("rulesDE") && guildJSON.has("footer")) {
+            return guildJSON.getString("welcome") + "\n\n" + guildJSON.getString("rulesDE") + "\n\n\n"
+                    + guildJSON.getString("footer");
+        }
+        return null;
+    }
+
+    /**
+     * @return The value of a setting of a guild, or null if it is not set.
+     */
+    private synchronized String getSetting(final IGuild guild, final String key) {
+        final JSONObject guildJSON = getJSONForGuild(guild);
+        return guildJSON.has(key) ? guildJSON.getString(key) : null;
+    }
+
+    private void setSetting(final IGuild guild, final String key, final Object value) {
+        synchronized (this) {
+            getJSONForGuild(guild).put(key, value);
+        }
+        saveJSON();
+    }
+
+    /**
+     * Get the settings of a guild, creating them if necessary. Only call this while synchronized on the module.
+     */
     private JSONObject getJSONForGuild (final IGuild guild) {
         if (rulesJSON.has(guild.getStringID())) {
             return rulesJSON.getJSONObject(guild.getStringID());
@@ -202,8 +203,6 @@ public class Rules extends CommandModule {
     }
 
     private void saveJSON() {
-        LOG.debug("Saving rules file.");
-        final String jsonOutput = rulesJSON.toString(4);
-        IOUtil.writeToFile(RULES_PATH, jsonOutput);
+        bot.getPersistenceManager().markDirty(RULES_PATH, rulesJSON, this);
     }
 }
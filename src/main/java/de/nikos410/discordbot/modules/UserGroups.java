@@ -46,8 +46,7 @@ public class UserGroups extends CommandModule {
 
     @Override
     public void init() {
-        final String jsonContent = IOUtil.readFile(USERGROUPS_PATH);
-        usergroupsJSON = new JSONObject(jsonContent);
+        usergroupsJSON = IOUtil.readJSON(USERGROUPS_PATH);
     }
 
     @CommandSubscriber(command = "createGroup", help = "Neue Gruppe erstellen", pmAllowed = false,
@@ -56,11 +55,11 @@ public class UserGroups extends CommandModule {
                                     @CommandParameter(name = "Gruppe", help = "Der Name der Gruppe.")
                                     final String groupName) {
         final IGuild guild = message.getGuild();
-        final JSONObject guildJSON = getJSONForGuild(guild);
-
-        if (guildJSON.has(groupName)) {
-            messageService.sendMessage(message.getChannel(), ":x: Gruppe existiert bereits!");
-            return;
+        synchronized (this) {
+            if (getJSONForGuild(guild).has(groupName)) {
+                messageService.sendMessage(message.getChannel(), ":x: Gruppe existiert bereits!");
+                return;
+            }
         }
 
         final IRole role = message.getGuild().createRole();
@@ -70,7 +69,9 @@ public class UserGroups extends CommandModule {
             role.changeMentionable(true);
         }
 
-        guildJSON.put(groupName, role.getLongID());
+        synchronized (this) {
+            getJSONForGuild(guild).put(groupName, role.getLongID());
+        }
         saveJSON();
 
         messageService.sendMessage(message.getChannel(), String.format(":white_check_mark: Gruppe `%s` erstellt.", groupName));
@@ -87,17 +88,18 @@ public class UserGroups extends CommandModule {
         // Validate group first
         validateGroup(guild, groupName);
 
-        final JSONObject guildJSON = getJSONForGuild(guild);
-
-        if (!guildJSON.has(groupName)) {
+        final Long roleID = getRoleID(guild, groupName);
+        if (roleID == null) {
             messageService.sendMessage(message.getChannel(), String.format(":x: Gruppe `%s` nicht gefunden!", groupName));
             return;
         }
 
-        final IRole role = guild.getRoleByID(guildJSON.getLong(groupName));
+        final IRole role = guild.getRoleByID(roleID);
         role.delete();
 
-        guildJSON.remove(groupName);
+        synchronized (this) {
+            getJSONForGuild(guild).remove(groupName);
+        }
         saveJSON();
 
         messageService.sendMessage(message.getChannel(), String.format(":white_check_mark: Gruppe `%s` entfernt.", groupName));
@@ -114,11 +116,9 @@ public class UserGroups extends CommandModule {
         validateGroup(guild, groupName);
 
         final IUser user = message.getAuthor();
-        final JSONObject guildJSON = getJSONForGuild(guild);
-
-        if (guildJSON.has(groupName)) {
+        final Long roleID = getRoleID(guild, groupName);
 
-            final long roleID = guildJSON.getLong(groupName);
+        if (roleID != null) {
             final IRole role = message.getGuild().getRoleByID(roleID);
 
             if (UserUtils.hasRole(user, role, guild)) {
@@ -144,12 +144,12 @@ public class UserGroups extends CommandModule {
         // Validate all groups first
         validateAllGroupsForGuild(guild);
 
-        final JSONObject guildJSON = getJSONForGuild(guild);
-
         final StringBuilder stringBuilder = new StringBuilder();
 
         final List<String> keyList = new LinkedList<>();
-        keyList.addAll(guildJSON.keySet());
+        synchronized (this) {
+            keyList.addAll(getJSONForGuild(guild).keySet());
+        }
         Collections.sort(keyList);
 
         for (String key : keyList) {
@@ -170,6 +170,17 @@ public class UserGroups extends CommandModule {
         messageService.sendEmbed(message.getChannel(), embedBuilder.build());
     }
 
+    /**
+     * @return The ID of the role of a group, or null if the group does not exist.
+     */
+    private synchronized Long getRoleID(final IGuild guild, final String groupName) {
+        final JSONObject guildJSON = getJSONForGuild(guild);
+        return guildJSON.has(groupName) ? guildJSON.getLong(groupName) : null;
+    }
+
+    /**
+     * Get the groups of a guild, creating the entry if necessary. Only call this while synchronized on the module.
+     */
     private JSONObject getJSONForGuild (final IGuild guild) {
         if (usergroupsJSON.has(guild.getStringID())) {
             return usergroupsJSON.getJSONObject(guild.getStringID());
@@ -189,12 +200,14 @@ public class UserGroups extends CommandModule {
     public void onRoleDelete(final RoleDeleteEvent event) {
         final long deletedRoleID = event.getRole().getLongID();
 
-        final JSONObject guildJSON = getJSONForGuild(event.getGuild());
-        for (String currentKey : guildJSON.keySet()) {
-            final long currentID = guildJSON.getLong(currentKey);
+        synchronized (this) {
+            final JSONObject guildJSON = getJSONForGuild(event.getGuild());
+            for (String currentKey : guildJSON.keySet()) {
+                final long currentID = guildJSON.getLong(currentKey);
 
-            if (currentID == deletedRoleID) {
-                guildJSON.remove(currentKey);
+                if (currentID == deletedRoleID) {
+                    guildJSON.remove(currentKey);
+                }
             }
         }
 
@@ -219,18 +232,25 @@ public class UserGroups extends CommandModule {
      * @param guild The guild for which to validate groups
      */
     private void validateAllGroupsForGuild(final IGuild guild) {
-        final JSONObject guildJSON = getJSONForGuild(guild);
-
-        final Iterator<String> keyIterator = guildJSON.keys();
-        while (keyIterator.hasNext()) {
-            final String groupName = keyIterator.next();
-            final long roleID = guildJSON.getLong(groupName);
-
-            if (!GuildUtils.roleExists(guild, roleID)) {
-                keyIterator.remove();
-                saveJSON();
+        boolean changed = false;
+        synchronized (this) {
+            final JSONObject guildJSON = getJSONForGuild(guild);
+
+            final Iterator<String> keyIterator = guildJSON.keys();
+            while (keyIterator.hasNext()) {
+                final String groupName = keyIterator.next();
+                final long roleID = guildJSON.getLong(groupName);
+
+                if (!GuildUtils.roleExists(guild, roleID)) {
+                    keyIterator.remove();
+                    changed = true;
+                }
             }
         }
+
+        if (changed) {
+            saveJSON();
+        }
     }
 
     /**
@@ -239,24 +259,25 @@ public class UserGroups extends CommandModule {
      * @param groupName The name of the group to validate
      */
     private void validateGroup(final IGuild guild, final String groupName) {
-        final JSONObject guildJSON = getJSONForGuild(guild);
+        synchronized (this) {
+            final JSONObject guildJSON = getJSONForGuild(guild);
 
-        if (!guildJSON.has(groupName)) {
-            return;
-        }
+            if (!guildJSON.has(groupName)) {
+                return;
+            }
 
-        final long roleID = guildJSON.getLong(groupName);
+            final long roleID = guildJSON.getLong(groupName);
 
-        if (!GuildUtils.roleExists(guild, roleID)) {
+            if (GuildUtils.roleExists(guild, roleID)) {
+                return;
+            }
             guildJSON.remove(groupName);
-            saveJSON();
         }
+
+        saveJSON();
     }
 
     private void saveJSON() {
-        LOG.debug("Saving UserGroups file.");
-
-        final String jsonOutput = usergroupsJSON.toString(4);
-        IOUtil.writeToFile(USERGROUPS_PATH, jsonOutput);
+        bot.getPersistenceManager().markDirty(USERGROUPS_PATH, usergroupsJSON, this);
     }
 }
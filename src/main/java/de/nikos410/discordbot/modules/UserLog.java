@@ -4,6 +4,7 @@ import de.nikos410.discordbot.framework.CommandModule;
 import de.nikos410.discordbot.framework.PermissionLevel;
 import de.nikos410.discordbot.framework.annotations.CommandParameter;
 import de.nikos410.discordbot.framework.annotations.CommandSubscriber;
+import de.nikos410.discordbot.service.DiscordMessageService.Priority;
 import de.nikos410.discordbot.util.discord.ChannelUtils;
 import de.nikos410.discordbot.util.io.IOUtil;
 import org.json.JSONObject;
@@ -52,49 +53,30 @@ public class UserLog extends CommandModule {
 
     @Override
     public void init() {
-        final String jsonContent = IOUtil.readFile(USERLOG_PATH);
-        this.userlogJSON = new JSONObject(jsonContent);
+        this.userlogJSON = IOUtil.readJSON(USERLOG_PATH);
     }
 
     @EventSubscriber
     public void onUserJoin(UserJoinEvent event) {
-        final IGuild guild = event.getGuild();
-        final JSONObject guildJSON = getJSONForGuild(guild);
-
-        if (guildJSON.has("on") && guildJSON.getBoolean("on") && guildJSON.has("channel")) {
-            final long channelID = guildJSON.getLong("channel");
-            final IChannel channel = guild.getChannelByID(channelID);
-            if (channel != null) {
-                userJoinNotify(event.getUser(), channel);
-            }
+        final IChannel channel = getUserlogChannel(event.getGuild());
+        if (channel != null) {
+            userJoinNotify(event.getUser(), channel);
         }
     }
 
     @EventSubscriber
     public void onUnserLeave(UserLeaveEvent event) {
-        final IGuild guild = event.getGuild();
-        final JSONObject guildJSON = getJSONForGuild(guild);
-
-        if (guildJSON.has("on") && guildJSON.getBoolean("on") && guildJSON.has("channel")) {
-            final long channelID = guildJSON.getLong("channel");
-            final IChannel channel = guild.getChannelByID(channelID);
-            if (channel != null) {
-                userLeaveNotify(event.getUser(), channel);
-            }
+        final IChannel channel = getUserlogChannel(event.getGuild());
+        if (channel != null) {
+            userLeaveNotify(event.getUser(), channel);
         }
     }
 
     @EventSubscriber
     public void onUserBan(UserBanEvent event) {
-        final IGuild guild = event.getGuild();
-        final JSONObject guildJSON = getJSONForGuild(guild);
-
-        if (guildJSON.has("on") && guildJSON.getBoolean("on") && guildJSON.has("channel")) {
-            final long channelID = guildJSON.getLong("channel");
-            final IChannel channel = guild.getChannelByID(channelID);
-            if (channel != null) {
-                userBanNotify(event.getUser(), channel);
-            }
+        final IChannel channel = getUserlogChannel(event.getGuild());
+        if (channel != null) {
+            userBanNotify(event.getUser(), channel);
         }
     }
 
@@ -124,7 +106,7 @@ public class UserLog extends CommandModule {
 
         final EmbedObject embedObject = embedBuilder.build();
 
-        messageService.sendEmbed(channel, embedObject);
+        messageService.sendLogEmbed(channel, Priority.AUDIT, embedObject);
     }
 
     private void userLeaveNotify(final IUser user, final IChannel channel) {
@@ -144,7 +126,7 @@ public class UserLog extends CommandModule {
 
         final EmbedObject embedObject = embedBuilder.build();
 
-        messageService.sendEmbed(channel, embedObject);
+        messageService.sendLogEmbed(channel, Priority.AUDIT, embedObject);
     }
 
     private void userBanNotify(final IUser user, final IChannel channel) {
@@ -163,7 +145,7 @@ public class UserLog extends CommandModule {
 
         final EmbedObject embedObject = embedBuilder.build();
 
-        messageService.sendEmbed(channel, embedObject);
+        messageService.sendLogEmbed(channel, Priority.AUDIT, embedObject);
     }
 
     @CommandSubscriber(command = "setUserlogChannel", help = "Kanal für Userlog ändern",
@@ -174,9 +156,11 @@ public class UserLog extends CommandModule {
         final IChannel modlogChannel = ChannelUtils.getChannelFromMessage(message, channel);
 
         final IGuild guild = message.getGuild();
-        final JSONObject guildJSON = getJSONForGuild(guild);
+        synchronized (this) {
+            final JSONObject guildJSON = getJSONForGuild(guild);
 
-        guildJSON.put("channel", modlogChannel.getLongID());
+            guildJSON.put("channel", modlogChannel.getLongID());
+        }
         saveUserLogJSON();
 
         message.addReaction(ReactionEmoji.of("✅")); // :white_check_mark:
@@ -186,13 +170,15 @@ public class UserLog extends CommandModule {
             permissionLevel = PermissionLevel.ADMIN)
     public void command_enableUserlog(final IMessage message) {
         final IGuild guild = message.getGuild();
-        final JSONObject guildJSON = getJSONForGuild(guild);
+        synchronized (this) {
+            final JSONObject guildJSON = getJSONForGuild(guild);
 
-        if (!guildJSON.has("channel")) {
-            messageService.sendMessage(message.getChannel(), "Es ist noch kein Kanal hinterlegt!");
-        }
+            if (!guildJSON.has("channel")) {
+                messageService.sendMessage(message.getChannel(), "Es ist noch kein Kanal hinterlegt!");
+            }
 
-        guildJSON.put("on", true);
+            guildJSON.put("on", true);
+        }
         saveUserLogJSON();
 
         message.addReaction(ReactionEmoji.of("✅")); // :white_check_mark:
@@ -202,9 +188,11 @@ public class UserLog extends CommandModule {
             permissionLevel = PermissionLevel.ADMIN)
     public void command_disableUserlog(final IMessage message) {
         final IGuild guild = message.getGuild();
-        final JSONObject guildJSON = getJSONForGuild(guild);
+        synchronized (this) {
+            final JSONObject guildJSON = getJSONForGuild(guild);
 
-        guildJSON.put("on", false);
+            guildJSON.put("on", false);
+        }
         saveUserLogJSON();
 
         message.addReaction(ReactionEmoji.of("✅")); // :white_check_mark:
@@ -216,14 +204,18 @@ public class UserLog extends CommandModule {
         final IUser user = message.getAuthor();
 
         final IGuild guild = message.getGuild();
-        final JSONObject guildJSON = getJSONForGuild(guild);
+        final long channelID;
+        synchronized (this) {
+            final JSONObject guildJSON = getJSONForGuild(guild);
+
+            if (!guildJSON.has("channel")) {
+                messageService.sendMessage(message.getChannel(), "Fehler! Kein Kanal hinterlegt!");
+                return;
+            }
 
-        if (!guildJSON.has("channel")) {
-            messageService.sendMessage(message.getChannel(), "Fehler! Kein Kanal hinterlegt!");
-            return;
+            channelID = guildJSON.getLong("channel");
         }
 
-        final long channelID = guildJSON.getLong("channel");
         final IChannel channel = guild.getChannelByID(channelID);
         if (channel != null) {
             userJoinNotify(user, channel);
@@ -232,6 +224,21 @@ public class UserLog extends CommandModule {
         }
     }
 
+    /**
+     * @return The channel to log to, or null if the userlog is disabled on the guild or no channel is set.
+     */
+    private synchronized IChannel getUserlogChannel(final IGuild guild) {
+        final JSONObject guildJSON = getJSONForGuild(guild);
+
+        if (guildJSON.has("on") && guildJSON.getBoolean("on") && guildJSON.has("channel")) {
+            return guild.getChannelByID(guildJSON.getLong("channel"));
+        }
+        return null;
+    }
+
+    /**
+     * Get the settings of a guild, creating them if necessary. Only call this while synchronized on the module.
+     */
     private JSONObject getJSONForGuild (final IGuild guild) {
         if (userlogJSON.has(guild.getStringID())) {
             return userlogJSON.getJSONObject(guild.getStringID());
@@ -244,11 +251,6 @@ public class UserLog extends CommandModule {
     }
 
     private void saveUserLogJSON() {
-        LOG.debug("Saving UserLog file.");
-
-        final String jsonOutput = userlogJSON.toString(4);
-        IOUtil.writeToFile(USERLOG_PATH, jsonOutput);
-
-        userlogJSON = new JSONObject(jsonOutput);
+        bot.getPersistenceManager().markDirty(USERLOG_PATH, userlogJSON, this);
     }
 }
@@ -4,54 +4,266 @@ import sx.blah.discord.api.internal.json.objects.EmbedObject;
 import sx.blah.discord.handle.obj.IChannel;
 import sx.blah.discord.handle.obj.IMessage;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * Sends messages to Discord. Messages are sent asynchronously, every channel has its own queue, so a channel that is
+ * rate limited does not delay messages to other channels. Messages to the same channel with the same priority are
+ * sent in order.
+ *
+ * Every message has a {@link Priority}. When the bot gets close to Discord's global rate limit, messages with a
+ * higher priority are sent first. Methods without a priority parameter use {@link Priority#INTERACTIVE}.
+ */
 public interface DiscordMessageService {
 
+    /**
+     * Send a list of lines to the specified channel. See {@link #sendMessage(IChannel, Priority, List, File...)}.
+     *
+     * @param channel the channel in which the message(s) will be sent
+     * @param lines the lines to send
+     * @param attachments Attachments to add to the message
+     * @return a future containing the sent message(s). Completes exceptionally if a message could not be sent.
+     */
+    default CompletableFuture<List<IMessage>> sendMessage(IChannel channel, List<String> lines, File... attachments) {
+        return sendMessage(channel, Priority.INTERACTIVE, lines, attachments);
+    }
+
     /**
      * Send a list of lines to the specified channel. If the message gets too long (&gt;2000 characters)
-     * it will be split into multiple messages. The individual lines will not be split. Attachments will be added to the last message.
+     * it will be split into multiple messages. The individual lines will only be split if a single line is too long.
+     * Attachments will be added to the last message.
      *
-     * Will try 20 times, once every 0.5 seconds, if the bot gets rate limited.
+     * Will try 20 times if the bot gets rate limited, waiting as long as Discord asks for.
      *
      * @param channel the channel in which the message(s) will be sent
+     * @param priority the priority of the message(s)
      * @param lines the lines to send
      * @param attachments Attachments to add to the message
-     * @return a list containing the sent message(s).
+     * @return a future containing the sent message(s). Completes exceptionally if a message could not be sent.
      */
-    List<IMessage> sendMessage(IChannel channel, List<String> lines, File... attachments);
+    CompletableFuture<List<IMessage>> sendMessage(IChannel channel, Priority priority, List<String> lines, File... attachments);
+
+    /**
+     * Send a string to a channel. See {@link #sendMessage(IChannel, Priority, String, File...)}.
+     *
+     * @param channel the channel in which the message(s) will be sent
+     * @param message the content of the message
+     * @param attachments Attachments to add to the message
+     * @return a future containing the sent message(s). Completes exceptionally if a message could not be sent.
+     */
+    default CompletableFuture<List<IMessage>> sendMessage(IChannel channel, String message, File... attachments) {
+        return sendMessage(channel, Priority.INTERACTIVE, message, attachments);
+    }
 
     /**
      * Send a string to a channel. If the string is too long (&gt;2000 characters), it will be split into
-     * multiple messages. Will split in the middle of lines or words. Attachments will be added to the last message.
+     * multiple messages, at line breaks or whitespace where possible. Code blocks that are split are continued in the
+     * next message. Attachments will be added to the last message.
+     *
+     * Will try 20 times if the bot gets rate limited, waiting as long as Discord asks for.
+     *
+     * @param channel the channel in which the message(s) will be sent
+     * @param priority the priority of the message(s)
+     * @param message the content of the message
+     * @param attachments Attachments to add to the message
+     * @return a future containing the sent message(s). Completes exceptionally if a message could not be sent.
+     */
+    CompletableFuture<List<IMessage>> sendMessage(IChannel channel, Priority priority, String message, File... attachments);
+
+    /**
+     * Send a string to a channel with an attachment that is kept in memory, e.g. a rendered image. See
+     * {@link #sendMessage(IChannel, Priority, String, String, InputStream)}.
      *
-     * Will try 20 times, once every 0.5 seconds, if the bot gets rate limited.
+     * @param channel the channel in which the message(s) will be sent
+     * @param priority the priority of the message(s)
+     * @param message the content of the message
+     * @param fileName the name of the attachment
+     * @param fileData the content of the attachment
+     * @return a future containing the sent message(s). Completes exceptionally if a message could not be sent.
+     */
+    default CompletableFuture<List<IMessage>> sendMessage(IChannel channel, Priority priority, String message,
+                                                          String fileName, byte[] fileData) {
+        return sendMessage(channel, priority, message, fileName, new ByteArrayInputStream(fileData));
+    }
+
+    /**
+     * Send a string to a channel with an attachment that is read from a stream, without writing it to a file first.
+     * The message is split like {@link #sendMessage(IChannel, Priority, String, File...)}, the attachment is added
+     * to the last message. The stream is kept in memory as it is read, so the upload can be repeated if the bot gets
+     * rate limited. It is closed when the message was sent or could not be sent.
      *
      * @param channel the channel in which the message(s) will be sent
+     * @param priority the priority of the message(s)
      * @param message the content of the message
+     * @param fileName the name of the attachment
+     * @param fileData the content of the attachment
+     * @return a future containing the sent message(s). Completes exceptionally if a message could not be sent.
+     */
+    CompletableFuture<List<IMessage>> sendMessage(IChannel channel, Priority priority, String message,
+                                                  String fileName, InputStream fileData);
+
+    /**
+     * Send an embed to a channel. See {@link #sendEmbed(IChannel, Priority, EmbedObject, File...)}.
+     *
+     * @param channel The channel in which the message(s) will be sent
+     * @param embedObject The embed to send
      * @param attachments Attachments to add to the message
-     * @return a list containing the sent message(s).
+     * @return A future containing the sent message. Completes exceptionally if the message could not be sent.
      */
-    List<IMessage> sendMessage(IChannel channel, String message, File... attachments);
+    default CompletableFuture<IMessage> sendEmbed(IChannel channel, EmbedObject embedObject, File... attachments) {
+        return sendEmbed(channel, Priority.INTERACTIVE, embedObject, attachments);
+    }
 
     /**
      * Send an embed to a channel.
      *
-     * Will try 20 times, once every 0.5 seconds, if the bot gets rate limited.
+     * Will try 20 times if the bot gets rate limited, waiting as long as Discord asks for.
      *
      * @param channel The channel in which the message(s) will be sent
+     * @param priority The priority of the message
      * @param embedObject The embed to send
      * @param attachments Attachments to add to the message
-     * @return A list containing the sent message(s).
+     * @return A future containing the sent message. Completes exceptionally if the message could not be sent.
+     */
+    CompletableFuture<IMessage> sendEmbed(IChannel channel, Priority priority, EmbedObject embedObject, File... attachments);
+
+    /**
+     * Send an embed to a channel with an attachment that is kept in memory. See
+     * {@link #sendEmbed(IChannel, Priority, EmbedObject, String, InputStream)}.
+     *
+     * @param channel The channel in which the message will be sent
+     * @param priority The priority of the message
+     * @param embedObject The embed to send
+     * @param fileName The name of the attachment
+     * @param fileData The content of the attachment
+     * @return A future containing the sent message. Completes exceptionally if the message could not be sent.
      */
-    IMessage sendEmbed(IChannel channel, EmbedObject embedObject, File... attachments);
+    default CompletableFuture<IMessage> sendEmbed(IChannel channel, Priority priority, EmbedObject embedObject,
+                                                  String fileName, byte[] fileData) {
+        return sendEmbed(channel, priority, embedObject, fileName, new ByteArrayInputStream(fileData));
+    }
 
     /**
-     * Send a notification about an error to a channel.
+     * Send an embed to a channel with an attachment that is read from a stream, without writing it to a file first.
+     * The embed can show the attachment using "attachment://" and the file name. The stream is closed when the
+     * message was sent or could not be sent.
+     *
+     * @param channel The channel in which the message will be sent
+     * @param priority The priority of the message
+     * @param embedObject The embed to send
+     * @param fileName The name of the attachment
+     * @param fileData The content of the attachment
+     * @return A future containing the sent message. Completes exceptionally if the message could not be sent.
+     */
+    CompletableFuture<IMessage> sendEmbed(IChannel channel, Priority priority, EmbedObject embedObject,
+                                          String fileName, InputStream fileData);
+
+    /**
+     * Send an entry to a log channel. See {@link #sendLogMessage(IChannel, Priority, List)}.
+     *
+     * @param channel the log channel
+     * @param lines the lines of the entry
+     * @return a future containing the message(s) the entry was sent in.
+     */
+    default CompletableFuture<List<IMessage>> sendLogMessage(IChannel channel, List<String> lines) {
+        return sendLogMessage(channel, Priority.INTERACTIVE, lines);
+    }
+
+    /**
+     * Send an entry to a channel that is used as a log, e.g. the modlog. Log entries are collected for a short time
+     * and consecutive entries to the same channel are merged into as few messages as possible, so a burst of entries
+     * needs only a few requests. The lines of an entry are always sent in the same message. Entries that do not fit
+     * into a single message are sent like {@link #sendMessage(IChannel, Priority, List, File...)}.
+     *
+     * @param channel the log channel
+     * @param priority the priority of the entry
+     * @param lines the lines of the entry
+     * @return a future containing the message(s) the entry was sent in.
+     */
+    CompletableFuture<List<IMessage>> sendLogMessage(IChannel channel, Priority priority, List<String> lines);
+
+    /**
+     * Send a single line entry to a log channel. See {@link #sendLogMessage(IChannel, Priority, List)}.
+     *
+     * @param channel the log channel
+     * @param message the entry
+     * @return a future containing the message(s) the entry was sent in.
+     */
+    default CompletableFuture<List<IMessage>> sendLogMessage(IChannel channel, String message) {
+        return sendLogMessage(channel, Priority.INTERACTIVE, message);
+    }
+
+    /**
+     * Send a single line entry to a log channel. See {@link #sendLogMessage(IChannel, Priority, List)}.
+     *
+     * @param channel the log channel
+     * @param priority the priority of the entry
+     * @param message the entry
+     * @return a future containing the message(s) the entry was sent in.
+     */
+    CompletableFuture<List<IMessage>> sendLogMessage(IChannel channel, Priority priority, String message);
+
+    /**
+     * Send an embed to a log channel. See {@link #sendLogEmbed(IChannel, Priority, EmbedObject)}.
+     *
+     * @param channel The log channel
+     * @param embedObject The embed to send
+     * @return A future containing the message the embed was sent in.
+     */
+    default CompletableFuture<IMessage> sendLogEmbed(IChannel channel, EmbedObject embedObject) {
+        return sendLogEmbed(channel, Priority.INTERACTIVE, embedObject);
+    }
+
+    /**
+     * Send an embed to a channel that is used as a log. Embeds that are sent within a short time are merged into one
+     * embed with the fields of all of them, as long as they only consist of fields and have the same color,
+     * thumbnail, image, footer and author.
+     *
+     * @param channel The log channel
+     * @param priority The priority of the embed
+     * @param embedObject The embed to send
+     * @return A future containing the message the embed was sent in.
+     */
+    CompletableFuture<IMessage> sendLogEmbed(IChannel channel, Priority priority, EmbedObject embedObject);
+
+    /**
+     * Send a notification about an error to a channel. If the same error occurs again in the same channel shortly
+     * after, it is only counted and reported once at the end of the time window.
      *
      * @param errorMessage The message that will be included in the notification.
      * @param channel The channel in which to send the notification.
+     * @return A future containing the sent message, the first notification if the error was only counted.
      */
-    IMessage errorNotify(final String errorMessage, final IChannel channel);
+    CompletableFuture<IMessage> errorNotify(final String errorMessage, final IChannel channel);
+
+    /**
+     * The priority classes of outgoing messages.
+     */
+    enum Priority {
+        /**
+         * Replies to moderation commands and modlog entries. Can use the whole global rate limit.
+         */
+        MODERATION,
+
+        /**
+         * Replies to other commands.
+         */
+        INTERACTIVE,
+
+        /**
+         * Log entries that nobody waits for but that have to arrive, e.g. user logs. Delayed like background messages
+         * when the bot gets close to the global rate limit, but never dropped.
+         */
+        AUDIT,
+
+        /**
+         * Messages that nobody waits for, e.g. automatic links. Delayed first when the bot gets close to the global
+         * rate limit, and dropped if they could not be sent for too long.
+         */
+        BACKGROUND
+    }
 }
@@ -6,165 +6,772 @@ import org.slf4j.LoggerFactory;
 import sx.blah.discord.api.internal.json.objects.EmbedObject;
 import sx.blah.discord.handle.obj.IChannel;
 import sx.blah.discord.handle.obj.IMessage;
-import sx.blah.discord.util.DiscordException;
 import sx.blah.discord.util.EmbedBuilder;
 import sx.blah.discord.util.RateLimitException;
 
 import java.awt.*;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.ArrayList;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DiscordMessageServiceImpl implements DiscordMessageService {
     private static final Logger LOG = LoggerFactory.getLogger(DiscordMessageServiceImpl.class);
 
+    private static final int MAX_MESSAGE_LENGTH = 2000;
+    private static final int MAX_TRIES = 20;
+    private static final int SENDER_THREAD_COUNT = 4;
+    // Messages that are sent to a channel before other channels get a turn
+    private static final int BATCH_SIZE = 5;
+    private static final long MIN_RETRY_DELAY_MILLIS = 50;
+    // Requests per second that Discord allows across all channels
+    private static final int GLOBAL_REQUESTS_PER_SECOND = 50;
+    // Background messages that could not be sent in this time are dropped
+    private static final long BACKGROUND_MAX_WAIT_SECONDS = 30;
+    // Identical errors in a channel are collected for this time and reported once
+    private static final long ERROR_WINDOW_SECONDS = 60;
+
+    private final ScheduledExecutorService sender;
+    // Channel ID -> queue
+    private final Map<Long, ChannelQueue> queues = new ConcurrentHashMap<>();
+    // Value of System.nanoTime() until which the bot is rate limited for all channels
+    private volatile long globalRateLimitEnd = 0;
+    // Requests that can be sent without exceeding the global rate limit, refilled continuously
+    private final int globalRequestsPerSecond;
+    private final Object budgetLock = new Object();
+    private double globalBudget;
+    private long globalBudgetUpdated = System.nanoTime();
+    private final AtomicLong droppedCount = new AtomicLong();
+    // Channel ID and error message -> errors that are collected
+    private final Map<String, ErrorAggregate> errorAggregates = new ConcurrentHashMap<>();
+
+    // Log messages are collected for this time and merged up to these limits
+    private volatile long logWindowMillis = 2000;
+    private volatile int logMaxLength = 2000;
+    private volatile int logMaxFields = EmbedBuilder.FIELD_COUNT_LIMIT;
+    // Role mentions in sent text are defused as well
+    private volatile boolean sanitizeRoleMentions = false;
+
+    public DiscordMessageServiceImpl() {
+        this(GLOBAL_REQUESTS_PER_SECOND);
+    }
+
+    /**
+     * Create a message service with a different global rate limit, e.g. to measure the service itself without
+     * waiting for the rate limit.
+     *
+     * @param globalRequestsPerSecond The number of requests per second that are sent across all channels.
+     */
+    public DiscordMessageServiceImpl(final int globalRequestsPerSecond) {
+        this.globalRequestsPerSecond = globalRequestsPerSecond;
+        this.globalBudget = globalRequestsPerSecond;
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.sender = Executors.newScheduledThreadPool(SENDER_THREAD_COUNT, runnable -> {
+            final Thread thread = new Thread(runnable, "Message-Sender-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<IMessage>> sendMessage(IChannel channel, Priority priority, List<String> lines, File... attachments) {
+        // The splitter prefers line breaks, so lines are only split if a single line is too long
+        return sendMessage(channel, priority, String.join("\n", lines), attachments);
+    }
+
+    @Override
+    public CompletableFuture<List<IMessage>> sendMessage(IChannel channel, Priority priority, String message, File... attachments) {
+        return sendMessage(channel, priority, message, attachments, null);
+    }
+
+    @Override
+    public CompletableFuture<List<IMessage>> sendMessage(IChannel channel, Priority priority, String message,
+                                                         String fileName, InputStream fileData) {
+        return sendMessage(channel, priority, message, null, new InMemoryAttachment(fileName, fileData));
+    }
+
+    private CompletableFuture<List<IMessage>> sendMessage(final IChannel channel, final Priority priority, final String message,
+                                                          final File[] attachments, final InMemoryAttachment inMemoryAttachment) {
+        // Sanitize first, so the chunks do not get longer afterwards
+        final String content = sanitizeMessage(message, sanitizeRoleMentions);
+
+        final List<MessageSplitter.Chunk> chunks = MessageSplitter.split(content, MAX_MESSAGE_LENGTH);
+        final List<OutboundMessage> messages = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            // Attachments are added to the last message
+            final boolean last = i == chunks.size() - 1;
+            messages.add(new OutboundMessage(channel, chunks.get(i).getContent(content), null,
+                    last ? attachments : null, last ? inMemoryAttachment : null, priority, false));
+        }
+
+        return enqueue(channel, messages);
+    }
+
+    @Override
+    public CompletableFuture<IMessage> sendEmbed(IChannel channel, Priority priority, EmbedObject embedObject, File... attachments) {
+        final OutboundMessage message = new OutboundMessage(channel, null, embedObject, attachments, null, priority, false);
+        getQueue(channel).addAll(Collections.singletonList(message));
+        return message.future;
+    }
+
+    @Override
+    public CompletableFuture<IMessage> sendEmbed(IChannel channel, Priority priority, EmbedObject embedObject,
+                                                 String fileName, InputStream fileData) {
+        final OutboundMessage message = new OutboundMessage(channel, null, embedObject, null,
+                new InMemoryAttachment(fileName, fileData), priority, false);
+        getQueue(channel).addAll(Collections.singletonList(message));
+        return message.future;
+    }
+
+    @Override
+    public CompletableFuture<List<IMessage>> sendLogMessage(IChannel channel, Priority priority, List<String> lines) {
+        final String content = sanitizeMessage(String.join("\n", lines), sanitizeRoleMentions);
+        if (content.length() > logMaxLength) {
+            return sendMessage(channel, priority, lines);
+        }
+
+        final OutboundMessage message = new OutboundMessage(channel, content, null, null, null, priority, true);
+        getQueue(channel).addAll(Collections.singletonList(message));
+        return message.future.thenApply(Collections::singletonList);
+    }
+
     @Override
-    public synchronized List<IMessage> sendMessage(IChannel channel, List<String> lines, File... attachments) {
-        final List<IMessage> sentMessages = new ArrayList<>();
-        StringBuilder builder = new StringBuilder();
-        for (String line : lines) {
+    public CompletableFuture<List<IMessage>> sendLogMessage(IChannel channel, Priority priority, String message) {
+        return sendLogMessage(channel, priority, Collections.singletonList(message));
+    }
 
-            if (builder.length() + line.length() > 2000) {
-                // The message will be too long if we add the current line
-                sentMessages.add(sendSingleMessage(channel, builder.toString()));
-                builder = new StringBuilder();
+    @Override
+    public CompletableFuture<IMessage> sendLogEmbed(IChannel channel, Priority priority, EmbedObject embedObject) {
+        final OutboundMessage message = new OutboundMessage(channel, null, embedObject, null, null, priority, true);
+        getQueue(channel).addAll(Collections.singletonList(message));
+        return message.future;
+    }
+
+    @Override
+    public CompletableFuture<IMessage> errorNotify(String errorMessage, IChannel channel) {
+        // The first error is sent immediately, identical errors in the following time window are only counted
+        final String key = channel.getLongID() + ":" + errorMessage;
+        final boolean[] first = new boolean[1];
+        final ErrorAggregate aggregate = errorAggregates.compute(key, (k, existing) -> {
+            if (existing == null) {
+                first[0] = true;
+                return new ErrorAggregate();
             }
+            existing.suppressed++;
+            return existing;
+        });
+
+        if (first[0]) {
+            sendEmbed(channel, buildErrorEmbed(errorMessage).build()).whenComplete((sentMessage, throwable) -> {
+                if (throwable == null) {
+                    aggregate.future.complete(sentMessage);
+                }
+                else {
+                    aggregate.future.completeExceptionally(throwable);
+                }
+            });
+            sender.schedule(() -> flushErrors(key, errorMessage, channel), ERROR_WINDOW_SECONDS, TimeUnit.SECONDS);
+        }
+
+        return aggregate.future;
+    }
+
+    /**
+     * End the time window of an error and report how often it occurred again.
+     */
+    private void flushErrors(final String key, final String errorMessage, final IChannel channel) {
+        // Errors are only counted inside compute(), so the count is final once the aggregate is removed
+        final ErrorAggregate aggregate = errorAggregates.remove(key);
+        if (aggregate == null || aggregate.suppressed == 0) {
+            return;
+        }
+
+        LOG.debug("Error occurred {} more times in channel {}: {}", aggregate.suppressed, channel.getLongID(), errorMessage);
+        final EmbedBuilder embedBuilder = buildErrorEmbed(errorMessage);
+        embedBuilder.appendField("Wiederholt", String.format("%d weitere Male in den letzten %d Sekunden",
+                aggregate.suppressed, ERROR_WINDOW_SECONDS), false);
+        sendEmbed(channel, Priority.BACKGROUND, embedBuilder.build());
+    }
+
+    private static EmbedBuilder buildErrorEmbed(final String errorMessage) {
+        final EmbedBuilder embedBuilder = new EmbedBuilder();
+
+        embedBuilder.withColor(new Color(255, 42, 50));
+        embedBuilder.appendField("Interner Fehler", errorMessage, false);
+        embedBuilder.withFooterText("Mehr Infos in der Konsole");
+
+        return embedBuilder;
+    }
+
+    /**
+     * Configure how log messages are merged.
+     *
+     * @param windowMillis The time in milliseconds for which log messages are collected before they are sent.
+     * @param maxLength The maximum length of a merged text message, at most 2000.
+     * @param maxFields The maximum number of fields of a merged embed, at most 25.
+     */
+    public void setLogCoalescing(final long windowMillis, final int maxLength, final int maxFields) {
+        this.logWindowMillis = Math.max(0, windowMillis);
+        this.logMaxLength = Math.min(Math.max(1, maxLength), MAX_MESSAGE_LENGTH);
+        this.logMaxFields = Math.min(Math.max(1, maxFields), EmbedBuilder.FIELD_COUNT_LIMIT);
+    }
+
+    /**
+     * Configure if role mentions in sent text are defused, so roles are never pinged by the bot. "@everyone" and
+     * "@here" are always defused.
+     *
+     * @param sanitizeRoleMentions True to defuse role mentions.
+     */
+    public void setSanitizeRoleMentions(final boolean sanitizeRoleMentions) {
+        this.sanitizeRoleMentions = sanitizeRoleMentions;
+    }
+
+    /**
+     * @return The number of messages that are waiting to be sent.
+     */
+    public int getQueuedCount() {
+        int count = 0;
+        for (ChannelQueue queue : queues.values()) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of background messages that were dropped because they could not be sent in time.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Sanitize a message by defusing "@everyone" and "@here". See {@link #sanitizeMessage(String, boolean)}.
+     *
+     * @param message The message to be sanitized
+     * @return The sanitized message
+     */
+    public static String sanitizeMessage(final String message) {
+        return sanitizeMessage(message, false);
+    }
+
+    /**
+     * Sanitize a message in a single pass. "@everyone" and "@here" are defused by inserting a zero width space after
+     * the "@", role mentions the same way if requested.
+     *
+     * @param message The message to be sanitized
+     * @param roleMentions Also defuse role mentions ("&lt;@&amp;ID&gt;")
+     * @return The sanitized message, the same instance if there was nothing to replace
+     */
+    public static String sanitizeMessage(final String message, final boolean roleMentions) {
+        // Indices of the "@" of all mentions
+        int[] mentions = null;
+        int mentionCount = 0;
 
-            // Add a line break if the builder already contains a line
-            if (builder.length() > 0) {
-                builder.append('\n');
+        int index = message.indexOf('@');
+        while (index >= 0) {
+            if (message.startsWith("everyone", index + 1) || message.startsWith("here", index + 1)
+                    || roleMentions && index > 0 && message.charAt(index - 1) == '<' && message.startsWith("&", index + 1)) {
+                if (mentions == null) {
+                    mentions = new int[8];
+                }
+                else if (mentionCount == mentions.length) {
+                    mentions = Arrays.copyOf(mentions, mentionCount * 2);
+                }
+                mentions[mentionCount++] = index;
             }
 
-            builder.append(line);
+            index = message.indexOf('@', index + 1);
         }
-        sentMessages.add(sendSingleMessage(channel, builder.toString(), attachments));
 
+        if (mentionCount == 0) {
+            return message;
+        }
+
+        // Copy the parts between the mentions in bulk
+        final char[] sanitized = new char[message.length() + mentionCount];
+        int copied = 0;
+        int position = 0;
+        for (int i = 0; i < mentionCount; i++) {
+            final int end = mentions[i] + 1;
+            message.getChars(copied, end, sanitized, position);
+            position += end - copied;
+            sanitized[position++] = '\u200B';
+            copied = end;
+        }
+        message.getChars(copied, message.length(), sanitized, position);
 
-        return sentMessages;
+        return new String(sanitized);
     }
 
-    @Override
-    public synchronized List<IMessage> sendMessage(IChannel channel, String message, File... attachments) {
-        if (message.length() <= 2000 ) {
-            // Content fits into a single message
-            final List<IMessage> sentMessages = new ArrayList<>();
-            sentMessages.add(sendSingleMessage(channel, message, attachments));
+    private CompletableFuture<List<IMessage>> enqueue(final IChannel channel, final List<OutboundMessage> messages) {
+        getQueue(channel).addAll(messages);
+
+        final CompletableFuture<?>[] futures = messages.stream()
+                .map(message -> message.future)
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(futures).thenApply(ignored -> {
+            final List<IMessage> sentMessages = new ArrayList<>(messages.size());
+            for (OutboundMessage message : messages) {
+                sentMessages.add(message.future.join());
+            }
             return sentMessages;
+        });
+    }
+
+    private ChannelQueue getQueue(final IChannel channel) {
+        return queues.computeIfAbsent(channel.getLongID(), id -> new ChannelQueue());
+    }
+
+    /**
+     * Try to send a group of messages as a single message.
+     *
+     * @return The time in milliseconds after which sending the messages should be tried again, or a negative value
+     * if the messages are done, i.e. they were sent or failed.
+     */
+    private long trySend(final List<OutboundMessage> group) {
+        final OutboundMessage first = group.get(0);
+        try {
+            final IMessage sentMessage = group.size() == 1 ? first.send() : merge(group).send();
+            group.forEach(message -> message.future.complete(sentMessage));
         }
-        else {
-            // Content does not fit into a single message -> split
-            final List<IMessage> sentMessages = new ArrayList<>();
-            sentMessages.add(sendSingleMessage(channel, message.substring(0,1999)));
-            sentMessages.addAll(sendMessage(channel, message.substring(1999), attachments));
-            return sentMessages;
+        catch (RateLimitException rle) {
+            first.tries++;
+            if (first.tries < MAX_TRIES) {
+                final long retryDelay = Math.max(rle.getRetryDelay(), MIN_RETRY_DELAY_MILLIS);
+                if (rle.isGlobal()) {
+                    globalRateLimitEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryDelay);
+                    synchronized (budgetLock) {
+                        globalBudget = 0;
+                    }
+                }
+                return retryDelay;
+            }
+
+            LOG.warn("Bot was ratelimited while trying to send message.", rle);
+            group.forEach(message -> message.future.completeExceptionally(rle));
+        }
+        catch (FileNotFoundException e) {
+            this.errorNotify("Attachment file not found: " + e.getMessage(), first.channel);
+            group.forEach(message -> message.future.completeExceptionally(e));
         }
+        catch (IOException e) {
+            LOG.error("Attachment could not be read.", e);
+            group.forEach(message -> message.future.completeExceptionally(e));
+        }
+        catch (RuntimeException e) {
+            LOG.error("Message could not be sent.", e);
+            group.forEach(message -> message.future.completeExceptionally(e));
+        }
+
+        // Merged log messages have no attachments
+        first.closeAttachment();
+        return -1;
     }
 
-    private synchronized IMessage sendSingleMessage(final IChannel channel, final String message, final File... attachments){
-        return sendSingleMessage(channel, message, attachments, 20);
+    /**
+     * Take a request from the global budget. Lower priorities have to leave a part of the budget to higher ones, so
+     * when the bot gets close to the global rate limit, audit and background messages are delayed first, then
+     * interactive ones.
+     *
+     * @return 0 if the request can be sent, otherwise the time in nanoseconds after which to try again.
+     */
+    private long acquireGlobalBudget(final Priority priority) {
+        final double reserved;
+        switch (priority) {
+            case MODERATION:
+                reserved = 0;
+                break;
+            case INTERACTIVE:
+                reserved = 0.2 * globalRequestsPerSecond;
+                break;
+            default:
+                reserved = 0.5 * globalRequestsPerSecond;
+        }
+
+        synchronized (budgetLock) {
+            final long now = System.nanoTime();
+            globalBudget = Math.min(globalRequestsPerSecond,
+                    globalBudget + (now - globalBudgetUpdated) * globalRequestsPerSecond / 1e9);
+            globalBudgetUpdated = now;
+
+            if (globalBudget >= reserved + 1) {
+                globalBudget--;
+                return 0;
+            }
+            return (long) ((reserved + 1 - globalBudget) * 1e9 / globalRequestsPerSecond);
+        }
     }
 
-    private synchronized IMessage sendSingleMessage(final IChannel channel, final String message, final File[] attachments, final int tries){
-        try {
-            if (attachments == null || attachments.length == 0) {
-                return channel.sendMessage(sanitizeMessage(message));
+    /**
+     * Merge log messages into one message. Text messages are joined line by line, the fields of embeds are appended
+     * to the first embed. Embeds are only merged if they look the same apart from their fields.
+     */
+    private static OutboundMessage merge(final List<OutboundMessage> group) {
+        final OutboundMessage first = group.get(0);
+
+        if (first.embed == null) {
+            final StringJoiner joiner = new StringJoiner("\n");
+            group.forEach(message -> joiner.add(message.content));
+            return new OutboundMessage(first.channel, joiner.toString(), null, null, null, first.priority, true);
+        }
+
+        final List<EmbedObject.EmbedFieldObject> fields = new ArrayList<>();
+        for (OutboundMessage message : group) {
+            if (message.embed.fields != null) {
+                fields.addAll(Arrays.asList(message.embed.fields));
             }
-            else {
-                return channel.sendFiles(sanitizeMessage(message), attachments);
+        }
+        final EmbedObject embed = first.embed;
+        final EmbedObject merged = new EmbedObject(embed.title, embed.type, embed.description, embed.url,
+                embed.timestamp, embed.color, embed.footer, embed.image, embed.thumbnail, embed.video, embed.provider,
+                embed.author, fields.toArray(new EmbedObject.EmbedFieldObject[0]));
+        return new OutboundMessage(first.channel, null, merged, null, null, first.priority, true);
+    }
+
+    /**
+     * @return True if the embeds only differ in title, description and fields, so the fields of the second embed
+     * can be shown in the first without changing how they look.
+     */
+    private static boolean hasSameAppearance(final EmbedObject first, final EmbedObject second) {
+        if (first.color != second.color || !Objects.equals(first.url, second.url)
+                || !Objects.equals(first.timestamp, second.timestamp)) {
+            return false;
+        }
+
+        if (first.thumbnail == null || second.thumbnail == null) {
+            if (first.thumbnail != second.thumbnail) {
+                return false;
             }
         }
-        catch (FileNotFoundException e) {
-            this.errorNotify("Attachment file not found: " + e.getMessage(), channel);
+        else if (!Objects.equals(first.thumbnail.url, second.thumbnail.url)) {
+            return false;
         }
-        catch (RateLimitException rle) {
-            if (tries > 0) {
-                // Try again after 500ms
-                try {
-                    TimeUnit.MILLISECONDS.sleep(500);
-                }
-                catch (InterruptedException ie) {
-                    LOG.warn("Sleep was interrupted.", ie);
-                    // Restore interrupted state
-                    Thread.currentThread().interrupt();
-                }
 
-                return sendSingleMessage(channel, message, attachments, tries - 1);
+        if (first.image == null || second.image == null) {
+            if (first.image != second.image) {
+                return false;
             }
-            else {
-                LOG.warn("Bot was ratelimited while trying to send message.", rle);
+        }
+        else if (!Objects.equals(first.image.url, second.image.url)) {
+            return false;
+        }
+
+        if (first.footer == null || second.footer == null) {
+            if (first.footer != second.footer) {
+                return false;
             }
         }
-        catch (DiscordException de) {
-            LOG.error("Message could not be sent.", de);
+        else if (!Objects.equals(first.footer.text, second.footer.text)
+                || !Objects.equals(first.footer.icon_url, second.footer.icon_url)) {
+            return false;
         }
 
-        return null;
+        if (first.author == null || second.author == null) {
+            return first.author == second.author;
+        }
+        return Objects.equals(first.author.name, second.author.name)
+                && Objects.equals(first.author.url, second.author.url)
+                && Objects.equals(first.author.icon_url, second.author.icon_url);
     }
 
-    @Override
-    public synchronized IMessage sendEmbed(IChannel channel, EmbedObject embedObject, File... attachments) {
-        return sendEmbed(channel, embedObject, attachments, 20);
+    private static int fieldCount(final EmbedObject embed) {
+        return embed.fields == null ? 0 : embed.fields.length;
     }
 
-    private synchronized IMessage sendEmbed(final IChannel channel, final EmbedObject embedObject, final File[] attachments, final int tries) {
-        try {
-            if (attachments == null || attachments.length == 0) {
-                return channel.sendMessage(embedObject);
-            }
-            else {
-                return channel.sendFiles(embedObject, attachments);
+    /**
+     * @return The number of characters of an embed that count towards Discord's limit of 6000.
+     */
+    private static int embedLength(final EmbedObject embed) {
+        int length = length(embed.title) + length(embed.description);
+        if (embed.fields != null) {
+            for (EmbedObject.EmbedFieldObject field : embed.fields) {
+                length += length(field.name) + length(field.value);
             }
         }
-        catch (FileNotFoundException e) {
-            this.errorNotify("Attachment file not found: " + e.getMessage(), channel);
+        if (embed.footer != null) {
+            length += length(embed.footer.text);
         }
-        catch (RateLimitException rle) {
-            if (tries > 0) {
-                // Try again after 500ms
-                try {
-                    TimeUnit.MILLISECONDS.sleep(500);
+        if (embed.author != null) {
+            length += length(embed.author.name);
+        }
+        return length;
+    }
+
+    private static int length(final String text) {
+        return text == null ? 0 : text.length();
+    }
+
+    /**
+     * The messages that are waiting to be sent to one channel. A channel is handled by at most one sender thread at
+     * a time, which keeps the order of the messages. Messages to a channel share one rate limit bucket, so if a
+     * message is rate limited, the queue waits for the retry delay without blocking a thread.
+     *
+     * Every priority has its own queue, messages with a higher priority are sent first. Background messages that
+     * waited too long are dropped.
+     *
+     * Consecutive log messages at the head of the queue are merged. If the queue was idle, sending log messages
+     * starts after the log window, so that a burst of log messages is sent in as few messages as possible. While
+     * the queue waits for a rate limit, more log messages can be merged as well.
+     */
+    private final class ChannelQueue implements Runnable {
+        private final Map<Priority, Deque<OutboundMessage>> messages = new EnumMap<>(Priority.class);
+        // True while the queue is waiting for or being handled by a sender thread
+        private boolean scheduled = false;
+
+        private ChannelQueue() {
+            for (Priority priority : Priority.values()) {
+                messages.put(priority, new ArrayDeque<>());
+            }
+        }
+
+        /**
+         * Add messages to the queue. All messages must have the same priority.
+         */
+        private void addAll(final List<OutboundMessage> newMessages) {
+            final boolean schedule;
+            synchronized (this) {
+                messages.get(newMessages.get(0).priority).addAll(newMessages);
+                schedule = !scheduled;
+                scheduled = true;
+            }
+
+            if (schedule) {
+                if (newMessages.stream().allMatch(message -> message.coalesce)) {
+                    sender.schedule(this, logWindowMillis, TimeUnit.MILLISECONDS);
+                }
+                else {
+                    sender.execute(this);
                 }
-                catch (InterruptedException ie) {
-                    LOG.warn("Sleep was interrupted.", ie);
-                    // Restore interrupted state
-                    Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * @return The messages at the head of the queue with the highest priority that are sent as one message.
+         */
+        private synchronized List<OutboundMessage> nextGroup() {
+            dropExpired();
+
+            Deque<OutboundMessage> queue = null;
+            for (Deque<OutboundMessage> priorityQueue : messages.values()) {
+                if (!priorityQueue.isEmpty()) {
+                    queue = priorityQueue;
+                    break;
                 }
+            }
+            if (queue == null) {
+                return Collections.emptyList();
+            }
 
-                return sendEmbed(channel, embedObject, attachments, tries - 1);
+            final OutboundMessage first = queue.peek();
+            if (!first.coalesce) {
+                return Collections.singletonList(first);
+            }
+
+            final List<OutboundMessage> group = new ArrayList<>();
+            group.add(first);
+
+            final Iterator<OutboundMessage> iterator = queue.iterator();
+            iterator.next();
+            if (first.embed == null) {
+                int length = first.content.length();
+                while (iterator.hasNext()) {
+                    final OutboundMessage next = iterator.next();
+                    if (!next.coalesce || next.embed != null || length + 1 + next.content.length() > logMaxLength) {
+                        break;
+                    }
+                    length += 1 + next.content.length();
+                    group.add(next);
+                }
             }
             else {
-                LOG.warn("Bot was ratelimited while trying to send embed.", rle);
+                int fields = fieldCount(first.embed);
+                int length = embedLength(first.embed);
+                while (iterator.hasNext()) {
+                    final OutboundMessage next = iterator.next();
+                    // Only the fields of the following embeds are merged, everything else is taken from the first
+                    if (!next.coalesce || next.embed == null || next.embed.title != null || next.embed.description != null
+                            || !hasSameAppearance(first.embed, next.embed)
+                            || fields + fieldCount(next.embed) > logMaxFields
+                            || length + embedLength(next.embed) > EmbedBuilder.MAX_CHAR_LIMIT) {
+                        break;
+                    }
+                    fields += fieldCount(next.embed);
+                    length += embedLength(next.embed);
+                    group.add(next);
+                }
             }
+            return group;
         }
-        catch (DiscordException de) {
-            LOG.error("Embed could not be sent.", de);
+
+        /**
+         * Drop background messages that waited too long. Messages are ordered by age, so only the head is checked.
+         */
+        private void dropExpired() {
+            final Deque<OutboundMessage> queue = messages.get(Priority.BACKGROUND);
+            final long maxWait = TimeUnit.SECONDS.toNanos(BACKGROUND_MAX_WAIT_SECONDS);
+            final long now = System.nanoTime();
+            while (!queue.isEmpty() && now - queue.peek().enqueued > maxWait) {
+                final OutboundMessage expired = queue.poll();
+                expired.future.cancel(false);
+                expired.closeAttachment();
+                droppedCount.incrementAndGet();
+                LOG.debug("Dropped background message to channel {} after {} seconds.", expired.channel.getLongID(),
+                        BACKGROUND_MAX_WAIT_SECONDS);
+            }
         }
 
-        return null;
+        private synchronized int size() {
+            int size = 0;
+            for (Deque<OutboundMessage> queue : messages.values()) {
+                size += queue.size();
+            }
+            return size;
+        }
+
+        @Override
+        public void run() {
+            final long globalDelay = globalRateLimitEnd - System.nanoTime();
+            if (globalDelay > 0) {
+                sender.schedule(this, globalDelay, TimeUnit.NANOSECONDS);
+                return;
+            }
+
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                final List<OutboundMessage> group;
+                synchronized (this) {
+                    group = nextGroup();
+                    if (group.isEmpty()) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+
+                final Priority priority = group.get(0).priority;
+                final long budgetDelay = acquireGlobalBudget(priority);
+                if (budgetDelay > 0) {
+                    sender.schedule(this, budgetDelay, TimeUnit.NANOSECONDS);
+                    return;
+                }
+
+                final long retryDelay = trySend(group);
+                if (retryDelay >= 0) {
+                    sender.schedule(this, retryDelay, TimeUnit.MILLISECONDS);
+                    return;
+                }
+
+                synchronized (this) {
+                    final Deque<OutboundMessage> queue = messages.get(priority);
+                    for (int j = 0; j < group.size(); j++) {
+                        queue.poll();
+                    }
+                }
+            }
+
+            // Give other channels a turn
+            sender.execute(this);
+        }
     }
 
-    @Override
-    public IMessage errorNotify(String errorMessage, IChannel channel) {
-        final EmbedBuilder embedBuilder = new EmbedBuilder();
+    private static final class OutboundMessage {
+        private final IChannel channel;
+        private final String content;
+        private final EmbedObject embed;
+        private final File[] attachments;
+        private final InMemoryAttachment inMemoryAttachment;
+        private final Priority priority;
+        // Log messages can be merged with other log messages
+        private final boolean coalesce;
+        private final long enqueued = System.nanoTime();
+        private final CompletableFuture<IMessage> future = new CompletableFuture<>();
+        private int tries = 0;
 
-        embedBuilder.withColor(new Color(255, 42, 50));
-        embedBuilder.appendField("Interner Fehler", errorMessage, false);
-        embedBuilder.withFooterText("Mehr Infos in der Konsole");
+        private OutboundMessage(final IChannel channel, final String content, final EmbedObject embed,
+                                final File[] attachments, final InMemoryAttachment inMemoryAttachment,
+                                final Priority priority, final boolean coalesce) {
+            this.channel = channel;
+            this.content = content;
+            this.embed = embed;
+            this.attachments = attachments;
+            this.inMemoryAttachment = inMemoryAttachment;
+            this.priority = priority;
+            this.coalesce = coalesce;
+        }
+
+        private IMessage send() throws IOException {
+            if (inMemoryAttachment != null) {
+                final InputStream data = inMemoryAttachment.rewind();
+                return embed != null ? channel.sendFile(embed, data, inMemoryAttachment.fileName)
+                        : channel.sendFile(content, data, inMemoryAttachment.fileName);
+            }
 
-        return sendEmbed(channel, embedBuilder.build());
+            final boolean hasAttachments = attachments != null && attachments.length > 0;
+            if (embed != null) {
+                return hasAttachments ? channel.sendFiles(embed, attachments) : channel.sendMessage(embed);
+            }
+            return hasAttachments ? channel.sendFiles(content, attachments) : channel.sendMessage(content);
+        }
+
+        private void closeAttachment() {
+            if (inMemoryAttachment != null) {
+                inMemoryAttachment.close();
+            }
+        }
     }
 
     /**
-     * Sanitize a message by replacing "@everyone" with "(at)everyone"
-     *
-     * @param message The message to be sanitized
-     * @return The sanitized message
+     * An attachment that is read from a stream instead of a file. Everything that is read from the stream is kept in
+     * memory, so the upload can be repeated after a rate limit.
      */
-    public static String sanitizeMessage(final String message) {
-        return message
-                .replaceAll("@everyone", "@\u200Beveryone")
-                .replaceAll("@here", "@\u200Bhere");
+    private static final class InMemoryAttachment {
+        private final String fileName;
+        private final InputStream data;
+
+        private InMemoryAttachment(final String fileName, final InputStream data) {
+            this.fileName = fileName;
+            // ByteArrayInputStream supports mark() without copying, other streams are buffered as they are read
+            this.data = data.markSupported() ? data : new BufferedInputStream(data);
+            this.data.mark(Integer.MAX_VALUE);
+        }
+
+        /**
+         * @return The stream, positioned at the start of the attachment. Closing it does not close the underlying
+         * stream, because the upload closes it even if it is rate limited.
+         */
+        private InputStream rewind() throws IOException {
+            data.reset();
+            return new FilterInputStream(data) {
+                @Override
+                public void close() {
+                    // Closed by close() of the attachment
+                }
+            };
+        }
+
+        private void close() {
+            try {
+                data.close();
+            }
+            catch (IOException e) {
+                LOG.warn("Attachment stream could not be closed.", e);
+            }
+        }
+    }
+
+    /**
+     * Identical errors in a channel during one time window.
+     */
+    private static final class ErrorAggregate {
+        // Completed with the notification about the first error
+        private final CompletableFuture<IMessage> future = new CompletableFuture<>();
+        // Only modified inside ConcurrentHashMap.compute()
+        private int suppressed = 0;
     }
 }
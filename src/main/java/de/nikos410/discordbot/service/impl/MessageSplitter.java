@@ -0,0 +1,197 @@
+package de.nikos410.discordbot.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits text that is too long for a single message in a single pass. Text is split at line breaks where possible,
+ * otherwise at whitespace, and surrogate pairs are never split. If a split falls into a code block, the block is
+ * closed at the end of the chunk and opened again, with the same language, at the start of the next one.
+ */
+public final class MessageSplitter {
+    private static final String FENCE = "```";
+    private static final String CLOSING_FENCE = "\n" + FENCE;
+    // Longer fence lines are not repeated, only the fence itself
+    private static final int MAX_FENCE_LINE_LENGTH = 32;
+    private static final int MIN_LENGTH = 2 * (MAX_FENCE_LINE_LENGTH + CLOSING_FENCE.length());
+
+    private MessageSplitter() {
+    }
+
+    /**
+     * A part of the text that is sent as one message. Only the offsets are stored, the content is created when
+     * needed.
+     */
+    public static final class Chunk {
+        private final int start;
+        private final int end;
+        private final String openingFence;
+        private final boolean closingFence;
+
+        private Chunk(final int start, final int end, final String openingFence, final boolean closingFence) {
+            this.start = start;
+            this.end = end;
+            this.openingFence = openingFence;
+            this.closingFence = closingFence;
+        }
+
+        /**
+         * @return The index of the first character of the chunk in the text.
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * @return The index after the last character of the chunk in the text.
+         */
+        public int getEnd() {
+            return end;
+        }
+
+        /**
+         * @return The fence line of the code block that was opened in a previous chunk and is continued in this one,
+         * or null.
+         */
+        public String getOpeningFence() {
+            return openingFence;
+        }
+
+        /**
+         * @return True if a code block is still open at the end of the chunk and has to be closed.
+         */
+        public boolean isClosingFence() {
+            return closingFence;
+        }
+
+        /**
+         * Create the content of the message for this chunk.
+         *
+         * @param text The text that was split.
+         * @return The content, including the fences that continue a code block.
+         */
+        public String getContent(final String text) {
+            if (openingFence == null && !closingFence) {
+                return text.substring(start, end);
+            }
+
+            final StringBuilder builder = new StringBuilder(end - start + MAX_FENCE_LINE_LENGTH + CLOSING_FENCE.length() + 1);
+            if (openingFence != null) {
+                builder.append(openingFence).append('\n');
+            }
+            builder.append(text, start, end);
+            if (closingFence) {
+                builder.append(CLOSING_FENCE);
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Split a text into chunks.
+     *
+     * @param text The text.
+     * @param maxLength The maximum length of the content of a chunk, including fences.
+     * @return The chunks in order. Contains a single chunk if the text is short enough.
+     */
+    public static List<Chunk> split(final String text, final int maxLength) {
+        if (maxLength < MIN_LENGTH) {
+            throw new IllegalArgumentException("The maximum length must be at least " + MIN_LENGTH);
+        }
+
+        final List<Chunk> chunks = new ArrayList<>(text.length() / maxLength + 1);
+        final int length = text.length();
+
+        int start = 0;
+        // The fence line of the code block that is open at the start of the chunk
+        String fence = null;
+        while (true) {
+            final int fenceLength = fence == null ? 0 : fence.length() + 1;
+            if (length - start + fenceLength <= maxLength) {
+                // The rest fits, a code block that is not closed in the text is not closed here either
+                chunks.add(new Chunk(start, length, fence, false));
+                return chunks;
+            }
+
+            // Always leave room for closing a code block
+            final int limit = start + maxLength - fenceLength - CLOSING_FENCE.length();
+
+            String currentFence = fence;
+            int lastLineBreak = -1;
+            String fenceAtLineBreak = null;
+            int lastWhitespace = -1;
+            String fenceAtWhitespace = null;
+            for (int i = start; i < limit; i++) {
+                final char c = text.charAt(i);
+                if (c == '`' && (i == 0 || text.charAt(i - 1) == '\n') && text.startsWith(FENCE, i)) {
+                    if (currentFence != null) {
+                        currentFence = null;
+                    }
+                    else if (!isClosedInLine(text, i)) {
+                        currentFence = fenceLine(text, i);
+                    }
+                }
+
+                if (c == '\n') {
+                    lastLineBreak = i;
+                    fenceAtLineBreak = currentFence;
+                }
+                else if (Character.isWhitespace(c)) {
+                    lastWhitespace = i;
+                    fenceAtWhitespace = currentFence;
+                }
+            }
+
+            // Line breaks are used anywhere in the chunk, whitespace only in the second half. After a chunk that ends
+            // early at a line break, the next chunk has no line break before the previous limit, so it either ends
+            // after that limit or in its own second half. Either way, every character is scanned at most three times.
+            final int minEnd = start + (limit - start) / 2;
+            final int end;
+            final int next;
+            final String fenceAtEnd;
+            if (lastLineBreak > start) {
+                end = lastLineBreak;
+                next = lastLineBreak + 1;
+                fenceAtEnd = fenceAtLineBreak;
+            }
+            else if (lastWhitespace > minEnd) {
+                end = lastWhitespace;
+                next = lastWhitespace + 1;
+                fenceAtEnd = fenceAtWhitespace;
+            }
+            else {
+                end = Character.isHighSurrogate(text.charAt(limit - 1)) ? limit - 1 : limit;
+                next = end;
+                fenceAtEnd = currentFence;
+            }
+
+            chunks.add(new Chunk(start, end, fence, fenceAtEnd != null));
+            fence = fenceAtEnd;
+            start = next;
+        }
+    }
+
+    /**
+     * @return The line that opens a code block, e.g. "```java".
+     */
+    private static String fenceLine(final String text, final int start) {
+        int end = start + FENCE.length();
+        while (end < text.length() && text.charAt(end) != '\n' && end - start <= MAX_FENCE_LINE_LENGTH) {
+            end++;
+        }
+
+        return end - start > MAX_FENCE_LINE_LENGTH ? FENCE : text.substring(start, end);
+    }
+
+    /**
+     * @return True if the code block that starts at the given index ends in the same line, e.g. "```code```".
+     */
+    private static boolean isClosedInLine(final String text, final int start) {
+        for (int i = start + FENCE.length(); i < text.length() && text.charAt(i) != '\n'; i++) {
+            if (text.startsWith(FENCE, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,157 @@
+package de.nikos410.discordbot.util.io;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reads the files written by an {@link EventLogWriter}.
+ */
+public class EventLogReader implements Closeable {
+    private final DataInputStream input;
+    private final long startTime;
+    private final List<Long> dictionary = new ArrayList<>();
+    private long previousTimestamp;
+
+    /**
+     * Open an event log file and read its header.
+     *
+     * @param file The file.
+     * @throws IOException If the file could not be read or is not an event log.
+     */
+    public EventLogReader(final Path file) throws IOException {
+        this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+
+        try {
+            if (input.readInt() != EventLogWriter.MAGIC) {
+                throw new IOException(String.format("\"%s\" is not an event log.", file));
+            }
+            final int version = input.readUnsignedByte();
+            if (version != 1 && version != EventLogWriter.VERSION) {
+                throw new IOException(String.format("Unsupported event log version %d in \"%s\".", version, file));
+            }
+            this.startTime = input.readLong();
+            if (version == 1) {
+                // Version 1 contained the salt of the content hashes
+                input.readInt();
+            }
+        }
+        catch (IOException e) {
+            input.close();
+            throw e;
+        }
+        this.previousTimestamp = startTime;
+    }
+
+    /**
+     * Find all event logs in a directory.
+     *
+     * @param directory The directory.
+     * @return The files in the order they were written.
+     * @throws IOException If the directory could not be read.
+     */
+    public static List<Path> findFiles(final Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> file.getFileName().toString().startsWith("events-"))
+                    .filter(file -> file.getFileName().toString().endsWith(".bin"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * @return The time the file was started in milliseconds since the epoch.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @return The record, or null if the end of the file was reached. A record that was cut off, e.g. because the
+     * bot was stopped while writing, is treated as the end of the file.
+     * @throws IOException If the file could not be read or is malformed.
+     */
+    public EventLogRecord read() throws IOException {
+        final int typeByte = input.read();
+        if (typeByte < 0) {
+            return null;
+        }
+
+        try {
+            final EventLogRecord.Type[] types = EventLogRecord.Type.values();
+            final int typeIndex = typeByte & ~EventLogWriter.COMMAND_FLAG;
+            if (typeIndex >= types.length) {
+                throw new IOException("Unknown event type " + typeIndex);
+            }
+            final EventLogRecord.Type type = types[typeIndex];
+            final boolean command = (typeByte & EventLogWriter.COMMAND_FLAG) != 0;
+
+            final long timestamp = previousTimestamp + EventLogWriter.unZigZag(EventLogWriter.readVarLong(input));
+            previousTimestamp = timestamp;
+
+            final long guildID = readID();
+            final long channelID = readID();
+            final long userID = readID();
+
+            int value = 0;
+            int hash = 0;
+            long previousChannelID = 0;
+            switch (type) {
+                case MESSAGE:
+                case MESSAGE_EDIT:
+                case PRESENCE_UPDATE:
+                    value = (int) EventLogWriter.readVarLong(input);
+                    hash = input.readInt();
+                    break;
+                case VOICE_MOVE:
+                    previousChannelID = readID();
+                    break;
+                default:
+                    break;
+            }
+
+            return new EventLogRecord(type, timestamp, guildID, channelID, userID, previousChannelID, value, hash, command);
+        }
+        catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private long readID() throws IOException {
+        final long reference = EventLogWriter.readVarLong(input);
+        if (reference == EventLogWriter.NO_ID) {
+            return 0;
+        }
+
+        if (reference == EventLogWriter.NEW_ID) {
+            final long id = input.readLong();
+            if (dictionary.size() < EventLogWriter.MAX_DICTIONARY_SIZE) {
+                dictionary.add(id);
+            }
+            return id;
+        }
+
+        final long index = reference - EventLogWriter.FIRST_INDEX;
+        if (index >= dictionary.size()) {
+            throw new IOException("Unknown ID reference " + index);
+        }
+        return dictionary.get((int) index);
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
@@ -0,0 +1,141 @@
+package de.nikos410.discordbot.util.io;
+
+/**
+ * A single gateway event in an event log. Records only contain IDs, the time and the shape of the event, never the
+ * content of a message. IDs that are not known for an event are 0.
+ */
+public final class EventLogRecord {
+    public enum Type {
+        MESSAGE,
+        MESSAGE_EDIT,
+        PRESENCE_UPDATE,
+        USER_JOIN,
+        USER_LEAVE,
+        VOICE_JOIN,
+        VOICE_MOVE,
+        VOICE_LEAVE
+    }
+
+    private final Type type;
+    private final long timestamp;
+    private final long guildID;
+    private final long channelID;
+    private final long userID;
+    private final long previousChannelID;
+    private final int value;
+    private final int hash;
+    private final boolean command;
+
+    EventLogRecord(final Type type, final long timestamp, final long guildID, final long channelID, final long userID,
+                   final long previousChannelID, final int value, final int hash, final boolean command) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.guildID = guildID;
+        this.channelID = channelID;
+        this.userID = userID;
+        this.previousChannelID = previousChannelID;
+        this.value = value;
+        this.hash = hash;
+        this.command = command;
+    }
+
+    /**
+     * Create a record for a message that was sent or edited.
+     *
+     * @param type {@link Type#MESSAGE} or {@link Type#MESSAGE_EDIT}.
+     * @param timestamp The time of the event in milliseconds since the epoch.
+     * @param guildID The ID of the guild, or 0 for private messages.
+     * @param channelID The ID of the channel.
+     * @param userID The ID of the author.
+     * @param length The length of the message content.
+     * @param hash The hash of the message content, or of the command name if the message is a command.
+     * @param command True if the message invokes a command of the bot.
+     * @return The record.
+     */
+    public static EventLogRecord message(final Type type, final long timestamp, final long guildID, final long channelID,
+                                         final long userID, final int length, final int hash, final boolean command) {
+        return new EventLogRecord(type, timestamp, guildID, channelID, userID, 0, length, hash, command);
+    }
+
+    /**
+     * Create a record for a presence update.
+     *
+     * @param timestamp The time of the event in milliseconds since the epoch.
+     * @param userID The ID of the user.
+     * @param status The ordinal of the new {@link sx.blah.discord.handle.obj.StatusType}.
+     * @param gameHash The hash of the game the user is playing, or 0.
+     * @return The record.
+     */
+    public static EventLogRecord presence(final long timestamp, final long userID, final int status, final int gameHash) {
+        return new EventLogRecord(Type.PRESENCE_UPDATE, timestamp, 0, 0, userID, 0, status, gameHash, false);
+    }
+
+    /**
+     * Create a record for a user joining or leaving a guild or a voice channel.
+     *
+     * @param type The type of the event, not a message or presence update.
+     * @param timestamp The time of the event in milliseconds since the epoch.
+     * @param guildID The ID of the guild.
+     * @param channelID The ID of the voice channel the user is connected to afterwards or was connected to before
+     *                  leaving. 0 for guild events.
+     * @param userID The ID of the user.
+     * @param previousChannelID The ID of the voice channel the user moved from, or 0.
+     * @return The record.
+     */
+    public static EventLogRecord member(final Type type, final long timestamp, final long guildID, final long channelID,
+                                        final long userID, final long previousChannelID) {
+        return new EventLogRecord(type, timestamp, guildID, channelID, userID, previousChannelID, 0, 0, false);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return The time of the event in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getGuildID() {
+        return guildID;
+    }
+
+    public long getChannelID() {
+        return channelID;
+    }
+
+    public long getUserID() {
+        return userID;
+    }
+
+    /**
+     * @return For {@link Type#VOICE_MOVE}, the ID of the voice channel the user moved from.
+     */
+    public long getPreviousChannelID() {
+        return previousChannelID;
+    }
+
+    /**
+     * @return For messages the length of the content, for presence updates the ordinal of the status.
+     */
+    public int getValue() {
+        return value;
+    }
+
+    /**
+     * @return For messages the hash of the content or the command name, for presence updates the hash of the game.
+     * Content and game hashes are salted per recording, so they can only be compared within the same recording.
+     */
+    public int getHash() {
+        return hash;
+    }
+
+    /**
+     * @return True if the message invokes a command of the bot.
+     */
+    public boolean isCommand() {
+        return command;
+    }
+}
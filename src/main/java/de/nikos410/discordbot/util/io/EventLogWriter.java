@@ -0,0 +1,301 @@
+package de.nikos410.discordbot.util.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes {@link EventLogRecord}s to compact, append-only binary files. Records are queued and written by a separate
+ * thread, so adding a record never blocks. If the queue is full, the record is dropped. A new file is started when
+ * the current file reaches the maximum size.
+ *
+ * Every file starts with a header (magic number, format version, start time). The salt of the content hashes is never
+ * written, so the hashes can not be resolved from the files. Records consist of the type,
+ * the time since the previous record and references to the IDs of the event. The first time an ID appears in a file
+ * it is written in full, after that only its index. See {@link EventLogReader} for reading the files.
+ */
+public class EventLogWriter implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(EventLogWriter.class);
+
+    static final int MAGIC = 0x44424556; // "DBEV"
+    static final int VERSION = 2;
+    static final int COMMAND_FLAG = 0x80;
+    static final int MAX_DICTIONARY_SIZE = 1 << 20;
+
+    // References to IDs
+    static final int NO_ID = 0;
+    static final int NEW_ID = 1;
+    static final int FIRST_INDEX = 2;
+
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+    private static final DateTimeFormatter FILE_NAME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path directory;
+    private final long maxFileSize;
+    private final BlockingQueue<EventLogRecord> queue;
+    private final int salt = ThreadLocalRandom.current().nextInt();
+    private final String fileNamePrefix = "events-" + LocalDateTime.now().format(FILE_NAME_FORMATTER);
+    private final Thread thread;
+
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private volatile boolean closed = false;
+    private volatile Path currentFile;
+
+    // Only accessed by the writer thread
+    private final Map<Long, Integer> dictionary = new HashMap<>();
+    private DataOutputStream output;
+    private long previousTimestamp;
+    private int fileNumber = 0;
+
+    /**
+     * Create a writer and start its thread.
+     *
+     * @param directory The directory the files are written to.
+     * @param maxFileSize The size in bytes after which a new file is started.
+     * @param queueCapacity The number of records that can wait to be written.
+     */
+    public EventLogWriter(final Path directory, final long maxFileSize, final int queueCapacity) {
+        this.directory = directory;
+        this.maxFileSize = maxFileSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.thread = new Thread(this::run, "Event-Log-Writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queue a record to be written. Does not block.
+     *
+     * @param record The record.
+     * @return False if the writer was closed or the queue is full and the record was dropped.
+     */
+    public boolean add(final EventLogRecord record) {
+        if (closed || !queue.offer(record)) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Hash a message content or the name of a game. The hash is salted, so the same content has the same hash within
+     * one writer, but not across writers.
+     *
+     * @param content The content.
+     * @return The hash.
+     */
+    public int hashContent(final String content) {
+        // FNV-1a
+        int hash = 0x811C9DC5 ^ salt;
+        for (byte b : content.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+
+    /**
+     * @return The number of records that were written.
+     */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /**
+     * @return The number of records that were dropped because the queue was full or could not be written.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return The file that is currently written, or null if no record was written yet.
+     */
+    public Path getCurrentFile() {
+        return currentFile;
+    }
+
+    /**
+     * Write all queued records and close the current file. Records that are added afterwards are dropped.
+     */
+    @Override
+    public void close() {
+        // The thread notices within the flush interval, it is not interrupted because that would close the file channel
+        closed = true;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT_SECONDS));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (!closed || !queue.isEmpty()) {
+            final EventLogRecord record;
+            try {
+                record = queue.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            if (record == null) {
+                flush();
+            }
+            else {
+                write(record);
+            }
+        }
+        closeFile();
+    }
+
+    private void write(final EventLogRecord record) {
+        try {
+            if (output == null) {
+                openFile();
+            }
+
+            output.writeByte(record.getType().ordinal() | (record.isCommand() ? COMMAND_FLAG : 0));
+            writeVarLong(output, zigZag(record.getTimestamp() - previousTimestamp));
+            previousTimestamp = record.getTimestamp();
+
+            writeID(record.getGuildID());
+            writeID(record.getChannelID());
+            writeID(record.getUserID());
+
+            switch (record.getType()) {
+                case MESSAGE:
+                case MESSAGE_EDIT:
+                case PRESENCE_UPDATE:
+                    writeVarLong(output, record.getValue());
+                    output.writeInt(record.getHash());
+                    break;
+                case VOICE_MOVE:
+                    writeID(record.getPreviousChannelID());
+                    break;
+                default:
+                    break;
+            }
+            writtenCount.incrementAndGet();
+
+            if (output.size() >= maxFileSize) {
+                closeFile();
+            }
+        }
+        catch (IOException e) {
+            LOG.error(String.format("Could not write to event log \"%s\"", currentFile), e);
+            droppedCount.incrementAndGet();
+            closeFile();
+        }
+    }
+
+    private void writeID(final long id) throws IOException {
+        if (id == 0) {
+            writeVarLong(output, NO_ID);
+            return;
+        }
+
+        final Integer index = dictionary.get(id);
+        if (index != null) {
+            writeVarLong(output, FIRST_INDEX + index);
+            return;
+        }
+
+        writeVarLong(output, NEW_ID);
+        output.writeLong(id);
+        if (dictionary.size() < MAX_DICTIONARY_SIZE) {
+            dictionary.put(id, dictionary.size());
+        }
+    }
+
+    private void openFile() throws IOException {
+        Files.createDirectories(directory);
+        final Path file = directory.resolve(String.format("%s-%03d.bin", fileNamePrefix, fileNumber++));
+
+        output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        currentFile = file;
+        dictionary.clear();
+        previousTimestamp = System.currentTimeMillis();
+
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        output.writeLong(previousTimestamp);
+
+        LOG.info("Writing event log to \"{}\".", file);
+    }
+
+    private void flush() {
+        if (output == null) {
+            return;
+        }
+
+        try {
+            output.flush();
+        }
+        catch (IOException e) {
+            LOG.error(String.format("Could not write to event log \"%s\"", currentFile), e);
+            closeFile();
+        }
+    }
+
+    private void closeFile() {
+        if (output == null) {
+            return;
+        }
+
+        try {
+            output.close();
+        }
+        catch (IOException e) {
+            LOG.error(String.format("Could not close event log \"%s\"", currentFile), e);
+        }
+        output = null;
+    }
+
+    static void writeVarLong(final DataOutput output, final long value) throws IOException {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            output.writeByte((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        output.writeByte((int) remaining);
+    }
+
+    static long readVarLong(final DataInput input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length number.");
+    }
+
+    static long zigZag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -1,25 +1,86 @@
 package de.nikos410.discordbot.util.io;
 
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
 
 /**
  * Contains helpers to read and write to files.
+ *
+ * Files are written crash-safe: the content is written to a temporary file, synced to disk and renamed over the
+ * target, so the target always contains either the complete old or the complete new content. The CRC32 checksum of
+ * the content is saved next to the file ("file.json.crc32") and renamed into place after the file. The previous
+ * versions are kept as rotating backups ("file.json.1" is the newest).
+ *
+ * When a JSON data file can not be parsed or its checksum does not match, e.g. because the bot crashed between
+ * renaming the file and its checksum, the newest backup with a matching checksum is used instead. A file without a
+ * checksum file is accepted as it is, so delete the checksum file after editing a data file by hand. Plaintext files
+ * like the configuration are edited by hand and are always read as they are.
  */
 public class IOUtil {
 
     private static final Logger LOG = LoggerFactory.getLogger(IOUtil.class);
 
+    private static final String CHECKSUM_SUFFIX = ".crc32";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String CORRUPT_SUFFIX = ".corrupt";
+    private static final int BUFFER_SIZE = 8192;
+
+    private static volatile int backupCount = 3;
+    private static volatile boolean prettyPrintJSON = false;
+    // Writes to the same file are done one after another
+    private static final Map<Path, Object> FILE_LOCKS = new ConcurrentHashMap<>();
+
     private IOUtil() {
     }
 
     /**
-     * Read the contents of a plaintext file.
+     * Set the number of previous versions that are kept of every file.
+     *
+     * @param count The number of backups, 0 to keep none.
+     */
+    public static void setBackupCount(final int count) {
+        backupCount = Math.max(0, count);
+    }
+
+    /**
+     * Set whether JSON files are written indented. Compact files are smaller and faster to write.
+     *
+     * @param prettyPrint True to indent JSON files.
+     */
+    public static void setPrettyPrintJSON(final boolean prettyPrint) {
+        prettyPrintJSON = prettyPrint;
+    }
+
+    /**
+     * Read the contents of a plaintext file as it is, without checking its checksum or falling back to a backup.
      *
      * @param path The path to the file containing the text.
      * @return The contents of the file.
@@ -28,7 +89,59 @@ public class IOUtil {
         try {
             return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
         }
-        catch (IOException | NullPointerException e){
+        catch (IOException e){
+            LOG.error(String.format("Could not read file from Path \"%s\"", path), e);
+            return null;
+        }
+    }
+
+    /**
+     * Parse a JSON data file while it is read, without reading the whole file into memory first. If the file can not
+     * be parsed or its checksum does not match, the newest valid backup is read instead and the damaged file is
+     * renamed to "file.corrupt".
+     *
+     * @param path The path to the JSON file.
+     * @return The parsed object, or null if the file could not be read.
+     */
+    public static JSONObject readJSON(final Path path) {
+        return read(path, inputStream -> new JSONObject(new JSONTokener(
+                new InputStreamReader(inputStream, StandardCharsets.UTF_8))));
+    }
+
+    private static <T> T read(final Path path, final Parser<T> parser) {
+        try {
+            final T content = readVerified(path, parser);
+            if (content != null) {
+                return content;
+            }
+
+            // The file is damaged or missing, use the newest backup that is intact
+            for (int i = 1; i <= backupCount; i++) {
+                final Path backupPath = backupPath(path, i);
+                final T backupContent = readVerified(backupPath, parser);
+                if (backupContent != null) {
+                    LOG.warn("File \"{}\" is damaged or missing, using backup \"{}\".", path, backupPath);
+                    if (Files.exists(path)) {
+                        final Path corruptPath = path.resolveSibling(path.getFileName() + CORRUPT_SUFFIX);
+                        Files.move(path, corruptPath, StandardCopyOption.REPLACE_EXISTING);
+                        LOG.warn("The damaged file was renamed to \"{}\". If it was edited by hand, rename it back " +
+                                "and delete \"{}\".", corruptPath, checksumPath(path));
+                    }
+                    return backupContent;
+                }
+            }
+
+            if (!Files.exists(path)) {
+                throw new NoSuchFileException(path.toString());
+            }
+
+            // No intact backup, the damaged file is still better than nothing if it can be parsed
+            LOG.warn("File \"{}\" is damaged and there is no intact backup.", path);
+            try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(path))) {
+                return parser.parse(inputStream);
+            }
+        }
+        catch (IOException | RuntimeException e){
             LOG.error(String.format("Could not read file from Path \"%s\"", path), e);
             return null;
         }
@@ -42,18 +155,312 @@ public class IOUtil {
      * @return The path.
      */
     public static Path writeToFile(final Path path, final String text) {
+        return writeToFile(path, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Write bytes to a file.
+     *
+     * @param path The path to the file which the bytes will be written to.
+     * @param content The bytes that will be written to the file.
+     * @return The path.
+     */
+    public static Path writeToFile(final Path path, final byte[] content) {
+        return writeToFile(path, outputStream -> outputStream.write(content));
+    }
+
+    /**
+     * Write a JSON object to a file. The object is serialized directly into the file, without creating the whole
+     * document in memory.
+     *
+     * @param path The path to the file which the object will be written to.
+     * @param json The object that will be written to the file.
+     * @return The path.
+     */
+    public static Path writeJSONToFile(final Path path, final JSONObject json) {
+        return writeToFile(path, outputStream -> writeJSON(outputStream, json));
+    }
+
+    /**
+     * Serialize a JSON object to a stream. Indented if {@link #setPrettyPrintJSON(boolean)} was enabled, otherwise
+     * compact. Only small buffers are used, no matter how large the object is.
+     *
+     * @param outputStream The stream to write to. Flushed, but not closed.
+     * @param json The object to write.
+     * @throws IOException If the stream could not be written to.
+     */
+    public static void writeJSON(final OutputStream outputStream, final JSONObject json) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
         try {
-            final Path parent = path.getParent();
-            if (parent != null) {
+            writeJSONValue(writer, json, prettyPrintJSON ? 4 : 0, 0);
+        }
+        catch (JSONException e) {
+            // org.json wraps errors of the writer
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+        writer.flush();
+    }
+
+    /**
+     * Like {@link JSONObject#write(Writer, int, int)}, but without creating a string for every key and checking
+     * every number with a BigDecimal, which creates more garbage than the output itself for large files.
+     */
+    private static void writeJSONValue(final Writer writer, final Object value, final int indentFactor,
+                                       final int indent) throws IOException {
+        if (value instanceof JSONObject) {
+            final JSONObject object = (JSONObject) value;
+            writer.write('{');
+            boolean first = true;
+            for (String key : object.keySet()) {
+                if (!first) {
+                    writer.write(',');
+                }
+                first = false;
+                writeNewLine(writer, indentFactor, indent + indentFactor);
+                JSONObject.quote(key, writer);
+                writer.write(':');
+                if (indentFactor > 0) {
+                    writer.write(' ');
+                }
+                writeJSONValue(writer, object.opt(key), indentFactor, indent + indentFactor);
+            }
+            if (!first) {
+                writeNewLine(writer, indentFactor, indent);
+            }
+            writer.write('}');
+        }
+        else if (value instanceof JSONArray) {
+            final JSONArray array = (JSONArray) value;
+            writer.write('[');
+            for (int i = 0; i < array.length(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeNewLine(writer, indentFactor, indent + indentFactor);
+                writeJSONValue(writer, array.opt(i), indentFactor, indent + indentFactor);
+            }
+            if (array.length() > 0) {
+                writeNewLine(writer, indentFactor, indent);
+            }
+            writer.write(']');
+        }
+        else if (value instanceof String) {
+            JSONObject.quote((String) value, writer);
+        }
+        else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            writer.write(Long.toString(((Number) value).longValue()));
+        }
+        else if (value instanceof Boolean) {
+            writer.write(value.toString());
+        }
+        else if (value == null || JSONObject.NULL.equals(value)) {
+            writer.write("null");
+        }
+        else {
+            writer.write(JSONObject.valueToString(value));
+        }
+    }
+
+    private static void writeNewLine(final Writer writer, final int indentFactor, final int indent) throws IOException {
+        if (indentFactor > 0) {
+            writer.write('\n');
+            for (int i = 0; i < indent; i++) {
+                writer.write(' ');
+            }
+        }
+    }
+
+    /**
+     * Write to a file. The content is written to a temporary file, synced to disk and renamed over the target.
+     *
+     * @param path The path to the file.
+     * @param content Writes the content of the file.
+     * @return The path, or null if the file could not be written.
+     */
+    public static Path writeToFile(final Path path, final FileContent content) {
+        final Object lock = FILE_LOCKS.computeIfAbsent(path.toAbsolutePath().normalize(), p -> new Object());
+        synchronized (lock) {
+            try {
+                final Path parent = path.toAbsolutePath().getParent();
                 Files.createDirectories(parent);
+
+                // Write the content and its checksum to temporary files first
+                final Path tempPath = path.resolveSibling(path.getFileName() + TEMP_SUFFIX);
+                final long checksum = writeSynced(tempPath, content);
+                final Path tempChecksumPath = checksumPath(tempPath);
+                writeSynced(tempChecksumPath, outputStream ->
+                        outputStream.write(String.format("%08x", checksum).getBytes(StandardCharsets.US_ASCII)));
+
+                if (Files.exists(path)) {
+                    rotateBackups(path);
+                }
+
+                // A crash in between leaves the old checksum, so the new file is rejected and the backup is read
+                move(tempPath, path);
+                move(tempChecksumPath, checksumPath(path));
+                syncDirectory(parent);
+
+                return path;
             }
+            catch (IOException e) {
+                LOG.error(String.format("Could not write to Path \"%s\"", path), e);
+                return null;
+            }
+        }
+    }
 
-            return Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+    /**
+     * Read a file and verify its checksum while it is parsed. Files without a checksum file are accepted as they
+     * are.
+     *
+     * @return The content, or null if the file does not exist, can not be parsed or the checksum does not match.
+     */
+    private static <T> T readVerified(final Path path, final Parser<T> parser) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+
+        final Path checksumPath = checksumPath(path);
+        final String expected = Files.exists(checksumPath) ?
+                new String(Files.readAllBytes(checksumPath), StandardCharsets.US_ASCII).trim() : null;
+
+        try (CheckedInputStream inputStream = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(path)), new CRC32())) {
+            final T content;
+            try {
+                content = parser.parse(inputStream);
+            }
+            catch (RuntimeException e) {
+                LOG.warn("Could not parse file \"{}\": {}", path, e.toString());
+                return null;
+            }
+
+            // The parser might not read up to the end, the checksum covers the whole file
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            while (inputStream.read(buffer) >= 0) {
+                // Only update the checksum
+            }
+
+            if (expected != null && !String.format("%08x", inputStream.getChecksum().getValue()).equalsIgnoreCase(expected)) {
+                LOG.warn("The checksum of file \"{}\" does not match.", path);
+                return null;
+            }
+            return content;
+        }
+    }
+
+    /**
+     * Write to a file and force the content to the disk.
+     *
+     * @return The CRC32 checksum of the written content.
+     */
+    private static long writeSynced(final Path path, final FileContent content) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            // The channel is closed by the try block, so the streams are only flushed
+            final CheckedOutputStream checkedStream = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel)), new CRC32());
+            content.writeTo(checkedStream);
+            checkedStream.flush();
+            channel.force(true);
+            return checkedStream.getChecksum().getValue();
+        }
+    }
+
+    /**
+     * Shift the backups of a file by one and make the current version the newest backup.
+     */
+    private static void rotateBackups(final Path path) throws IOException {
+        if (backupCount == 0) {
+            return;
+        }
+
+        for (int i = backupCount - 1; i >= 1; i--) {
+            final Path backupPath = backupPath(path, i);
+            if (Files.exists(backupPath)) {
+                move(backupPath, backupPath(path, i + 1));
+                final Path backupChecksumPath = checksumPath(backupPath);
+                if (Files.exists(backupChecksumPath)) {
+                    move(backupChecksumPath, checksumPath(backupPath(path, i + 1)));
+                }
+                else {
+                    Files.deleteIfExists(checksumPath(backupPath(path, i + 1)));
+                }
+            }
+        }
+
+        // The current version stays in place until the new one replaces it
+        final Path newestBackupPath = backupPath(path, 1);
+        linkOrCopy(path, newestBackupPath);
+        final Path checksumPath = checksumPath(path);
+        if (Files.exists(checksumPath)) {
+            linkOrCopy(checksumPath, checksumPath(newestBackupPath));
+        }
+        else {
+            Files.deleteIfExists(checksumPath(newestBackupPath));
+        }
+    }
+
+    private static void linkOrCopy(final Path source, final Path target) throws IOException {
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, source);
+        }
+        catch (IOException | UnsupportedOperationException e) {
+            // The file system does not support hard links
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void move(final Path source, final Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Force the renames in a directory to the disk. Not supported on every platform, so errors are ignored.
+     */
+    private static void syncDirectory(final Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
         }
         catch (IOException e) {
-            LOG.error(String.format("Could not write to Path \"%s\"", path), e);
-            return null;
+            LOG.trace("Could not sync directory {}.", directory, e);
         }
     }
 
-}
\ No newline at end of file
+    private static Path backupPath(final Path path, final int number) {
+        return path.resolveSibling(path.getFileName() + "." + number);
+    }
+
+    private static Path checksumPath(final Path path) {
+        return path.resolveSibling(path.getFileName() + CHECKSUM_SUFFIX);
+    }
+
+    /**
+     * Writes the content of a file to a stream.
+     */
+    @FunctionalInterface
+    public interface FileContent {
+        /**
+         * @param outputStream The buffered stream to the file. Must not be closed.
+         * @throws IOException If writing to the stream failed.
+         */
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
+
+    /**
+     * Creates the content of a file from a stream.
+     */
+    @FunctionalInterface
+    private interface Parser<T> {
+        T parse(InputStream inputStream) throws IOException;
+    }
+}
@@ -0,0 +1,172 @@
+package de.nikos410.discordbot.util.io;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An append-only file of JSON records, one compact record per line. Every record is synced to disk before
+ * {@link #append(JSONObject)} returns, so a record survives a crash right after it was added. The owner replays the
+ * records on top of its last snapshot at startup and calls {@link #clear()} once it has written a new snapshot.
+ *
+ * A line that was cut off, e.g. because the bot crashed while writing it, is dropped when the journal is read.
+ */
+public class JSONJournal implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(JSONJournal.class);
+
+    private final Path path;
+    private FileChannel channel;
+    private int recordCount = 0;
+
+    /**
+     * Create a journal. The file is created with the first record.
+     *
+     * @param path The path of the journal file.
+     */
+    public JSONJournal(final Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Read all records in the order they were added. A cut off record at the end of the file is removed, so the next
+     * record starts on a new line.
+     *
+     * @return The records, or an empty list if the journal does not exist or could not be read.
+     */
+    public synchronized List<JSONObject> read() {
+        final List<JSONObject> records = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return records;
+        }
+
+        try {
+            final byte[] content = Files.readAllBytes(path);
+            int lineStart = 0;
+            for (int i = 0; i < content.length; i++) {
+                if (content[i] != '\n') {
+                    continue;
+                }
+
+                final String line = new String(content, lineStart, i - lineStart, StandardCharsets.UTF_8);
+                lineStart = i + 1;
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                try {
+                    records.add(new JSONObject(line));
+                }
+                catch (JSONException e) {
+                    LOG.warn("Skipping damaged record in journal \"{}\": {}", path, line);
+                }
+            }
+
+            if (lineStart < content.length) {
+                LOG.warn("Journal \"{}\" ends with an incomplete record, removing it.", path);
+                getChannel().truncate(lineStart);
+                channel.force(true);
+            }
+        }
+        catch (IOException e) {
+            LOG.error(String.format("Could not read journal \"%s\"", path), e);
+        }
+
+        recordCount = records.size();
+        return records;
+    }
+
+    /**
+     * Add a record and sync it to disk.
+     *
+     * @param record The record.
+     * @return False if the record could not be written.
+     */
+    public synchronized boolean append(final JSONObject record) {
+        final ByteBuffer buffer = ByteBuffer.wrap((record.toString() + '\n').getBytes(StandardCharsets.UTF_8));
+        try {
+            final FileChannel fileChannel = getChannel();
+            while (buffer.hasRemaining()) {
+                fileChannel.write(buffer);
+            }
+            fileChannel.force(false);
+            recordCount++;
+            return true;
+        }
+        catch (IOException e) {
+            LOG.error(String.format("Could not write to journal \"%s\"", path), e);
+            close();
+            return false;
+        }
+    }
+
+    /**
+     * Remove all records. Only call this after a snapshot that contains them was written.
+     *
+     * @return False if the journal could not be cleared.
+     */
+    public synchronized boolean clear() {
+        try {
+            if (channel == null && !Files.exists(path)) {
+                return true;
+            }
+            getChannel().truncate(0);
+            channel.force(true);
+            recordCount = 0;
+            return true;
+        }
+        catch (IOException e) {
+            LOG.error(String.format("Could not clear journal \"%s\"", path), e);
+            close();
+            return false;
+        }
+    }
+
+    /**
+     * @return The number of records since the journal was last cleared.
+     */
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Close the file. It is opened again when the next record is added.
+     */
+    @Override
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            LOG.error(String.format("Could not close journal \"%s\"", path), e);
+        }
+        channel = null;
+    }
+
+    private FileChannel getChannel() throws IOException {
+        if (channel == null) {
+            final Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+}
@@ -0,0 +1,246 @@
+package de.nikos410.discordbot.util.io;
+
+import de.nikos410.discordbot.framework.metrics.LatencyHistogram;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes data files in the background. Instead of writing a file on every change, modules mark it as dirty and pass
+ * a function that serializes the current state into the file. Dirty files are written by a background thread at most
+ * once per interval, so a burst of changes results in a single write. The serializer is called on the background
+ * thread, so it has to be safe to call while the data is changed, e.g. by synchronizing on the same lock.
+ *
+ * The metrics are registered as an MBean named {@code de.nikos410.discordbot:type=Persistence}.
+ */
+public class PersistenceManager implements PersistenceManagerMBean {
+    private static final Logger LOG = LoggerFactory.getLogger(PersistenceManager.class);
+
+    private static final String MBEAN_NAME = "de.nikos410.discordbot:type=Persistence";
+
+    private final long flushIntervalMillis;
+    private final ScheduledExecutorService flusher;
+    // Path -> serializer of the latest state
+    private final Map<Path, IOUtil.FileContent> dirty = new ConcurrentHashMap<>();
+    private volatile boolean shutdown = false;
+
+    private final AtomicLong markedDirty = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final LatencyHistogram flushLatency = new LatencyHistogram();
+
+    /**
+     * Create a persistence manager and start the background thread.
+     *
+     * @param flushIntervalMillis The time in milliseconds between two writes of the same file.
+     */
+    public PersistenceManager(final long flushIntervalMillis) {
+        this.flushIntervalMillis = Math.max(0, flushIntervalMillis);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "Persistence-Flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (this.flushIntervalMillis > 0) {
+            flusher.scheduleWithFixedDelay(this::flushAll, this.flushIntervalMillis, this.flushIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+        registerMBean();
+    }
+
+    /**
+     * Mark a file as changed. It is written with the next flush, using the serializer that was passed last. After
+     * {@link #shutdown()} or if the interval is 0, the file is written immediately.
+     *
+     * @param path The path of the file.
+     * @param serializer Writes the current state to the file.
+     */
+    public void markDirty(final Path path, final IOUtil.FileContent serializer) {
+        markedDirty.incrementAndGet();
+        dirty.put(path, serializer);
+
+        if (shutdown || flushIntervalMillis == 0) {
+            flush(path);
+        }
+    }
+
+    /**
+     * Mark a JSON file as changed. See {@link #markDirty(Path, IOUtil.FileContent)}. The object is serialized
+     * directly into the file while holding the lock, so all changes to the object have to be made while holding the
+     * same lock. Don't call this while holding the lock, the file may be written right away.
+     *
+     * @param path The path of the file.
+     * @param json The object that is written to the file.
+     * @param lock The lock that guards the object.
+     */
+    public void markDirty(final Path path, final JSONObject json, final Object lock) {
+        markDirty(path, outputStream -> {
+            synchronized (lock) {
+                IOUtil.writeJSON(outputStream, json);
+            }
+        });
+    }
+
+    /**
+     * Write a file now if it is dirty.
+     *
+     * @param path The path of the file.
+     * @return False if the file could not be written, it stays dirty in that case.
+     */
+    public synchronized boolean flush(final Path path) {
+        // Removed before serializing, so changes during serialization mark the file dirty again
+        final IOUtil.FileContent serializer = dirty.remove(path);
+        if (serializer == null) {
+            return true;
+        }
+
+        final long start = System.nanoTime();
+        try {
+            final long[] written = new long[1];
+            final IOUtil.FileContent countingSerializer = outputStream -> serializer.writeTo(new FilterOutputStream(outputStream) {
+                @Override
+                public void write(final int b) throws IOException {
+                    out.write(b);
+                    written[0]++;
+                }
+
+                @Override
+                public void write(final byte[] b, final int off, final int len) throws IOException {
+                    out.write(b, off, len);
+                    written[0] += len;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    // The stream belongs to IOUtil
+                    flush();
+                }
+            });
+            if (IOUtil.writeToFile(path, countingSerializer) == null) {
+                throw new IllegalStateException("Could not write " + path);
+            }
+            bytesWritten.addAndGet(written[0]);
+            flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return true;
+        }
+        catch (RuntimeException e) {
+            LOG.error("Could not save {}, trying again with the next flush.", path, e);
+            failedFlushes.incrementAndGet();
+            dirty.putIfAbsent(path, serializer);
+            return false;
+        }
+    }
+
+    /**
+     * Write all dirty files now.
+     */
+    public synchronized void flushAll() {
+        for (Path path : new ArrayList<>(dirty.keySet())) {
+            flush(path);
+        }
+    }
+
+    /**
+     * Stop the background thread and write all dirty files. Files that are marked dirty afterwards are written
+     * immediately. Can be called more than once.
+     */
+    public void shutdown() {
+        if (shutdown) {
+            flushAll();
+            return;
+        }
+
+        shutdown = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(flushIntervalMillis + 1000, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushAll();
+        LOG.info("Saved all data files. {} flushes, {} bytes written.", getFlushCount(), getBytesWritten());
+    }
+
+    @Override
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    @Override
+    public int getDirtyCount() {
+        return dirty.size();
+    }
+
+    @Override
+    public long getMarkedDirtyCount() {
+        return markedDirty.get();
+    }
+
+    @Override
+    public long getFlushCount() {
+        return flushLatency.getCount();
+    }
+
+    @Override
+    public long getFailedFlushCount() {
+        return failedFlushes.get();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    @Override
+    public double getMeanFlushMillis() {
+        return flushLatency.getMeanMillis();
+    }
+
+    @Override
+    public double getP99FlushMillis() {
+        return flushLatency.getPercentileMillis(99);
+    }
+
+    @Override
+    public double getMaxFlushMillis() {
+        return flushLatency.getMaxMillis();
+    }
+
+    /**
+     * @return The latency histogram of all successful flushes.
+     */
+    public LatencyHistogram getFlushLatency() {
+        return flushLatency;
+    }
+
+    private void registerMBean() {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(MBEAN_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        }
+        catch (JMException | SecurityException e) {
+            LOG.warn("Could not register MBean for persistence metrics.", e);
+        }
+    }
+}
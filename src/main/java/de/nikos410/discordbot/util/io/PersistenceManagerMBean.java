@@ -0,0 +1,24 @@
+package de.nikos410.discordbot.util.io;
+
+/**
+ * JMX view of the {@link PersistenceManager}. Latencies are in milliseconds.
+ */
+public interface PersistenceManagerMBean {
+    long getFlushIntervalMillis();
+
+    int getDirtyCount();
+
+    long getMarkedDirtyCount();
+
+    long getFlushCount();
+
+    long getFailedFlushCount();
+
+    long getBytesWritten();
+
+    double getMeanFlushMillis();
+
+    double getP99FlushMillis();
+
+    double getMaxFlushMillis();
+}
@@ -0,0 +1,289 @@
+package de.nikos410.discordbot.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.NoSuchFileException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Writes an index of all bot modules and their commands at compile time, so the bot does not need to scan the
+ * classpath and reflect over every module when starting.
+ *
+ * A module is every non-abstract class in the package {@code de.nikos410.discordbot.modules} that extends
+ * {@code CommandModule}. The index is a JSON file that contains the class name of every module, the modules declared
+ * with {@code @DependsOn} and the properties of every method annotated with {@code @CommandSubscriber}, including
+ * default values. Class names are binary names, as expected by {@link Class#forName(String)}.
+ *
+ * If only some classes are compiled, e.g. by an incremental build, the modules of the existing index that were not
+ * compiled are read from their class files, so the index always contains every module.
+ */
+@SupportedAnnotationTypes("*")
+public class ModuleIndexProcessor extends AbstractProcessor {
+    private static final String MODULE_PACKAGE = "de.nikos410.discordbot.modules";
+    private static final String COMMAND_MODULE = "de.nikos410.discordbot.framework.CommandModule";
+    private static final String COMMAND_SUBSCRIBER = "de.nikos410.discordbot.framework.annotations.CommandSubscriber";
+    private static final String COMMAND_PARAMETER = "de.nikos410.discordbot.framework.annotations.CommandParameter";
+    private static final String DEPENDS_ON = "de.nikos410.discordbot.framework.annotations.DependsOn";
+
+    private static final String INDEX_PATH = "META-INF/de-discordbot/module-index.json";
+    private static final Pattern CLASS_PATTERN = Pattern.compile("\"class\":\"([^\"]+)\"");
+
+    // Module class name -> JSON description of the module
+    private final Map<String, String> modules = new TreeMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            addPreviousModules();
+            writeIndex();
+            return false;
+        }
+
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            if (isModule(type)) {
+                modules.put(binaryName(type), describeModule(type));
+            }
+        }
+
+        // Don't claim any annotations
+        return false;
+    }
+
+    /**
+     * Add the modules of the index from the previous compilation that were not compiled this time. They are described
+     * again from their class files, modules that were deleted or are no longer modules are left out.
+     */
+    private void addPreviousModules() {
+        final String previousIndex;
+        try {
+            final FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEX_PATH);
+            previousIndex = file.getCharContent(true).toString();
+        }
+        catch (FileNotFoundException | NoSuchFileException e) {
+            // First compilation
+            return;
+        }
+        catch (IOException | IllegalArgumentException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Could not read the existing module index, do a clean build: " + e.getMessage());
+            return;
+        }
+
+        final Matcher matcher = CLASS_PATTERN.matcher(previousIndex);
+        while (matcher.find()) {
+            final String className = matcher.group(1);
+            if (modules.containsKey(className)) {
+                continue;
+            }
+
+            // getTypeElement expects the canonical name
+            final TypeElement type = processingEnv.getElementUtils().getTypeElement(className.replace('$', '.'));
+            if (type != null && isModule(type)) {
+                modules.put(binaryName(type), describeModule(type));
+            }
+        }
+    }
+
+    private boolean isModule(final TypeElement type) {
+        final String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        if (!packageName.equals(MODULE_PACKAGE) && !packageName.startsWith(MODULE_PACKAGE + '.')) {
+            return false;
+        }
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+
+        final TypeElement commandModule = processingEnv.getElementUtils().getTypeElement(COMMAND_MODULE);
+        return commandModule != null
+                && processingEnv.getTypeUtils().isSubtype(type.asType(), commandModule.asType());
+    }
+
+    private String describeModule(final TypeElement type) {
+        final StringJoiner commands = new StringJoiner(",", "[", "]");
+
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            final AnnotationMirror subscriber = findAnnotation(method, COMMAND_SUBSCRIBER);
+            if (subscriber != null && method.getModifiers().contains(Modifier.PUBLIC)) {
+                commands.add(describeCommand(method, subscriber));
+            }
+        }
+
+        final StringJoiner dependencies = new StringJoiner(",", "[", "]");
+        final AnnotationMirror dependsOn = findAnnotation(type, DEPENDS_ON);
+        if (dependsOn != null) {
+            for (Object dependency : (List<?>) annotationValues(dependsOn).get("value")) {
+                // Class literals are represented as TypeMirrors
+                final TypeMirror dependencyType = (TypeMirror) ((AnnotationValue) dependency).getValue();
+                dependencies.add(quote(typeName(dependencyType)));
+            }
+        }
+
+        return "{\"class\":" + quote(binaryName(type))
+                + ",\"dependencies\":" + dependencies
+                + ",\"commands\":" + commands + "}";
+    }
+
+    private String describeCommand(final ExecutableElement method, final AnnotationMirror subscriber) {
+        final StringBuilder builder = new StringBuilder("{");
+        builder.append("\"method\":").append(quote(method.getSimpleName().toString()));
+
+        // Parameter types and descriptions
+        final StringJoiner parameterTypes = new StringJoiner(",", "[", "]");
+        final StringJoiner parameters = new StringJoiner(",", "[", "]");
+        for (VariableElement parameter : method.getParameters()) {
+            final String parameterType = typeName(parameter.asType());
+            parameterTypes.add(quote(parameterType));
+
+            if (!parameterType.equals(String.class.getName())) {
+                continue;
+            }
+
+            final AnnotationMirror parameterAnnotation = findAnnotation(parameter, COMMAND_PARAMETER);
+            if (parameterAnnotation == null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "A parameter without a @CommandParameter annotation was found. The help for this command will be incomplete.",
+                        parameter);
+                continue;
+            }
+
+            final Map<String, Object> values = annotationValues(parameterAnnotation);
+            parameters.add("{\"name\":" + quote((String) values.get("name"))
+                    + ",\"help\":" + quote((String) values.get("help")) + "}");
+        }
+        builder.append(",\"parameterTypes\":").append(parameterTypes);
+        builder.append(",\"parameters\":").append(parameters);
+
+        // Annotation values, including defaults
+        for (Map.Entry<String, Object> value : annotationValues(subscriber).entrySet()) {
+            builder.append(',').append(quote(value.getKey())).append(':');
+
+            final Object content = value.getValue();
+            if (content instanceof String) {
+                builder.append(quote((String) content));
+            }
+            else if (content instanceof VariableElement) {
+                // Enum constant
+                builder.append(quote(((VariableElement) content).getSimpleName().toString()));
+            }
+            else {
+                builder.append(content);
+            }
+        }
+
+        return builder.append('}').toString();
+    }
+
+    private String binaryName(final TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    /**
+     * Get the name of a type like {@link Class#getName()} returns it, e.g. "a.b.Outer$Inner" or "[Ljava.lang.String;".
+     */
+    private String typeName(final TypeMirror type) {
+        final TypeMirror erasure = processingEnv.getTypeUtils().erasure(type);
+        if (erasure.getKind() == TypeKind.DECLARED) {
+            return binaryName((TypeElement) ((DeclaredType) erasure).asElement());
+        }
+        if (erasure.getKind() == TypeKind.ARRAY) {
+            return "[" + descriptor(((ArrayType) erasure).getComponentType());
+        }
+        return erasure.toString();
+    }
+
+    private String descriptor(final TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN: return "Z";
+            case BYTE: return "B";
+            case CHAR: return "C";
+            case SHORT: return "S";
+            case INT: return "I";
+            case LONG: return "J";
+            case FLOAT: return "F";
+            case DOUBLE: return "D";
+            case ARRAY: return typeName(type);
+            default: return "L" + typeName(type) + ";";
+        }
+    }
+
+    private static AnnotationMirror findAnnotation(final Element element, final String annotationName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            final TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(annotationName)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private Map<String, Object> annotationValues(final AnnotationMirror mirror) {
+        final Map<String, Object> values = new LinkedHashMap<>();
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+            values.put(entry.getKey().getSimpleName().toString(), entry.getValue().getValue());
+        }
+        return values;
+    }
+
+    private void writeIndex() {
+        try {
+            final FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_PATH);
+            try (Writer writer = file.openWriter()) {
+                writer.write("{\"modules\":[" + String.join(",", modules.values()) + "]}\n");
+            }
+        }
+        catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write module index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Create a JSON string literal.
+     *
+     * @param text The text to quote.
+     * @return The quoted and escaped text.
+     */
+    private static String quote(final String text) {
+        final StringBuilder builder = new StringBuilder(text.length() + 2);
+        builder.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '"': builder.append("\\\""); break;
+                case '\\': builder.append("\\\\"); break;
+                case '\n': builder.append("\\n"); break;
+                case '\r': builder.append("\\r"); break;
+                case '\t': builder.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        builder.append(c);
+                    }
+            }
+        }
+        return builder.append('"').toString();
+    }
+}